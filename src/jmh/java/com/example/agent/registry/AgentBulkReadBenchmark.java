@@ -0,0 +1,85 @@
+package com.example.agent.registry;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading every agent: one GET per agent (the path getAllAgents used to take)
+ * against the chunked, pipelined MGET with parallel decoding it takes now.
+ *
+ * Needs a scratch Redis, at REDIS_HOST / REDIS_PORT (default localhost:6379).
+ * Agents are written under the usual agent: keys and deleted afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AgentBulkReadBenchmark {
+
+    private static final RegistryNamespace NAMESPACE = RegistryNamespace.AGENTS;
+
+    @Param({"10", "1000", "10000"})
+    public int agents;
+
+    private RedisConnections connections;
+    private RedisRegistryStore store;
+    private RegistryCodec codec;
+    private AgentRegistry registry;
+    private final List<String> ids = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String host = System.getenv().getOrDefault("REDIS_HOST", "localhost");
+        int port = Integer.parseInt(System.getenv().getOrDefault("REDIS_PORT", "6379"));
+        connections = new RedisConnections(host, port);
+        store = new RedisRegistryStore(connections, 100_000, Duration.ofHours(1));
+        codec = new RegistryCodec();
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < agents; i++) {
+            AgentMetadata agent = BenchmarkData.agent(i);
+            store.put(NAMESPACE, new RegistryStore.Record(agent.getAgentId(), codec.encode(agent), now,
+                Set.copyOf(agent.getCapabilities())), RegistryStore.WriteMode.UPSERT, null);
+            ids.add(agent.getAgentId());
+        }
+
+        // Entries expire at once, so every read goes to Redis
+        registry = new AgentRegistry(store, codec, 0, Duration.ofNanos(1), new AgentEventDispatcher(),
+            "benchmark-" + ProcessHandle.current().pid());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        registry.close();
+        long now = System.currentTimeMillis();
+        for (String id : ids) {
+            store.delete(NAMESPACE, id, now, null);
+        }
+        store.close();
+        connections.close();
+    }
+
+    @Benchmark
+    public List<AgentMetadata> getPerAgent() throws Exception {
+        List<AgentMetadata> result = new ArrayList<>();
+        for (String id : store.ids(NAMESPACE)) {
+            byte[] value = store.get(NAMESPACE, id);
+            if (value != null) {
+                result.add(codec.decode(value, AgentMetadata.class));
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<AgentMetadata> getAllAgents() throws Exception {
+        return registry.getAllAgents();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.agent.registry;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry records shaped like real registrations, for the benchmarks
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * An agent with a few tool definitions, attached tools, sub-agents and config entries
+     */
+    static AgentMetadata agent(int i) {
+        AgentMetadata agent = new AgentMetadata();
+        agent.setAgentId("agent-" + i);
+        agent.setName("Benchmark agent " + i);
+        agent.setDescription("Answers questions about orders, shipments and invoices for customer " + i);
+        agent.setVersion("1.4." + (i % 10));
+        agent.setCapabilities(List.of("orders", "shipping", "billing", "capability-" + (i % 50)));
+        agent.setJarPath("/opt/agents/agent-" + i + ".jar");
+        agent.setMainClass("com.example.agents.Agent" + i);
+        agent.setStatus(AgentMetadata.AgentStatus.ACTIVE);
+        agent.setCreatedAt(1_700_000_000_000L + i);
+        agent.setUpdatedAt(1_700_000_000_000L + i);
+
+        List<AgentMetadata.ToolDefinition> definitions = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            AgentMetadata.ToolDefinition definition = new AgentMetadata.ToolDefinition();
+            definition.setName("lookup_record_" + t);
+            definition.setDescription("Looks up a record by its identifier and returns its current state");
+            definition.setReturnType("object");
+            List<AgentMetadata.ParameterDefinition> parameters = new ArrayList<>();
+            for (String name : List.of("record_id", "include_history", "locale")) {
+                AgentMetadata.ParameterDefinition parameter = new AgentMetadata.ParameterDefinition();
+                parameter.setName(name);
+                parameter.setType("string");
+                parameter.setDescription("The " + name.replace('_', ' ') + " to use");
+                parameter.setRequired(name.equals("record_id"));
+                parameters.add(parameter);
+            }
+            definition.setParameters(parameters);
+            definitions.add(definition);
+        }
+        agent.setToolDefinitions(definitions);
+
+        List<AgentMetadata.AttachedTool> attached = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            AgentMetadata.AttachedTool tool = new AgentMetadata.AttachedTool();
+            tool.setToolId("tool-" + t);
+            tool.setToolName("search_" + t);
+            tool.setConfigOverrides(Map.of("timeout_ms", 5000, "max_results", 20));
+            tool.setEnabled(true);
+            attached.add(tool);
+        }
+        agent.setAttachedTools(attached);
+
+        AgentMetadata.SubAgentReference subAgent = new AgentMetadata.SubAgentReference();
+        subAgent.setAgentId("agent-" + (i + 1));
+        subAgent.setAgentName("Benchmark agent " + (i + 1));
+        subAgent.setInvocationPattern(AgentMetadata.InvocationPattern.CONDITIONAL);
+        subAgent.setDelegationRules(List.of("topic == 'billing'", "confidence < 0.5"));
+        subAgent.setEnabled(true);
+        agent.setSubAgents(List.of(subAgent));
+
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("model", "gemini-2.0-flash");
+        config.put("temperature", 0.2);
+        config.put("max_output_tokens", 2048);
+        config.put("instruction", "You are a helpful assistant for order, shipping and billing questions.");
+        agent.setConfig(config);
+        return agent;
+    }
+
+    /**
+     * A tool registration whose server offers the given number of tools
+     */
+    static ToolMetadata tool(int i, int mcpTools) {
+        ToolMetadata tool = new ToolMetadata();
+        tool.setToolId("tool-" + i);
+        tool.setName("Benchmark MCP server " + i);
+        tool.setDescription("Search, fetch and summarize documents");
+        tool.setEndpointUrl("http://mcp-" + i + ".internal:8000");
+        tool.setCreatedAt(1_700_000_000_000L + i);
+        tool.setUpdatedAt(1_700_000_000_000L + i);
+
+        List<Map<String, Object>> tools = new ArrayList<>();
+        for (int t = 0; t < mcpTools; t++) {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("query", Map.of("type", "string", "description", "What to search for"));
+            properties.put("limit", Map.of("type", "integer", "description", "Maximum number of results"));
+            properties.put("filters", Map.of("type", "object", "description", "Field filters to apply"));
+            Map<String, Object> definition = new LinkedHashMap<>();
+            definition.put("name", "search_documents_" + t);
+            definition.put("description", "Search the document store and return the best matching passages");
+            definition.put("inputSchema", Map.of("type", "object", "properties", properties, "required", List.of("query")));
+            tools.add(definition);
+        }
+        tool.setMcpTools(tools);
+        return tool;
+    }
+}
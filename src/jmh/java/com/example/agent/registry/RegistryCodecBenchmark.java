@@ -0,0 +1,58 @@
+package com.example.agent.registry;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding registry records as Smile against plain JSON.
+ *
+ * The encoded sizes of both records are printed once per trial, next to the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistryCodecBenchmark {
+
+    @Param({"SMILE", "JSON"})
+    public RegistryCodec.Format format;
+
+    private RegistryCodec codec;
+    private AgentMetadata agent;
+    private ToolMetadata tool;
+    private byte[] encodedAgent;
+    private byte[] encodedTool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        codec = new RegistryCodec(format);
+        agent = BenchmarkData.agent(1);
+        tool = BenchmarkData.tool(1, 20);
+        encodedAgent = codec.encode(agent);
+        encodedTool = codec.encode(tool);
+        System.out.println(format + ": agent " + encodedAgent.length + " bytes, tool " + encodedTool.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encodeAgent() throws Exception {
+        return codec.encode(agent);
+    }
+
+    @Benchmark
+    public AgentMetadata decodeAgent() throws Exception {
+        return codec.decode(encodedAgent, AgentMetadata.class);
+    }
+
+    @Benchmark
+    public byte[] encodeTool() throws Exception {
+        return codec.encode(tool);
+    }
+
+    @Benchmark
+    public ToolMetadata decodeTool() throws Exception {
+        return codec.decode(encodedTool, ToolMetadata.class);
+    }
+}
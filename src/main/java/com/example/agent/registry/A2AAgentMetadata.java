@@ -40,7 +40,7 @@ public class A2AAgentMetadata {
     private List<String> outputModes;
     
     @JsonProperty("status")
-    private String status; // "connected", "disconnected", "error"
+    private String status; // "connected", "connecting", "disconnected", "error"
     
     @JsonProperty("lastUpdated")
     private long lastUpdated;
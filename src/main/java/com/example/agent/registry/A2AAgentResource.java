@@ -1,14 +1,20 @@
 package com.example.agent.registry;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import org.glassfish.jersey.server.ChunkedOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * REST API for A2A agent management
@@ -19,17 +25,26 @@ import java.util.Map;
 public class A2AAgentResource {
     
     private static final Logger logger = LoggerFactory.getLogger(A2AAgentResource.class);
+    private static final String SSE_MEDIA_TYPE = "text/event-stream";
+    private static final int STREAM_TIMEOUT_SECONDS = 300;
+    private static final ObjectMapper JSON = new ObjectMapper();
     private final A2AClientService clientService;
+    private final UpstreamExecutor upstream;
     
-    public A2AAgentResource(A2AClientService clientService) {
+    public A2AAgentResource(A2AClientService clientService, UpstreamExecutor upstream) {
         this.clientService = clientService;
+        this.upstream = upstream;
     }
     
     /**
      * Register a new A2A agent
      */
     @POST
-    public Response registerAgent(Map<String, String> request) {
+    public void registerAgent(Map<String, String> request, @Suspended AsyncResponse asyncResponse) {
+        upstream.submit(asyncResponse, () -> doRegisterAgent(request));
+    }
+    
+    private Response doRegisterAgent(Map<String, String> request) {
         String agentUrl = request.get("url");
         
         if (agentUrl == null || agentUrl.isEmpty()) {
@@ -123,7 +138,11 @@ public class A2AAgentResource {
      */
     @POST
     @Path("/test")
-    public Response testConnection(Map<String, String> request) {
+    public void testConnection(Map<String, String> request, @Suspended AsyncResponse asyncResponse) {
+        upstream.submit(asyncResponse, () -> doTestConnection(request));
+    }
+    
+    private Response doTestConnection(Map<String, String> request) {
         String agentUrl = request.get("url");
         
         if (agentUrl == null || agentUrl.isEmpty()) {
@@ -156,6 +175,7 @@ public class A2AAgentResource {
             
             status.put("totalAgents", agents.size());
             status.put("connectedAgents", agents.stream().filter(a -> "connected".equals(a.getStatus())).count());
+            status.put("connectingAgents", agents.stream().filter(a -> "connecting".equals(a.getStatus())).count());
             status.put("timestamp", System.currentTimeMillis());
             
             return Response.ok(status).build();
@@ -173,7 +193,12 @@ public class A2AAgentResource {
      */
     @POST
     @Path("/{agentId}/message")
-    public Response sendMessage(@PathParam("agentId") String agentId, Map<String, String> request) {
+    public void sendMessage(@PathParam("agentId") String agentId, Map<String, String> request,
+                            @Suspended AsyncResponse asyncResponse) {
+        upstream.submit(asyncResponse, () -> doSendMessage(agentId, request));
+    }
+    
+    private Response doSendMessage(String agentId, Map<String, String> request) {
         String message = request.get("message");
         
         if (message == null || message.isEmpty()) {
@@ -186,12 +211,15 @@ public class A2AAgentResource {
             logger.info("Sending message to agent {}: {}", agentId, message);
             long startTime = System.currentTimeMillis();
             
-            String agentResponse = clientService.sendMessage(agentId, message);
+            // Continue a conversation by passing back the contextId of an earlier reply
+            String contextId = request.get("contextId") != null ? request.get("contextId") : UUID.randomUUID().toString();
+            String agentResponse = clientService.sendMessage(agentId, message, contextId, 60);
             
             long executionTime = System.currentTimeMillis() - startTime;
             
             Map<String, Object> response = new HashMap<>();
             response.put("response", agentResponse);
+            response.put("contextId", contextId);
             
             Map<String, Object> details = new HashMap<>();
             details.put("execution_time", executionTime);
@@ -206,4 +234,113 @@ public class A2AAgentResource {
                     .build();
         }
     }
+    
+    /**
+     * Send a message to an A2A agent and stream its events back as Server-Sent Events:
+     * a start event with the contextId, then message, task, status and artifact events
+     * as the agent produces them, then done (or error). No request thread is held
+     * while the agent works.
+     */
+    @POST
+    @Path("/{agentId}/message/stream")
+    @Produces(SSE_MEDIA_TYPE)
+    public Response streamMessage(@PathParam("agentId") String agentId, Map<String, String> request) {
+        String message = request != null ? request.get("message") : null;
+        
+        if (message == null || message.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity(Map.of("error", "Message is required"))
+                    .build();
+        }
+        if (clientService.getAgent(agentId) == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity(Map.of("error", "No client found for agent ID: " + agentId))
+                    .build();
+        }
+        
+        ChunkedOutput<String> output = new ChunkedOutput<>(String.class);
+        SseRelay relay = new SseRelay(output);
+        String contextId = request.get("contextId") != null ? request.get("contextId") : UUID.randomUUID().toString();
+        // Queued ahead of any agent event
+        relay.send("start", Map.of("contextId", contextId));
+        try {
+            clientService.streamMessage(agentId, message, contextId, STREAM_TIMEOUT_SECONDS, relay);
+        } catch (Exception e) {
+            logger.error("Failed to stream message to agent {}: {}", agentId, e.getMessage(), e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity(Map.of("error", e.getMessage()))
+                    .build();
+        }
+        return Response.ok(output).build();
+    }
+    
+    /**
+     * Writes a streamed message's events to the response as SSE frames. A write
+     * that fails means the client went away, which the stream learns through
+     * isClosed; keep-alive comments make sure that is noticed while the agent is
+     * quiet too.
+     */
+    private static class SseRelay implements A2AClientService.StreamListener {
+        private final ChunkedOutput<String> output;
+        private volatile boolean disconnected;
+        
+        SseRelay(ChunkedOutput<String> output) {
+            this.output = output;
+        }
+        
+        @Override
+        public void onEvent(String type, Map<String, Object> data) {
+            send(type, data);
+        }
+        
+        @Override
+        public void onComplete() {
+            send("done", Map.of());
+            close();
+        }
+        
+        @Override
+        public void onError(String error) {
+            send("error", Map.of("error", error));
+            close();
+        }
+        
+        @Override
+        public void keepAlive() {
+            write(": keep-alive\n\n");
+        }
+        
+        @Override
+        public boolean isClosed() {
+            return disconnected || output.isClosed();
+        }
+        
+        void send(String type, Map<String, ?> data) {
+            try {
+                write("event: " + type + "\ndata: " + JSON.writeValueAsString(data) + "\n\n");
+            } catch (IOException e) {
+                logger.debug("Failed to encode SSE event {}: {}", type, e.getMessage());
+            }
+        }
+        
+        private void write(String frame) {
+            try {
+                output.write(frame);
+            } catch (IOException e) {
+                disconnected = true;
+                logger.debug("SSE client went away: {}", e.getMessage());
+            }
+        }
+        
+        private void close() {
+            try {
+                output.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close SSE stream: {}", e.getMessage());
+            }
+        }
+    }
 }
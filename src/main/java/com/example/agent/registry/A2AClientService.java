@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.a2a.client.Client;
 import io.a2a.client.ClientEvent;
 import io.a2a.client.MessageEvent;
+import io.a2a.client.TaskEvent;
+import io.a2a.client.TaskUpdateEvent;
 import io.a2a.client.config.ClientConfig;
 import io.a2a.client.http.A2ACardResolver;
 import io.a2a.client.transport.grpc.GrpcTransport;
@@ -17,40 +19,132 @@ import io.a2a.spec.Message;
 import io.a2a.spec.Part;
 import io.a2a.spec.TextPart;
 import io.a2a.spec.Task;
+import io.a2a.spec.TaskArtifactUpdateEvent;
+import io.a2a.spec.TaskState;
+import io.a2a.spec.TaskStatus;
+import io.a2a.spec.TaskStatusUpdateEvent;
 import io.grpc.Channel;
 import io.grpc.ManagedChannelBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.JedisPoolConfig;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 /**
- * Service for managing A2A client connections
+ * Service for managing A2A client connections.
+ *
+ * Each agent has one client, shared by any number of concurrent conversations.
+ * Every message gets its own context ID (or continues a caller-supplied one), and
+ * replies are matched to the waiting request by context ID, by task ID once the
+ * agent has assigned one, or by message ID. At most maxConcurrentPerAgent messages
+ * to one agent are in flight at once; further messages wait for a slot within
+ * their timeout. Streamed messages hand each event to a {@link StreamListener}
+ * as it arrives instead, without holding a caller's thread while the agent works.
+ * Stored agents are reconnected in the background on startup, a few at a time;
+ * until then they show as connecting, and messages to them wait for the connection.
  */
 public class A2AClientService {
 
     private static final Logger logger = LoggerFactory.getLogger(A2AClientService.class);
-    private static final String REDIS_KEY_PREFIX = "a2a:agent:";
+    private static final RegistryNamespace NAMESPACE = RegistryNamespace.A2A_AGENTS;
+    private static final int DEFAULT_MAX_CONCURRENT_PER_AGENT = 32;
+    private static final int DEFAULT_RECONNECT_THREADS = 8;
+    private static final Duration DEFAULT_RECONNECT_TIMEOUT = Duration.ofSeconds(30);
+    private static final int STREAM_KEEPALIVE_SECONDS = 15;
+
+    /**
+     * Receives the events of one streamed message, on the A2A client's threads
+     */
+    public interface StreamListener {
+        /**
+         * @param type message, task, status or artifact
+         */
+        void onEvent(String type, Map<String, Object> data);
+
+        void onComplete();
+
+        void onError(String error);
+
+        /**
+         * Called every few seconds while the stream is open, so a listener can
+         * find out whether its caller is still there
+         */
+        default void keepAlive() {
+        }
+
+        /**
+         * Whether the caller has gone away; the stream is then ended early and
+         * its request slot freed
+         */
+        default boolean isClosed() {
+            return false;
+        }
+    }
 
     private final Map<String, Client> clients = new ConcurrentHashMap<>();
-    private final Map<String, CompletableFuture<String>> pendingResponses = new ConcurrentHashMap<>();
-    private final Map<String, String> agentUrls = new ConcurrentHashMap<>();
-    private final JedisPool jedisPool;
+    private final A2APendingReplies pendingReplies = new A2APendingReplies();
+    private final Map<String, Semaphore> agentSlots = new ConcurrentHashMap<>();
+    private final int maxConcurrentPerAgent;
+    private final ExecutorService senders;
+    private final ScheduledExecutorService timeouts;
+    // agentId -> reconnection under way, completed with the agent's client
+    private final Map<String, CompletableFuture<Client>> connecting = new ConcurrentHashMap<>();
+    private final ExecutorService reconnectors;
+    private final Duration reconnectTimeout;
+    private final RegistryStore store;
+    private final RegistryCodec codec;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public A2AClientService(String redisHost, int redisPort) {
-        JedisPoolConfig poolConfig = new JedisPoolConfig();
-        poolConfig.setMaxTotal(10);
-        this.jedisPool = new JedisPool(poolConfig, redisHost, redisPort);
+    public A2AClientService(RegistryStore store) {
+        this(store, new RegistryCodec());
+    }
+
+    public A2AClientService(RegistryStore store, RegistryCodec codec) {
+        this(store, codec, DEFAULT_MAX_CONCURRENT_PER_AGENT);
+    }
 
-        // Load existing agents from Redis on startup
-        loadAgentsFromRedis();
+    public A2AClientService(RegistryStore store, RegistryCodec codec, int maxConcurrentPerAgent) {
+        this(store, codec, maxConcurrentPerAgent, DEFAULT_RECONNECT_THREADS, DEFAULT_RECONNECT_TIMEOUT);
+    }
+
+    /**
+     * @param reconnectThreads stored agents reconnected at once on startup
+     * @param reconnectTimeout how long one agent may take to return its agent card
+     */
+    public A2AClientService(RegistryStore store, RegistryCodec codec, int maxConcurrentPerAgent,
+                            int reconnectThreads, Duration reconnectTimeout) {
+        this.store = store;
+        this.codec = codec;
+        this.maxConcurrentPerAgent = maxConcurrentPerAgent;
+        this.reconnectTimeout = reconnectTimeout;
+
+        // Sends of streamed messages; a send blocks until the agent accepts the message
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "a2a-stream-send-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timeouts = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "a2a-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger reconnectCount = new AtomicInteger();
+        this.reconnectors = Executors.newFixedThreadPool(reconnectThreads, runnable -> {
+            Thread thread = new Thread(runnable, "a2a-reconnect-" + reconnectCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Reconnect to agents from the store in the background
+        loadAgentsFromStore();
     }
 
     /**
@@ -73,13 +167,12 @@ public class A2AClientService {
             // Create A2A client with proper transport configuration
             Client client = createClient(agentCard, agentId);
             clients.put(agentId, client);
-            agentUrls.put(agentId, agentUrl);
 
             // Convert agent card to metadata
             A2AAgentMetadata metadata = convertAgentCardToMetadata(agentId, agentCard, agentUrl);
 
-            // Save to Redis
-            saveAgentToRedis(metadata);
+            // Save to the store
+            saveAgent(metadata);
 
             logger.info("Successfully connected to A2A agent: {} ({})", agentCard.name(), agentId);
 
@@ -108,10 +201,16 @@ public class A2AClientService {
             logger.info("[A2A Event for {}] Received: {} ({})", agentId, eventType, event.getClass().getName());
 
             StringBuilder textBuilder = new StringBuilder();
+            // IDs the agent echoed back, used to find the request this event answers
+            List<String> correlationIds = new ArrayList<>(3);
+            String taskId = null;
 
             // Handle MessageEvent
             if (event instanceof MessageEvent messageEvent) {
                 Message responseMessage = messageEvent.getMessage();
+                taskId = responseMessage.getTaskId();
+                correlationIds.add(responseMessage.getContextId());
+                correlationIds.add(taskId);
                 if (responseMessage.getParts() != null) {
                     for (Part<?> part : responseMessage.getParts()) {
                         if (part instanceof TextPart textPart) {
@@ -125,6 +224,11 @@ public class A2AClientService {
             try {
                 var getTask = event.getClass().getMethod("getTask");
                 Task task = (Task) getTask.invoke(event);
+                if (task != null) {
+                    taskId = task.getId();
+                    correlationIds.add(task.getContextId());
+                    correlationIds.add(taskId);
+                }
                 if (task != null && task.getArtifacts() != null) {
                     logger.info("Task has {} artifacts", task.getArtifacts().size());
                     for (var artifact : task.getArtifacts()) {
@@ -161,14 +265,25 @@ public class A2AClientService {
                 // Not an artifact event
             }
 
+            A2APendingReplies.Request pending = pendingReplies.find(agentId, correlationIds, getInFlight(agentId));
+            if (pending != null && taskId != null) {
+                pendingReplies.addTask(pending, agentId, taskId);
+            }
+
+            if (pending != null && pending.listener != null) {
+                relay(pending, agentId, event);
+                return;
+            }
+
             if (textBuilder.length() > 0) {
                 String responseText = textBuilder.toString();
                 logger.info("Extracted text response from {}: {}", agentId, responseText);
 
-                // Complete any pending future for this agent
-                CompletableFuture<String> future = pendingResponses.remove(agentId);
-                if (future != null) {
-                    future.complete(responseText);
+                if (pending != null) {
+                    pendingReplies.remove(pending);
+                    pending.future.complete(responseText);
+                } else {
+                    logger.debug("Dropped reply from {} matching no request in flight", agentId);
                 }
             }
         });
@@ -198,17 +313,16 @@ public class A2AClientService {
      */
     public List<A2AAgentMetadata> getAllAgents() {
         List<A2AAgentMetadata> agents = new ArrayList<>();
-        try (Jedis jedis = jedisPool.getResource()) {
-            Set<String> keys = jedis.keys(REDIS_KEY_PREFIX + "*");
-            for (String key : keys) {
-                String json = jedis.get(key);
-                if (json != null) {
-                    A2AAgentMetadata metadata = objectMapper.readValue(json, A2AAgentMetadata.class);
-                    agents.add(metadata);
+        try {
+            List<String> ids = new ArrayList<>(store.ids(NAMESPACE));
+            for (byte[] value : store.getAll(NAMESPACE, ids)) {
+                if (value != null) {
+                    A2AAgentMetadata metadata = codec.decode(value, A2AAgentMetadata.class);
+                    agents.add(withConnectingStatus(metadata));
                 }
             }
         } catch (Exception e) {
-            logger.error("Failed to load agents from Redis", e);
+            logger.error("Failed to load agents from store", e);
         }
         return agents;
     }
@@ -217,17 +331,27 @@ public class A2AClientService {
      * Get a specific A2A agent by ID
      */
     public A2AAgentMetadata getAgent(String agentId) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            String json = jedis.get(REDIS_KEY_PREFIX + agentId);
-            if (json != null) {
-                return objectMapper.readValue(json, A2AAgentMetadata.class);
+        try {
+            byte[] value = store.get(NAMESPACE, agentId);
+            if (value != null) {
+                return withConnectingStatus(codec.decode(value, A2AAgentMetadata.class));
             }
         } catch (Exception e) {
-            logger.error("Failed to load agent {} from Redis", agentId, e);
+            logger.error("Failed to load agent {} from store", agentId, e);
         }
         return null;
     }
     
+    /**
+     * Show agents this node is still reconnecting to as connecting, whatever their stored status
+     */
+    private A2AAgentMetadata withConnectingStatus(A2AAgentMetadata metadata) {
+        if (connecting.containsKey(metadata.getId())) {
+            metadata.setStatus("connecting");
+        }
+        return metadata;
+    }
+    
     /**
      * Get A2A client for an agent
      */
@@ -246,32 +370,38 @@ public class A2AClientService {
      * Send a message to an A2A agent and wait for response with timeout
      */
     public String sendMessage(String agentId, String messageText, int timeoutSeconds) throws Exception {
-        Client client = clients.get(agentId);
-        if (client == null) {
-            throw new Exception("No client found for agent ID: " + agentId);
+        return sendMessage(agentId, messageText, null, timeoutSeconds);
+    }
+    
+    /**
+     * Send a message in a conversation and wait for the response. A null contextId
+     * starts a new conversation; only one message per conversation may be in flight.
+     * An agent that is still connecting is waited for within the same timeout.
+     */
+    public String sendMessage(String agentId, String messageText, String contextId, int timeoutSeconds) throws Exception {
+        // One deadline covers connecting, waiting for a slot and waiting for the reply
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        Client client = clientFor(agentId, deadline, timeoutSeconds);
+        
+        Semaphore slots = agentSlots.computeIfAbsent(agentId, id -> new Semaphore(maxConcurrentPerAgent, true));
+        if (!slots.tryAcquire(remainingNanos(deadline), TimeUnit.NANOSECONDS)) {
+            throw new Exception("All " + maxConcurrentPerAgent + " request slots for agent " + agentId
+                + " stayed busy for " + timeoutSeconds + "s");
         }
         
+        String conversationId = contextId != null ? contextId : UUID.randomUUID().toString();
+        String messageId = UUID.randomUUID().toString();
+        A2APendingReplies.Request pending = new A2APendingReplies.Request();
         try {
-            // Create a future to capture the response
-            CompletableFuture<String> responseFuture = new CompletableFuture<>();
-            pendingResponses.put(agentId, responseFuture);
+            // Register before sending, so a fast reply finds its request
+            if (!pendingReplies.add(pending, agentId, conversationId)) {
+                throw new Exception("A message in context " + conversationId + " is already in flight");
+            }
+            pendingReplies.add(pending, agentId, messageId);
             
-            // Create a text part and message
-            TextPart textPart = new TextPart(messageText, null);
-            List<Part<?>> parts = new ArrayList<>();
-            parts.add(textPart);
-            Message message = new Message(
-                Message.Role.USER, 
-                parts, 
-                java.util.UUID.randomUUID().toString(), 
-                null, 
-                null, 
-                null, 
-                null
-            );
+            Message message = userMessage(messageText, messageId, conversationId);
             
-            logger.info("Sending message to agent {}: {}", agentId, messageText);
-            logger.info("Client methods available: {}", java.util.Arrays.toString(client.getClass().getMethods()));
+            logger.info("Sending message to agent {} in context {}: {}", agentId, conversationId, messageText);
             
             // Try to start/connect first
             try {
@@ -287,37 +417,245 @@ public class A2AClientService {
             
             // Wait for response with timeout
             try {
-                String response = responseFuture.get(timeoutSeconds, TimeUnit.SECONDS);
+                String response = pending.future.get(remainingNanos(deadline), TimeUnit.NANOSECONDS);
                 logger.info("Received response from agent {}: {}", agentId, response);
                 return response;
             } catch (TimeoutException e) {
-                pendingResponses.remove(agentId);
                 throw new Exception("Timeout waiting for response from agent (" + timeoutSeconds + "s)");
             }
             
         } catch (Exception e) {
             logger.error("Failed to send message to agent {}: {}", agentId, e.getMessage(), e);
             throw new Exception("Failed to send message: " + e.getMessage(), e);
+        } finally {
+            // Answered already, or given up on; either way late events must not revive it
+            pendingReplies.cancel(pending);
+            slots.release();
+        }
+    }
+    
+    /**
+     * Send a message and relay the agent's events to the listener as they arrive,
+     * until a reply message, a final task state, the timeout, or the listener
+     * reporting that its caller went away. Returns the context
+     * ID right away; the message is sent and relayed on other threads, once the agent
+     * has finished connecting if it is still reconnecting. Fails at once
+     * if the agent's request slots are all busy, rather than waiting for one.
+     */
+    public String streamMessage(String agentId, String messageText, String contextId, int timeoutSeconds,
+                                StreamListener listener) throws Exception {
+        if (!clients.containsKey(agentId) && !connecting.containsKey(agentId) && getAgent(agentId) == null) {
+            throw new Exception("No client found for agent ID: " + agentId);
+        }
+        
+        Semaphore slots = agentSlots.computeIfAbsent(agentId, id -> new Semaphore(maxConcurrentPerAgent, true));
+        if (!slots.tryAcquire()) {
+            throw new Exception("All " + maxConcurrentPerAgent + " request slots for agent " + agentId + " are busy");
+        }
+        
+        String conversationId = contextId != null ? contextId : UUID.randomUUID().toString();
+        String messageId = UUID.randomUUID().toString();
+        A2APendingReplies.Request pending = new A2APendingReplies.Request(listener);
+        pending.future.whenComplete((result, error) -> {
+            pendingReplies.remove(pending);
+            slots.release();
+        });
+        if (!pendingReplies.add(pending, agentId, conversationId)) {
+            pending.future.complete(null);
+            throw new Exception("A message in context " + conversationId + " is already in flight");
+        }
+        pendingReplies.add(pending, agentId, messageId);
+        
+        Message message = userMessage(messageText, messageId, conversationId);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        try {
+            ScheduledFuture<?> timeout = timeouts.schedule(() -> finishStream(pending,
+                "Timeout waiting for response from agent (" + timeoutSeconds + "s)"), timeoutSeconds, TimeUnit.SECONDS);
+            ScheduledFuture<?> keepAlive = timeouts.scheduleWithFixedDelay(() -> {
+                listener.keepAlive();
+                abandonIfClosed(pending, agentId);
+            }, STREAM_KEEPALIVE_SECONDS, STREAM_KEEPALIVE_SECONDS, TimeUnit.SECONDS);
+            pending.future.whenComplete((result, error) -> {
+                timeout.cancel(false);
+                keepAlive.cancel(false);
+            });
+            senders.execute(() -> {
+                try {
+                    Client client = clientFor(agentId, deadline, timeoutSeconds);
+                    logger.info("Streaming message to agent {} in context {}: {}", agentId, conversationId, messageText);
+                    client.sendMessage(message);
+                } catch (Exception e) {
+                    logger.error("Failed to send message to agent {}: {}", agentId, e.getMessage(), e);
+                    finishStream(pending, "Failed to send message: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.future.complete(null);
+            throw new Exception("A2A client service is shutting down");
+        }
+        return conversationId;
+    }
+    
+    /**
+     * Messages currently awaiting a reply from an agent
+     */
+    public int getInFlight(String agentId) {
+        Semaphore slots = agentSlots.get(agentId);
+        return slots != null ? maxConcurrentPerAgent - slots.availablePermits() : 0;
+    }
+    
+    private static Message userMessage(String messageText, String messageId, String contextId) {
+        List<Part<?>> parts = new ArrayList<>();
+        parts.add(new TextPart(messageText, null));
+        return new Message(Message.Role.USER, parts, messageId, contextId, null, null, null);
+    }
+    
+    /**
+     * Hand one event to a streamed message's listener, and end the stream on a
+     * reply message or once the task stops working
+     */
+    private void relay(A2APendingReplies.Request pending, String agentId, ClientEvent event) {
+        if (pending.future.isDone()) {
+            return;
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        String type;
+        boolean last;
+        if (event instanceof MessageEvent messageEvent) {
+            Message message = messageEvent.getMessage();
+            type = "message";
+            data.put("contextId", message.getContextId());
+            data.put("taskId", message.getTaskId());
+            data.put("messageId", message.getMessageId());
+            data.put("text", textOf(message.getParts()));
+            last = true;
+        } else if (event instanceof TaskUpdateEvent update
+                && update.getUpdateEvent() instanceof TaskStatusUpdateEvent statusUpdate) {
+            type = "status";
+            data.put("contextId", statusUpdate.getContextId());
+            data.put("taskId", statusUpdate.getTaskId());
+            TaskStatus status = statusUpdate.getStatus();
+            if (status != null) {
+                data.put("state", stateName(status.state()));
+                if (status.message() != null) {
+                    data.put("text", textOf(status.message().getParts()));
+                }
+            }
+            data.put("final", statusUpdate.isFinal());
+            last = statusUpdate.isFinal() || (status != null && endsStream(status.state()));
+        } else if (event instanceof TaskUpdateEvent update
+                && update.getUpdateEvent() instanceof TaskArtifactUpdateEvent artifactUpdate) {
+            type = "artifact";
+            data.put("contextId", artifactUpdate.getContextId());
+            data.put("taskId", artifactUpdate.getTaskId());
+            if (artifactUpdate.getArtifact() != null) {
+                data.put("artifactId", artifactUpdate.getArtifact().artifactId());
+                data.put("name", artifactUpdate.getArtifact().name());
+                data.put("text", textOf(artifactUpdate.getArtifact().parts()));
+            }
+            last = false;
+        } else if (event instanceof TaskEvent taskEvent && taskEvent.getTask() != null) {
+            Task task = taskEvent.getTask();
+            type = "task";
+            data.put("contextId", task.getContextId());
+            data.put("taskId", task.getId());
+            StringBuilder text = new StringBuilder();
+            if (task.getArtifacts() != null) {
+                for (var artifact : task.getArtifacts()) {
+                    text.append(textOf(artifact.parts()));
+                }
+            }
+            data.put("text", text.toString());
+            TaskState state = task.getStatus() != null ? task.getStatus().state() : null;
+            data.put("state", stateName(state));
+            last = endsStream(state);
+        } else {
+            return;
+        }
+        pending.listener.onEvent(type, data);
+        if (last) {
+            finishStream(pending, null);
+        } else {
+            abandonIfClosed(pending, agentId);
         }
     }
     
+    /**
+     * End a streamed message whose caller has gone away, freeing its request slot
+     * rather than holding it until the agent finishes or the stream times out
+     */
+    private void abandonIfClosed(A2APendingReplies.Request pending, String agentId) {
+        if (pending.listener.isClosed() && pending.future.complete(null)) {
+            logger.info("Ended streamed message to agent {}: the client disconnected", agentId);
+        }
+    }
+    
+    private void finishStream(A2APendingReplies.Request pending, String error) {
+        if (pending.future.complete(null)) {
+            if (error == null) {
+                pending.listener.onComplete();
+            } else {
+                pending.listener.onError(error);
+            }
+        }
+    }
+    
+    /**
+     * Final states, and states in which the task waits on the user
+     */
+    private static boolean endsStream(TaskState state) {
+        return state != null && (state.isFinal() || state == TaskState.INPUT_REQUIRED || state == TaskState.AUTH_REQUIRED);
+    }
+    
+    private static String stateName(TaskState state) {
+        return state != null ? state.name().toLowerCase(Locale.ROOT) : null;
+    }
+    
+    private static String textOf(List<Part<?>> parts) {
+        StringBuilder text = new StringBuilder();
+        if (parts != null) {
+            for (Part<?> part : parts) {
+                if (part instanceof TextPart textPart) {
+                    text.append(textPart.getText());
+                }
+            }
+        }
+        return text.toString();
+    }
+    
     /**
      * Disconnect from an A2A agent
      */
     public boolean disconnectAgent(String agentId) {
         logger.info("Disconnecting from A2A agent: {}", agentId);
         
-        Client client = clients.remove(agentId);
+        CompletableFuture<Client> connection = connecting.get(agentId);
+        if (connection != null) {
+            connection.cancel(true);
+        }
         
-        // Remove from Redis
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.del(REDIS_KEY_PREFIX + agentId);
+        // Remove from the store first, so a reconnection finishing meanwhile drops its client
+        boolean removed;
+        try {
+            store.delete(NAMESPACE, agentId, System.currentTimeMillis(), null);
             logger.info("Successfully disconnected from A2A agent: {}", agentId);
-            return true;
+            removed = true;
         } catch (Exception e) {
             logger.error("Error disconnecting from agent {}: {}", agentId, e.getMessage());
-            return false;
+            removed = false;
+        }
+        
+        clients.remove(agentId);
+        agentSlots.remove(agentId);
+        // Callers waiting on the agent are answered now rather than at their timeout
+        for (A2APendingReplies.Request pending : pendingReplies.removeAll(agentId)) {
+            if (pending.listener != null) {
+                finishStream(pending, "Agent " + agentId + " was disconnected");
+            } else {
+                pending.future.completeExceptionally(new Exception("Agent " + agentId + " was disconnected"));
+            }
         }
+        return removed;
     }
     
     /**
@@ -449,69 +787,188 @@ public class A2AClientService {
     }
     
     /**
-     * Save agent metadata to Redis
+     * Save agent metadata to the store
+     */
+    private void saveAgent(A2AAgentMetadata metadata) {
+        try {
+            RegistryStore.Record record = new RegistryStore.Record(
+                metadata.getId(), codec.encode(metadata), metadata.getLastUpdated(), Set.of());
+            store.put(NAMESPACE, record, RegistryStore.WriteMode.UPSERT, null);
+            logger.debug("Saved agent {} to store", metadata.getId());
+        } catch (Exception e) {
+            logger.error("Failed to save agent {} to store", metadata.getId(), e);
+        }
+    }
+    
+    /**
+     * Save agent metadata only if the agent is still registered; returns false if it is gone
      */
-    private void saveAgentToRedis(A2AAgentMetadata metadata) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            String json = objectMapper.writeValueAsString(metadata);
-            jedis.set(REDIS_KEY_PREFIX + metadata.getId(), json);
-            logger.debug("Saved agent {} to Redis", metadata.getId());
+    private boolean updateAgent(A2AAgentMetadata metadata) {
+        try {
+            RegistryStore.Record record = new RegistryStore.Record(
+                metadata.getId(), codec.encode(metadata), metadata.getLastUpdated(), Set.of());
+            return store.put(NAMESPACE, record, RegistryStore.WriteMode.UPDATE, null);
         } catch (Exception e) {
-            logger.error("Failed to save agent {} to Redis", metadata.getId(), e);
+            logger.error("Failed to save agent {} to store", metadata.getId(), e);
+            return false;
         }
     }
     
     /**
-     * Load agents from Redis on startup
+     * Add agents stored as bare keys, before the agent list existed, to the list
      */
-    private void loadAgentsFromRedis() {
-        logger.info("Loading A2A agents from Redis...");
-        try (Jedis jedis = jedisPool.getResource()) {
-            Set<String> keys = jedis.keys(REDIS_KEY_PREFIX + "*");
-            logger.info("Found {} A2A agents in Redis", keys.size());
+    private void ensureListIndex() throws Exception {
+        if (!store.needsIndexRebuild(NAMESPACE)) {
+            return;
+        }
+        
+        List<String> ids = new ArrayList<>(store.unlistedIds(NAMESPACE));
+        List<RegistryStore.Record> records = new ArrayList<>();
+        List<byte[]> values = store.getAll(NAMESPACE, ids);
+        for (int i = 0; i < ids.size(); i++) {
+            if (values.get(i) == null) {
+                continue;
+            }
+            try {
+                A2AAgentMetadata metadata = codec.decode(values.get(i), A2AAgentMetadata.class);
+                records.add(new RegistryStore.Record(ids.get(i), null, metadata.getLastUpdated(), Set.of()));
+            } catch (Exception e) {
+                logger.warn("Skipping unreadable A2A agent {}: {}", ids.get(i), e.getMessage());
+            }
+        }
+        store.rebuildIndexes(NAMESPACE, records);
+        logger.info("Added {} A2A agents to the agent list index", records.size());
+    }
+    
+    /**
+     * Start reconnecting to every stored agent on startup; returns without waiting for them
+     */
+    private void loadAgentsFromStore() {
+        logger.info("Loading A2A agents from store...");
+        try {
+            ensureListIndex();
+            List<String> ids = new ArrayList<>(store.ids(NAMESPACE));
+            logger.info("Found {} A2A agents in store", ids.size());
             
-            for (String key : keys) {
+            List<byte[]> values = store.getAll(NAMESPACE, ids);
+            for (int i = 0; i < ids.size(); i++) {
                 try {
-                    String json = jedis.get(key);
-                    if (json != null) {
-                        A2AAgentMetadata metadata = objectMapper.readValue(json, A2AAgentMetadata.class);
-                        
-                        // Try to reconnect to the agent
-                        try {
-                            AgentCard agentCard = fetchAgentCard(metadata.getUrl());
-                            Client client = createClient(agentCard, metadata.getId());
-                            clients.put(metadata.getId(), client);
-                            agentUrls.put(metadata.getId(), metadata.getUrl());
-                            
-                            // Update metadata with fresh data
-                            A2AAgentMetadata updatedMetadata = convertAgentCardToMetadata(
-                                metadata.getId(), agentCard, metadata.getUrl());
-                            saveAgentToRedis(updatedMetadata);
-                            
-                            logger.info("Reconnected to A2A agent: {} ({})", metadata.getName(), metadata.getId());
-                        } catch (Exception e) {
-                            logger.warn("Failed to reconnect to A2A agent {}: {}", metadata.getName(), e.getMessage());
-                            // Keep metadata but mark as disconnected
-                            metadata.setStatus("disconnected");
-                            saveAgentToRedis(metadata);
-                        }
+                    byte[] value = values.get(i);
+                    if (value != null) {
+                        reconnect(codec.decode(value, A2AAgentMetadata.class));
                     }
                 } catch (Exception e) {
-                    logger.error("Failed to load agent from key {}", key, e);
+                    logger.error("Failed to load agent {}", ids.get(i), e);
                 }
             }
         } catch (Exception e) {
-            logger.error("Failed to load agents from Redis", e);
+            logger.error("Failed to load agents from store", e);
         }
     }
     
     /**
-     * Close Redis connection pool
+     * Reconnect to a stored agent in the background, or join the reconnection
+     * already under way. The agent shows as connecting until its client is ready;
+     * if the agent card does not arrive within reconnectTimeout, it is marked
+     * disconnected and the next message to it tries again.
      */
-    public void close() {
-        if (jedisPool != null && !jedisPool.isClosed()) {
-            jedisPool.close();
-            logger.info("Closed A2A service Redis connection pool");
+    private CompletableFuture<Client> reconnect(A2AAgentMetadata metadata) {
+        String agentId = metadata.getId();
+        CompletableFuture<Client> connection = new CompletableFuture<>();
+        CompletableFuture<Client> existing = connecting.putIfAbsent(agentId, connection);
+        if (existing != null) {
+            return existing;
+        }
+        
+        connection.whenComplete((client, error) -> {
+            connecting.remove(agentId, connection);
+            if (error != null) {
+                logger.warn("Failed to reconnect to A2A agent {}: {}", metadata.getName(), error.getMessage());
+                // Keep metadata but mark as disconnected
+                metadata.setStatus("disconnected");
+                updateAgent(metadata);
+            }
+        });
+        AtomicReference<Future<?>> running = new AtomicReference<>();
+        try {
+            running.set(reconnectors.submit(() -> {
+                if (connection.isDone()) {
+                    // Disconnected while queued
+                    return;
+                }
+                // Timed from the start of the attempt, not from when it was queued
+                ScheduledFuture<?> timeout = timeouts.schedule(() -> {
+                    if (connection.completeExceptionally(new TimeoutException(
+                            "No agent card within " + reconnectTimeout.toSeconds() + "s"))) {
+                        running.get().cancel(true);
+                    }
+                }, reconnectTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                connection.whenComplete((client, error) -> timeout.cancel(false));
+                try {
+                    AgentCard agentCard = fetchAgentCard(metadata.getUrl());
+                    Client client = createClient(agentCard, agentId);
+                    clients.put(agentId, client);
+                    if (!connection.complete(client)) {
+                        // Timed out or disconnected meanwhile
+                        clients.remove(agentId, client);
+                        return;
+                    }
+                    
+                    // Update metadata with fresh data, unless the agent was disconnected meanwhile
+                    if (!updateAgent(convertAgentCardToMetadata(agentId, agentCard, metadata.getUrl()))) {
+                        clients.remove(agentId, client);
+                    }
+                    logger.info("Reconnected to A2A agent: {} ({})", metadata.getName(), agentId);
+                } catch (Exception e) {
+                    connection.completeExceptionally(e);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            connection.completeExceptionally(new Exception("A2A client service is shutting down"));
+        }
+        return connection;
+    }
+    
+    /**
+     * The agent's client, reconnecting first if the agent is stored but not connected.
+     * Waits for a reconnect until the caller's deadline (System.nanoTime based).
+     */
+    private Client clientFor(String agentId, long deadline, int timeoutSeconds) throws Exception {
+        Client client = clients.get(agentId);
+        if (client != null) {
+            return client;
+        }
+        
+        CompletableFuture<Client> connection = connecting.get(agentId);
+        if (connection == null) {
+            A2AAgentMetadata metadata = getAgent(agentId);
+            if (metadata == null) {
+                throw new Exception("No client found for agent ID: " + agentId);
+            }
+            connection = reconnect(metadata);
+        }
+        try {
+            return connection.get(remainingNanos(deadline), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new Exception("Agent " + agentId + " is still connecting after " + timeoutSeconds + "s");
+        } catch (ExecutionException | CancellationException e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            throw new Exception("Failed to reconnect to agent " + agentId + ": " + cause.getMessage(), cause);
         }
     }
+    
+    private static long remainingNanos(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+    
+    /**
+     * Close the service; the store is owned and closed by the caller
+     */
+    public void close() {
+        reconnectors.shutdownNow();
+        senders.shutdownNow();
+        timeouts.shutdownNow();
+        clients.clear();
+        logger.info("Closed A2A client service");
+    }
 }
@@ -0,0 +1,126 @@
+package com.example.agent.registry;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Messages sent to A2A agents that are still awaiting a reply, indexed by the IDs
+ * a reply may echo back.
+ *
+ * A request is registered under "agentId:contextId" and "agentId:messageId" before
+ * it is sent, and under "agentId:taskId" once the agent reports the task it
+ * started, since later events of the task may carry only its ID. Keys are scoped
+ * by agent, so two agents reusing a context ID never answer each other's requests.
+ */
+public class A2APendingReplies {
+
+    private final Map<String, Request> requests = new ConcurrentHashMap<>();
+
+    /**
+     * Register a request under one of its IDs. Returns false if another request in
+     * flight to the agent already holds that ID.
+     */
+    public boolean add(Request request, String agentId, String id) {
+        String key = agentId + ":" + id;
+        if (requests.putIfAbsent(key, request) != null) {
+            return false;
+        }
+        request.keys.add(key);
+        return true;
+    }
+
+    /**
+     * Also register the request under the task the agent started for it
+     */
+    public void addTask(Request request, String agentId, String taskId) {
+        String key = agentId + ":" + taskId;
+        if (request.keys.add(key)) {
+            requests.put(key, request);
+            // Answered while we were adding; don't leave the alias behind
+            if (request.future.isDone()) {
+                remove(request);
+            }
+        }
+    }
+
+    public void remove(Request request) {
+        for (String key : request.keys) {
+            requests.remove(key, request);
+        }
+    }
+
+    /**
+     * Give up on a request that timed out or failed to send. Its future is
+     * cancelled before it is removed, so a task event that arrives late does not
+     * register it again.
+     */
+    public void cancel(Request request) {
+        request.future.cancel(false);
+        remove(request);
+    }
+
+    /**
+     * Remove every request in flight to the agent, for the caller to fail
+     */
+    public Set<Request> removeAll(String agentId) {
+        String prefix = agentId + ":";
+        Set<Request> removed = new HashSet<>();
+        for (Map.Entry<String, Request> e : requests.entrySet()) {
+            if (e.getKey().startsWith(prefix) && requests.remove(e.getKey(), e.getValue())) {
+                removed.add(e.getValue());
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * The request an event answers: the first echoed ID that matches one in flight.
+     * Agents that echo no known ID can only be answered while a single request is
+     * in flight to them, which the caller passes as inFlight.
+     */
+    public Request find(String agentId, List<String> correlationIds, int inFlight) {
+        for (String id : correlationIds) {
+            if (id != null) {
+                Request request = requests.get(agentId + ":" + id);
+                if (request != null) {
+                    return request;
+                }
+            }
+        }
+        if (inFlight == 1) {
+            String prefix = agentId + ":";
+            for (Map.Entry<String, Request> e : requests.entrySet()) {
+                if (e.getKey().startsWith(prefix) && !e.getValue().future.isDone()) {
+                    return e.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A message awaiting its reply, and the IDs it is registered under
+     */
+    public static class Request {
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        final Set<String> keys = ConcurrentHashMap.newKeySet();
+        // Set for streamed messages, whose future only marks the end of the stream
+        final A2AClientService.StreamListener listener;
+
+        public Request() {
+            this(null);
+        }
+
+        public Request(A2AClientService.StreamListener listener) {
+            this.listener = listener;
+        }
+
+        public CompletableFuture<String> getFuture() {
+            return future;
+        }
+    }
+}
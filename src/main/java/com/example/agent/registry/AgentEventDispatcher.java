@@ -0,0 +1,171 @@
+package com.example.agent.registry;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Delivers agent change events to listeners off the thread reading Redis.
+ *
+ * Events are striped over a fixed set of worker threads by agent ID, so events for
+ * the same agent are always handled in order while different agents proceed in
+ * parallel. Each stripe has a bounded queue; what happens when it is full is set
+ * explicitly by {@link Backpressure}.
+ */
+public class AgentEventDispatcher {
+
+    private static final Logger LOGGER = Logger.getLogger(AgentEventDispatcher.class.getName());
+
+    /**
+     * Behaviour when a stripe's queue is full
+     */
+    public enum Backpressure {
+        BLOCK,  // Block the publishing thread until space frees up; no events are lost
+        DROP    // Discard the new event and count it as dropped
+    }
+
+    private final List<Stripe> stripes;
+    private final Backpressure backpressure;
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private volatile boolean closed;
+
+    public AgentEventDispatcher() {
+        this(4, 1000, Backpressure.BLOCK);
+    }
+
+    public AgentEventDispatcher(int workers, int queueCapacity, Backpressure backpressure) {
+        this.backpressure = backpressure;
+        this.stripes = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            Stripe stripe = new Stripe(queueCapacity);
+            Thread thread = new Thread(stripe, "agent-events-" + i);
+            thread.setDaemon(true);
+            stripe.thread = thread;
+            stripes.add(stripe);
+            thread.start();
+        }
+    }
+
+    /**
+     * Queue an event for the given listeners
+     */
+    public void dispatch(String eventType, String agentId, List<AgentRegistry.AgentChangeListener> listeners) {
+        if (closed || listeners.isEmpty()) {
+            return;
+        }
+
+        Event event = new Event(eventType, agentId, listeners, System.currentTimeMillis());
+        Stripe stripe = stripes.get(Math.floorMod(agentId.hashCode(), stripes.size()));
+
+        if (backpressure == Backpressure.BLOCK) {
+            try {
+                stripe.queue.put(event);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropped.incrementAndGet();
+                return;
+            }
+        } else if (!stripe.queue.offer(event)) {
+            long total = dropped.incrementAndGet();
+            LOGGER.warning("Agent event queue full, dropped " + eventType + " for " + agentId
+                + " (" + total + " dropped so far)");
+            return;
+        }
+        enqueued.incrementAndGet();
+    }
+
+    /**
+     * Number of events waiting across all stripes
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Stripe stripe : stripes) {
+            depth += stripe.queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Queue depth, lag and throughput counters
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workers", stripes.size());
+        stats.put("backpressure", backpressure.name());
+        stats.put("queue_depth", getQueueDepth());
+        stats.put("enqueued", enqueued.get());
+        stats.put("dispatched", dispatched.get());
+        stats.put("dropped", dropped.get());
+        stats.put("listener_failures", failed.get());
+        stats.put("last_lag_ms", lastLagMillis.get());
+        stats.put("max_lag_ms", maxLagMillis.get());
+        return stats;
+    }
+
+    /**
+     * Stop the workers; queued events are discarded
+     */
+    public void close() {
+        closed = true;
+        for (Stripe stripe : stripes) {
+            stripe.thread.interrupt();
+        }
+    }
+
+    private void deliver(Event event) {
+        long lag = System.currentTimeMillis() - event.enqueuedAt;
+        lastLagMillis.set(lag);
+        maxLagMillis.accumulateAndGet(lag, Math::max);
+
+        for (AgentRegistry.AgentChangeListener listener : event.listeners) {
+            try {
+                listener.onAgentChange(event.eventType, event.agentId);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                LOGGER.warning("Listener error: " + e.getMessage());
+            }
+        }
+        dispatched.incrementAndGet();
+    }
+
+    private class Stripe implements Runnable {
+        final BlockingQueue<Event> queue;
+        Thread thread;
+
+        Stripe(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            while (!closed) {
+                try {
+                    deliver(queue.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class Event {
+        final String eventType;
+        final String agentId;
+        final List<AgentRegistry.AgentChangeListener> listeners;
+        final long enqueuedAt;
+
+        Event(String eventType, String agentId, List<AgentRegistry.AgentChangeListener> listeners, long enqueuedAt) {
+            this.eventType = eventType;
+            this.agentId = agentId;
+            this.listeners = listeners;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
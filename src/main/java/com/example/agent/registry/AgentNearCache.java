@@ -0,0 +1,184 @@
+package com.example.agent.registry;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * In-process near-cache of agent metadata kept coherent by registry change events.
+ *
+ * Entries are bounded in number and expire after a TTL as a safety net for missed
+ * events. Every invalidation bumps a generation counter; values loaded from Redis
+ * are only stored if no invalidation happened while they were being fetched, so a
+ * slow reader can never re-insert data that an event has already superseded.
+ *
+ * Entries are held encoded and decoded on every read, so each caller gets its own
+ * instance and changing it (before or instead of writing it back) never affects
+ * what other readers see.
+ */
+public class AgentNearCache {
+
+    private static final Logger LOGGER = Logger.getLogger(AgentNearCache.class.getName());
+
+    private final Cache<String, byte[]> entries;
+    private final RegistryCodec codec;
+    private final long ttlMillis;
+    private final Object lock = new Object();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+
+    // Guarded by lock
+    private long generation;
+    private Set<String> agentIds;
+    private long agentIdsLoadedAt;
+
+    public AgentNearCache(long maxSize, Duration ttl, RegistryCodec codec) {
+        this.ttlMillis = ttl.toMillis();
+        this.codec = codec;
+        this.entries = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Current generation; capture before reading from Redis and pass to put methods
+     */
+    public long generation() {
+        synchronized (lock) {
+            return generation;
+        }
+    }
+
+    /**
+     * Get a cached agent, or null on miss
+     */
+    public AgentMetadata get(String agentId) {
+        byte[] value = entries.getIfPresent(agentId);
+        return value != null ? decode(agentId, value) : null;
+    }
+
+    /**
+     * Get all cached agents among the given IDs
+     */
+    public Map<String, AgentMetadata> getAll(Collection<String> agentIds) {
+        Map<String, AgentMetadata> agents = new HashMap<>();
+        for (Map.Entry<String, byte[]> entry : entries.getAllPresent(agentIds).entrySet()) {
+            AgentMetadata metadata = decode(entry.getKey(), entry.getValue());
+            if (metadata != null) {
+                agents.put(entry.getKey(), metadata);
+            }
+        }
+        return agents;
+    }
+
+    /**
+     * Cache an agent loaded at the given generation
+     */
+    public void put(long loadedGeneration, AgentMetadata metadata) {
+        putAll(loadedGeneration, List.of(metadata));
+    }
+
+    /**
+     * Cache a batch of agents loaded at the given generation
+     */
+    public void putAll(long loadedGeneration, Collection<AgentMetadata> agents) {
+        // Encoded outside the lock; the generation check below still decides
+        Map<String, byte[]> encoded = new HashMap<>();
+        for (AgentMetadata metadata : agents) {
+            try {
+                encoded.put(metadata.getAgentId(), codec.encode(metadata));
+            } catch (IOException e) {
+                LOGGER.warning("Not caching agent " + metadata.getAgentId() + ": " + e.getMessage());
+            }
+        }
+        synchronized (lock) {
+            if (loadedGeneration == generation) {
+                entries.putAll(encoded);
+            }
+        }
+    }
+
+    /**
+     * Get the cached set of registered agent IDs, or null if absent or expired
+     */
+    public Set<String> getAgentIds() {
+        synchronized (lock) {
+            if (agentIds == null || System.currentTimeMillis() - agentIdsLoadedAt > ttlMillis) {
+                return null;
+            }
+            return agentIds;
+        }
+    }
+
+    /**
+     * Cache the set of registered agent IDs loaded at the given generation
+     */
+    public void putAgentIds(long loadedGeneration, Set<String> ids) {
+        synchronized (lock) {
+            if (loadedGeneration == generation) {
+                agentIds = Collections.unmodifiableSet(new LinkedHashSet<>(ids));
+                agentIdsLoadedAt = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * Drop a single agent; also drop the ID set when registry membership changed
+     */
+    public void invalidate(String agentId, boolean membershipChanged) {
+        synchronized (lock) {
+            generation++;
+            entries.invalidate(agentId);
+            if (membershipChanged) {
+                agentIds = null;
+            }
+        }
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * Drop everything, e.g. after the change subscription was interrupted
+     */
+    public void invalidateAll() {
+        synchronized (lock) {
+            generation++;
+            entries.invalidateAll();
+            agentIds = null;
+        }
+        resyncs.incrementAndGet();
+    }
+
+    private AgentMetadata decode(String agentId, byte[] value) {
+        try {
+            return codec.decode(value, AgentMetadata.class);
+        } catch (IOException e) {
+            entries.invalidate(agentId);
+            LOGGER.warning("Dropped unreadable cached agent " + agentId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Hit/miss/eviction counters and current size
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = entries.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", entries.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hit_rate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("invalidations", invalidations.get());
+        result.put("resyncs", resyncs.get());
+        return result;
+    }
+}
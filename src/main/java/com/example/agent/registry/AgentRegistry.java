@@ -1,46 +1,72 @@
 package com.example.agent.registry;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.JedisPoolConfig;
-import redis.clients.jedis.JedisPubSub;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
- * Central registry for managing agent metadata with Redis backend.
- * Provides CRUD operations and pub/sub notifications for agent changes.
+ * Central registry for managing agent metadata on a {@link RegistryStore}.
+ * Provides CRUD operations and change notifications from the store's change feed.
  */
 public class AgentRegistry {
     
     private static final Logger LOGGER = Logger.getLogger(AgentRegistry.class.getName());
-    private static final String AGENT_KEY_PREFIX = "agent:";
-    private static final String AGENT_LIST_KEY = "agents:list";
-    private static final String AGENT_UPDATES_CHANNEL = "agent:updates";
+    // Agents are indexed by capability and carry a change feed (agents:changes on Redis)
+    private static final RegistryNamespace NAMESPACE = RegistryNamespace.AGENTS;
     
-    private final JedisPool jedisPool;
-    private final ObjectMapper objectMapper;
+    // Below this many payloads, sequential deserialization is cheaper than fork/join
+    private static final int PARALLEL_DECODE_THRESHOLD = 64;
+    
+    private static final long DEFAULT_CACHE_MAX_SIZE = 10_000;
+    private static final Duration DEFAULT_CACHE_TTL = Duration.ofMinutes(5);
+    
+    private final RegistryStore store;
+    private final RegistryCodec codec;
     private final Map<String, List<AgentChangeListener>> listeners;
+    private final AgentNearCache cache;
+    private final AgentEventDispatcher dispatcher;
+    private final RegistryStore.ChangeFeed changeFeed;
     
-    public AgentRegistry() {
-        this("localhost", 6379);
+    public AgentRegistry(RegistryStore store) {
+        this(store, new RegistryCodec(), DEFAULT_CACHE_MAX_SIZE, DEFAULT_CACHE_TTL, new AgentEventDispatcher(),
+            RedisChangeFeed.defaultNodeId());
     }
     
-    public AgentRegistry(String host, int port) {
-        JedisPoolConfig poolConfig = new JedisPoolConfig();
-        poolConfig.setMaxTotal(20);
-        poolConfig.setMaxIdle(10);
-        poolConfig.setMinIdle(5);
-        
-        this.jedisPool = new JedisPool(poolConfig, host, port);
-        this.objectMapper = new ObjectMapper();
+    public AgentRegistry(RegistryStore store, RegistryCodec codec, long cacheMaxSize, Duration cacheTtl,
+                         AgentEventDispatcher dispatcher, String nodeId) {
+        this.store = store;
+        this.codec = codec;
         this.listeners = new ConcurrentHashMap<>();
+        this.cache = new AgentNearCache(cacheMaxSize, cacheTtl, codec);
+        this.dispatcher = dispatcher;
+        this.changeFeed = store.openChangeFeed(NAMESPACE, nodeId, new RegistryStore.ChangeHandler() {
+            @Override
+            public void onChange(String eventType, String agentId) {
+                cache.invalidate(agentId, !"UPDATED".equals(eventType));
+                notifyListeners(eventType, agentId);
+            }
+            
+            @Override
+            public void onResync() {
+                resyncCache();
+            }
+        });
         
-        // Start pub/sub listener in background thread
-        startPubSubListener();
+        try {
+            ensureIndexes();
+        } catch (Exception e) {
+            LOGGER.severe("Failed to build agent indexes: " + e.getMessage());
+        }
+        
+        // Start consuming change events in the background
+        changeFeed.start();
     }
     
     /**
@@ -59,74 +85,169 @@ public class AgentRegistry {
             metadata.setStatus(AgentMetadata.AgentStatus.ACTIVE);
         }
         
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = AGENT_KEY_PREFIX + metadata.getAgentId();
-            String json = objectMapper.writeValueAsString(metadata);
-            
-            jedis.set(key, json);
-            jedis.sadd(AGENT_LIST_KEY, metadata.getAgentId());
-            
-            // Publish agent registration event
-            publishAgentChange("REGISTERED", metadata.getAgentId());
-            
-            LOGGER.info("Registered agent: " + metadata.getName() + " (ID: " + metadata.getAgentId() + ")");
-            return metadata;
-        }
+        putAgent(metadata, RegistryStore.WriteMode.UPSERT, "REGISTERED");
+        cache.invalidate(metadata.getAgentId(), true);
+        
+        LOGGER.info("Registered agent: " + metadata.getName() + " (ID: " + metadata.getAgentId() + ")");
+        return metadata;
     }
     
     /**
      * Get agent metadata by ID
      */
     public Optional<AgentMetadata> getAgent(String agentId) throws Exception {
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = AGENT_KEY_PREFIX + agentId;
-            String json = jedis.get(key);
-            
-            if (json == null) {
-                return Optional.empty();
-            }
-            
-            AgentMetadata metadata = objectMapper.readValue(json, AgentMetadata.class);
-            return Optional.of(metadata);
+        AgentMetadata cached = cache.get(agentId);
+        if (cached != null) {
+            return Optional.of(cached);
         }
+        
+        long generation = cache.generation();
+        byte[] value = store.get(NAMESPACE, agentId);
+        if (value == null) {
+            return Optional.empty();
+        }
+        
+        AgentMetadata metadata = codec.decode(value, AgentMetadata.class);
+        cache.put(generation, metadata);
+        return Optional.of(metadata);
     }
     
     /**
      * Get all registered agents
      */
     public List<AgentMetadata> getAllAgents() throws Exception {
-        try (Jedis jedis = jedisPool.getResource()) {
-            Set<String> agentIds = jedis.smembers(AGENT_LIST_KEY);
-            List<AgentMetadata> agents = new ArrayList<>();
-            
+        Set<String> agentIds = cache.getAgentIds();
+        if (agentIds == null) {
+            long generation = cache.generation();
+            agentIds = store.ids(NAMESPACE);
+            cache.putAgentIds(generation, agentIds);
+        }
+        return getAgents(agentIds);
+    }
+    
+    /**
+     * Get the number of registered agents without loading their metadata
+     */
+    public long getAgentCount() {
+        Set<String> agentIds = cache.getAgentIds();
+        if (agentIds != null) {
+            return agentIds.size();
+        }
+        return store.count(NAMESPACE);
+    }
+    
+    /**
+     * Get metadata for several agents at once.
+     * Agents are served from the near-cache where possible; the rest are fetched in
+     * bulk from the store. IDs without a stored value are skipped, and the result
+     * preserves the iteration order of {@code agentIds}.
+     */
+    public List<AgentMetadata> getAgents(Collection<String> agentIds) throws Exception {
+        Map<String, AgentMetadata> cached = cache.getAll(agentIds);
+        Map<String, AgentMetadata> fetched = Collections.emptyMap();
+        
+        if (cached.size() < agentIds.size()) {
+            List<String> missing = new ArrayList<>(agentIds.size() - cached.size());
             for (String agentId : agentIds) {
-                Optional<AgentMetadata> agent = getAgent(agentId);
-                agent.ifPresent(agents::add);
+                if (!cached.containsKey(agentId)) {
+                    missing.add(agentId);
+                }
             }
             
-            return agents;
+            long generation = cache.generation();
+            List<AgentMetadata> loaded = fetchAgents(missing);
+            cache.putAll(generation, loaded);
+            
+            fetched = new HashMap<>();
+            for (AgentMetadata metadata : loaded) {
+                fetched.put(metadata.getAgentId(), metadata);
+            }
+        }
+        
+        List<AgentMetadata> agents = new ArrayList<>(agentIds.size());
+        for (String agentId : agentIds) {
+            AgentMetadata metadata = cached.getOrDefault(agentId, fetched.get(agentId));
+            if (metadata != null) {
+                agents.add(metadata);
+            }
         }
+        return agents;
     }
     
     /**
-     * Find agents by capability
+     * Fetch agents straight from the store in one bulk read
      */
-    public List<AgentMetadata> findAgentsByCapability(String capability) throws Exception {
-        List<AgentMetadata> allAgents = getAllAgents();
-        List<AgentMetadata> matchingAgents = new ArrayList<>();
-        
-        for (AgentMetadata agent : allAgents) {
-            if (agent.getCapabilities() != null && 
-                agent.getCapabilities().contains(capability)) {
-                matchingAgents.add(agent);
+    private List<AgentMetadata> fetchAgents(List<String> agentIds) throws Exception {
+        List<byte[]> payloads = new ArrayList<>(agentIds.size());
+        for (byte[] value : store.getAll(NAMESPACE, agentIds)) {
+            if (value != null) {
+                payloads.add(value);
             }
         }
+        return decodeAgents(payloads);
+    }
+    
+    /**
+     * Deserialize agent payloads, in parallel for large batches
+     */
+    private List<AgentMetadata> decodeAgents(List<byte[]> payloads) throws Exception {
+        Stream<byte[]> stream = payloads.size() >= PARALLEL_DECODE_THRESHOLD
+            ? payloads.parallelStream()
+            : payloads.stream();
         
-        return matchingAgents;
+        try {
+            return stream
+                .map(value -> {
+                    try {
+                        return codec.decode(value, AgentMetadata.class);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .collect(Collectors.toCollection(ArrayList::new));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
     
     /**
-     * Update agent metadata
+     * List one page of agents; pass the returned next_cursor to continue
+     */
+    public RegistryPage<AgentMetadata> listAgents(String cursor, int limit) throws Exception {
+        RegistryPage<String> ids = store.scan(NAMESPACE, cursor, limit);
+        return new RegistryPage<>(getAgents(ids.getItems()), ids.getNextCursor());
+    }
+    
+    /**
+     * Get agents updated or deleted after the given position (see {@link RegistryDelta})
+     */
+    public RegistryDelta<AgentMetadata> getAgentsChangedSince(RegistryListings.DeltaPosition since, int limit) throws Exception {
+        RegistryListings.ChangedIds changed = store.changedSince(NAMESPACE, since, limit);
+        return new RegistryDelta<>(getAgents(changed.updated), changed.deleted, changed.asOf,
+            changed.next.toString(), changed.resyncRequired);
+    }
+    
+    /**
+     * Find agents by capability using the store's capability index
+     */
+    public List<AgentMetadata> findAgentsByCapability(String capability) throws Exception {
+        return getAgents(store.findByTerms(NAMESPACE, List.of(capability), true));
+    }
+    
+    /**
+     * Find agents having all or any of the given capabilities
+     */
+    public List<AgentMetadata> findAgentsByCapabilities(Collection<String> capabilities, boolean matchAll) throws Exception {
+        if (capabilities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return getAgents(store.findByTerms(NAMESPACE, capabilities, matchAll));
+    }
+    
+    /**
+     * Update agent metadata.
+     * The existing record is normally served by the near-cache; the write itself
+     * re-checks existence atomically in the store.
      */
     public AgentMetadata updateAgent(String agentId, AgentMetadata metadata) throws Exception {
         Optional<AgentMetadata> existing = getAgent(agentId);
@@ -138,102 +259,134 @@ public class AgentRegistry {
         metadata.setCreatedAt(existing.get().getCreatedAt());
         metadata.setUpdatedAt(System.currentTimeMillis());
         
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = AGENT_KEY_PREFIX + agentId;
-            String json = objectMapper.writeValueAsString(metadata);
-            jedis.set(key, json);
-            
-            publishAgentChange("UPDATED", agentId);
-            
-            LOGGER.info("Updated agent: " + agentId);
-            return metadata;
+        boolean written = putAgent(metadata, RegistryStore.WriteMode.UPDATE, "UPDATED");
+        cache.invalidate(agentId, false);
+        if (!written) {
+            throw new IllegalArgumentException("Agent not found: " + agentId);
         }
+        
+        LOGGER.info("Updated agent: " + agentId);
+        return metadata;
     }
     
     /**
      * Unregister an agent
      */
     public boolean unregisterAgent(String agentId) throws Exception {
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = AGENT_KEY_PREFIX + agentId;
-            Long deleted = jedis.del(key);
-            jedis.srem(AGENT_LIST_KEY, agentId);
-            
-            if (deleted > 0) {
-                publishAgentChange("UNREGISTERED", agentId);
-                LOGGER.info("Unregistered agent: " + agentId);
-                return true;
+        boolean deleted = store.delete(NAMESPACE, agentId, System.currentTimeMillis(), "UNREGISTERED");
+        cache.invalidate(agentId, true);
+        
+        if (deleted) {
+            LOGGER.info("Unregistered agent: " + agentId);
+            return true;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Write an agent with its capability index entries and change event in one atomic store call.
+     * Returns false if an UPDATE targeted an agent that no longer exists.
+     */
+    private boolean putAgent(AgentMetadata metadata, RegistryStore.WriteMode mode, String eventType) throws Exception {
+        RegistryStore.Record record = new RegistryStore.Record(
+            metadata.getAgentId(),
+            codec.encode(metadata),
+            metadata.getUpdatedAt(),
+            capabilitiesOf(metadata));
+        return store.put(NAMESPACE, record, mode, eventType);
+    }
+    
+    /**
+     * Distinct, non-blank capabilities declared by an agent
+     */
+    private static Set<String> capabilitiesOf(AgentMetadata metadata) {
+        Set<String> capabilities = new LinkedHashSet<>();
+        if (metadata.getCapabilities() != null) {
+            for (String capability : metadata.getCapabilities()) {
+                if (capability != null && !capability.isBlank()) {
+                    capabilities.add(capability);
+                }
             }
-            
-            return false;
         }
+        return capabilities;
     }
     
     /**
-     * Publish agent change event
+     * Build the capability and updatedAt indexes for agents registered before they existed
      */
-    private void publishAgentChange(String eventType, String agentId) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            String message = eventType + ":" + agentId;
-            jedis.publish(AGENT_UPDATES_CHANNEL, message);
+    private void ensureIndexes() throws Exception {
+        if (!store.needsIndexRebuild(NAMESPACE)) {
+            return;
         }
+        
+        List<RegistryStore.Record> records = new ArrayList<>();
+        for (AgentMetadata agent : fetchAgents(new ArrayList<>(store.ids(NAMESPACE)))) {
+            records.add(new RegistryStore.Record(agent.getAgentId(), null, agent.getUpdatedAt(), capabilitiesOf(agent)));
+        }
+        store.rebuildIndexes(NAMESPACE, records);
+        LOGGER.info("Rebuilt capability and updatedAt indexes for " + records.size() + " agents");
     }
     
     /**
-     * Start pub/sub listener for agent changes
+     * Drop all cached entries and reload the full registry
      */
-    private void startPubSubListener() {
-        Thread listenerThread = new Thread(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
-                jedis.subscribe(new JedisPubSub() {
-                    @Override
-                    public void onMessage(String channel, String message) {
-                        String[] parts = message.split(":", 2);
-                        if (parts.length == 2) {
-                            String eventType = parts[0];
-                            String agentId = parts[1];
-                            notifyListeners(eventType, agentId);
-                        }
-                    }
-                }, AGENT_UPDATES_CHANNEL);
-            } catch (Exception e) {
-                LOGGER.severe("PubSub listener error: " + e.getMessage());
-            }
-        });
-        listenerThread.setDaemon(true);
-        listenerThread.start();
+    private void resyncCache() {
+        cache.invalidateAll();
+        try {
+            int count = getAllAgents().size();
+            LOGGER.info("Agent near-cache resynced with " + count + " agents");
+        } catch (Exception e) {
+            LOGGER.warning("Agent near-cache resync failed: " + e.getMessage());
+        }
     }
     
     /**
-     * Add a listener for agent changes
+     * Near-cache hit/miss/eviction counters
+     */
+    public Map<String, Object> getCacheStats() {
+        return cache.getStats();
+    }
+    
+    /**
+     * Change stream consumer group and replay counters
+     */
+    public Map<String, Object> getChangeFeedStats() {
+        return changeFeed.getStats();
+    }
+    
+    /**
+     * Listener dispatch queue depth, lag and drop counters
+     */
+    public Map<String, Object> getDispatcherStats() {
+        return dispatcher.getStats();
+    }
+    
+    /**
+     * Add a listener for agent changes.
+     * Safe to call at any time; listeners run on the dispatcher's worker threads,
+     * in order for any single agent.
      */
     public void addChangeListener(String eventType, AgentChangeListener listener) {
-        listeners.computeIfAbsent(eventType, k -> new ArrayList<>()).add(listener);
+        listeners.computeIfAbsent(eventType, k -> new CopyOnWriteArrayList<>()).add(listener);
     }
     
     /**
-     * Notify listeners of agent changes
+     * Hand an agent change to the dispatcher so the feed thread never runs listener code
      */
     private void notifyListeners(String eventType, String agentId) {
         List<AgentChangeListener> typeListeners = listeners.get(eventType);
         if (typeListeners != null) {
-            for (AgentChangeListener listener : typeListeners) {
-                try {
-                    listener.onAgentChange(eventType, agentId);
-                } catch (Exception e) {
-                    LOGGER.warning("Listener error: " + e.getMessage());
-                }
-            }
+            dispatcher.dispatch(eventType, agentId, typeListeners);
         }
     }
     
     /**
-     * Close the registry and release resources
+     * Stop change processing; the store is owned and closed by the caller
      */
     public void close() {
-        if (jedisPool != null) {
-            jedisPool.close();
-        }
+        changeFeed.close();
+        dispatcher.close();
     }
     
     /**
@@ -8,7 +8,10 @@ import org.eclipse.jetty.servlets.CrossOriginFilter;
 
 import javax.servlet.DispatcherType;
 import javax.servlet.FilterRegistration;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.EnumSet;
+import java.util.List;
 
 /**
  * Dropwizard application for the Agent Registry service.
@@ -34,33 +37,84 @@ public class AgentRegistryApplication extends Application<AgentRegistryConfigura
     @Override
     public void run(AgentRegistryConfiguration configuration, Environment environment) {
         // Create core components
+        final RegistryStore store = createStore(configuration, environment);
+        final RegistryCodec codec = new RegistryCodec(configuration.getRegistryValueFormat());
         final AgentRegistry registry = new AgentRegistry(
-            configuration.getRedisHost(), 
-            configuration.getRedisPort()
-        );
-        final ToolRegistry toolRegistry = new ToolRegistry(
-            configuration.getRedisHost(),
-            configuration.getRedisPort()
-        );
-        final CallbackRegistry callbackRegistry = new CallbackRegistry(
-            configuration.getRedisHost(),
-            configuration.getRedisPort()
+            store,
+            codec,
+            configuration.getAgentCacheMaxSize(),
+            Duration.ofSeconds(configuration.getAgentCacheTtlSeconds()),
+            new AgentEventDispatcher(
+                configuration.getAgentEventWorkers(),
+                configuration.getAgentEventQueueCapacity(),
+                configuration.getAgentEventBackpressure()),
+            configuration.getNodeId() != null ? configuration.getNodeId() : RedisChangeFeed.defaultNodeId()
         );
+        final MCPSessionPool mcpSessions = new MCPSessionPool(
+            configuration.getMcpMaxSessions(),
+            Duration.ofSeconds(configuration.getMcpSessionIdleTimeoutSeconds()),
+            Duration.ofSeconds(configuration.getMcpSessionValidateAfterSeconds()),
+            new MCPProcessPool(
+                configuration.getMcpStdioMinProcesses(),
+                configuration.getMcpStdioMaxProcesses(),
+                configuration.getMcpStdioMaxConcurrentRequests(),
+                Duration.ofSeconds(configuration.getMcpStdioIdleTimeoutSeconds()),
+                Duration.ofSeconds(configuration.getMcpSessionValidateAfterSeconds()),
+                Duration.ofMillis(configuration.getMcpStdioMaxWaitMillis())));
+        final MCPDiscoveryService mcpDiscovery = new MCPDiscoveryService(mcpSessions,
+            Duration.ofSeconds(configuration.getMcpRequestTimeoutSeconds()));
+        final MCPToolResultCache toolResultCache = new MCPToolResultCache(
+            configuration.getMcpToolResultCacheMaxEntries(),
+            configuration.isMcpToolResultCacheShared() && store instanceof RedisRegistryStore
+                ? ((RedisRegistryStore) store).getConnections() : null,
+            codec,
+            environment.metrics());
+        final MCPToolGateway mcpGateway = new MCPToolGateway(mcpSessions, toolResultCache,
+            Duration.ofSeconds(configuration.getMcpRequestTimeoutSeconds()),
+            configuration.getMcpToolCallMaxConcurrentPerServer(),
+            configuration.getMcpToolCallThreads(),
+            environment.metrics());
+        final MCPCatalogCache mcpCatalog = new MCPCatalogCache(
+            mcpDiscovery::discoverSse,
+            mcpDiscovery::isSubscribed,
+            Duration.ofSeconds(configuration.getMcpCatalogRefreshSeconds()),
+            Duration.ofSeconds(configuration.getMcpCatalogPushedRefreshSeconds()),
+            configuration.getMcpCatalogRefreshThreads(),
+            environment.metrics());
+        mcpDiscovery.addListener(mcpCatalog::update);
+        final MCPHealthMonitor mcpHealth = new MCPHealthMonitor(store, codec, mcpDiscovery::ping,
+            Duration.ofSeconds(configuration.getMcpHealthCheckIntervalSeconds()),
+            Duration.ofSeconds(configuration.getMcpHealthCheckMaxBackoffSeconds()),
+            configuration.getMcpCatalogRefreshThreads(),
+            environment.metrics());
+        // Hold sessions open to registered servers so they can push tool changes
+        mcpHealth.addListener(mcpDiscovery::subscribe);
+        final ToolRegistry toolRegistry = new ToolRegistry(store, codec, mcpCatalog, mcpHealth, mcpGateway,
+            Duration.ofMillis(configuration.getMcpEnrichmentDeadlineMillis()));
+        final CallbackRegistry callbackRegistry = new CallbackRegistry(store, codec);
         final DynamicAgentLoader loader = new DynamicAgentLoader(registry);
         final RegistryAwareRouter router = new RegistryAwareRouter(registry, loader);
-        final A2AClientService a2aClientService = new A2AClientService(
-            configuration.getRedisHost(),
-            configuration.getRedisPort()
-        );
+        final A2AClientService a2aClientService = new A2AClientService(store, codec,
+            configuration.getA2aMaxConcurrentRequestsPerAgent(), configuration.getA2aReconnectThreads(),
+            Duration.ofSeconds(configuration.getA2aReconnectTimeoutSeconds()));
+        final RegistryValueMigration valueMigration = new RegistryValueMigration(store, codec, List.of(
+            RegistryNamespace.AGENTS, RegistryNamespace.TOOLS, RegistryNamespace.CALLBACKS, RegistryNamespace.A2A_AGENTS));
+        
+        // Resource methods that wait on MCP servers or A2A agents run here, not on Jetty's threads
+        final UpstreamExecutor upstream = new UpstreamExecutor(
+            configuration.getUpstreamThreads(),
+            configuration.getUpstreamQueueSize(),
+            Duration.ofSeconds(configuration.getUpstreamTimeoutSeconds()),
+            environment.metrics());
         
         // Register resources
         final RootRedirectResource rootRedirect = new RootRedirectResource();
         final AgentRegistryResource agentResource = new AgentRegistryResource(registry, loader, router);
-        final ToolRegistryResource toolResource = new ToolRegistryResource(toolRegistry);
+        final ToolRegistryResource toolResource = new ToolRegistryResource(toolRegistry, upstream);
         final CallbackRegistryResource callbackResource = new CallbackRegistryResource(callbackRegistry);
-        final MCPDiscoveryResource mcpDiscoveryResource = new MCPDiscoveryResource();
+        final MCPDiscoveryResource mcpDiscoveryResource = new MCPDiscoveryResource(mcpDiscovery, upstream);
         final AgentGeneratorResource generatorResource = new AgentGeneratorResource(toolRegistry, a2aClientService);
-        final A2AAgentResource a2aAgentResource = new A2AAgentResource(a2aClientService);
+        final A2AAgentResource a2aAgentResource = new A2AAgentResource(a2aClientService, upstream);
         environment.jersey().register(rootRedirect);
         environment.jersey().register(agentResource);
         environment.jersey().register(toolResource);
@@ -76,18 +130,59 @@ public class AgentRegistryApplication extends Application<AgentRegistryConfigura
         environment.lifecycle().manage(new io.dropwizard.lifecycle.Managed() {
             @Override
             public void start() {
-                // Already started
+                valueMigration.start();
             }
             
             @Override
             public void stop() {
+                upstream.close();
+                valueMigration.close();
                 registry.close();
                 toolRegistry.close();
                 callbackRegistry.close();
                 a2aClientService.close();
+                mcpDiscovery.close();
+                store.close();
             }
         });
     }
+    
+    /**
+     * Build the configured registry store: shared Redis, or an embedded log for single-node use.
+     * The Redis pool reports its gauges and command timers to the environment's metrics.
+     */
+    private RegistryStore createStore(AgentRegistryConfiguration configuration, Environment environment) {
+        if (configuration.getRegistryBackend() == RegistryStore.Backend.EMBEDDED) {
+            return new EmbeddedRegistryStore(Paths.get(configuration.getEmbeddedStorePath()));
+        }
+
+        final RedisConnections redis = new RedisConnections(
+            configuration.getRedisHost(),
+            configuration.getRedisPort(),
+            configuration.getRedisPoolMaxTotal(),
+            configuration.getRedisPoolMaxIdle(),
+            configuration.getRedisPoolMinIdle(),
+            Duration.ofMillis(configuration.getRedisPoolMaxWaitMillis()),
+            Duration.ofMillis(configuration.getRedisConnectTimeoutMillis()),
+            Duration.ofMillis(configuration.getRedisSocketTimeoutMillis()),
+            environment.metrics());
+        environment.lifecycle().manage(new io.dropwizard.lifecycle.Managed() {
+            @Override
+            public void start() {
+                // Connections are opened lazily by the pool
+            }
+
+            @Override
+            public void stop() {
+                redis.close();
+            }
+        });
+        return new RedisRegistryStore(
+            redis,
+            configuration.getAgentChangeStreamMaxLength(),
+            Duration.ofHours(configuration.getAgentChangeStreamRetentionHours()));
+    }
+
     private void configureCors(Environment environment) {
         final FilterRegistration.Dynamic cors = environment.servlets()
             .addFilter("CORS", CrossOriginFilter.class);
@@ -2,7 +2,9 @@ package com.example.agent.registry;
 
 import io.dropwizard.core.Configuration;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
 
 /**
  * Dropwizard configuration for the Agent Registry application.
@@ -16,6 +18,194 @@ public class AgentRegistryConfiguration extends Configuration {
     @JsonProperty
     private int redisPort = 6379;
     
+    // Shared connection pool used by every Redis-backed component
+    @Min(1)
+    @JsonProperty
+    private int redisPoolMaxTotal = 50;
+    
+    @Min(0)
+    @JsonProperty
+    private int redisPoolMaxIdle = 10;
+    
+    @Min(0)
+    @JsonProperty
+    private int redisPoolMinIdle = 5;
+    
+    // How long a caller waits for a free connection before failing
+    @Min(1)
+    @JsonProperty
+    private long redisPoolMaxWaitMillis = 2000;
+    
+    @Min(1)
+    @JsonProperty
+    private int redisConnectTimeoutMillis = 2000;
+    
+    @Min(1)
+    @JsonProperty
+    private int redisSocketTimeoutMillis = 2000;
+    
+    @NotNull
+    @JsonProperty
+    private RegistryStore.Backend registryBackend = RegistryStore.Backend.REDIS;
+    
+    // Encoding for new registry values; existing values are re-encoded in the background
+    @NotNull
+    @JsonProperty
+    private RegistryCodec.Format registryValueFormat = RegistryCodec.Format.SMILE;
+    
+    // Log directory for the EMBEDDED backend
+    @NotEmpty
+    @JsonProperty
+    private String embeddedStorePath = "data/registry";
+    
+    @Min(1)
+    @JsonProperty
+    private long agentCacheMaxSize = 10_000;
+    
+    @Min(1)
+    @JsonProperty
+    private long agentCacheTtlSeconds = 300;
+    
+    @Min(1)
+    @JsonProperty
+    private int agentEventWorkers = 4;
+    
+    @Min(1)
+    @JsonProperty
+    private int agentEventQueueCapacity = 1000;
+    
+    @NotNull
+    @JsonProperty
+    private AgentEventDispatcher.Backpressure agentEventBackpressure = AgentEventDispatcher.Backpressure.BLOCK;
+    
+    // Long-lived MCP client sessions, one per server
+    @Min(1)
+    @JsonProperty
+    private int mcpMaxSessions = 32;
+    
+    @Min(1)
+    @JsonProperty
+    private long mcpSessionIdleTimeoutSeconds = 300;
+    
+    // Sessions idle longer than this are pinged before reuse
+    @Min(1)
+    @JsonProperty
+    private long mcpSessionValidateAfterSeconds = 30;
+    
+    // Warm processes kept per stdio MCP server (command, args and environment)
+    @Min(0)
+    @JsonProperty
+    private int mcpStdioMinProcesses = 1;
+    
+    @Min(1)
+    @JsonProperty
+    private int mcpStdioMaxProcesses = 4;
+    
+    // Calls one stdio process handles at once
+    @Min(1)
+    @JsonProperty
+    private int mcpStdioMaxConcurrentRequests = 4;
+    
+    @Min(1)
+    @JsonProperty
+    private long mcpStdioIdleTimeoutSeconds = 300;
+    
+    @Min(0)
+    @JsonProperty
+    private long mcpStdioMaxWaitMillis = 5000;
+    
+    // How often each MCP server's tool catalog is re-fetched in the background (+/- 20% jitter)
+    @Min(1)
+    @JsonProperty
+    private long mcpCatalogRefreshSeconds = 60;
+    
+    // Safety-net refresh interval for servers that push tool change notifications
+    @Min(1)
+    @JsonProperty
+    private long mcpCatalogPushedRefreshSeconds = 900;
+    
+    // Concurrent catalog fetches across servers
+    @Min(1)
+    @JsonProperty
+    private int mcpCatalogRefreshThreads = 8;
+    
+    // Per-server bound on connecting to an MCP server and on each request
+    @Min(1)
+    @JsonProperty
+    private long mcpRequestTimeoutSeconds = 10;
+    
+    // How long a tool listing waits for servers never fetched before; the rest are returned stale
+    @Min(0)
+    @JsonProperty
+    private long mcpEnrichmentDeadlineMillis = 2000;
+    
+    @Min(1)
+    @JsonProperty
+    private long mcpHealthCheckIntervalSeconds = 30;
+    
+    @Min(1)
+    @JsonProperty
+    private long mcpHealthCheckMaxBackoffSeconds = 600;
+    
+    // Tool calls through /api/tools/{toolId}/call run on this many threads
+    @Min(1)
+    @JsonProperty
+    private int mcpToolCallThreads = 64;
+    
+    @Min(1)
+    @JsonProperty
+    private int mcpToolCallMaxConcurrentPerServer = 8;
+    
+    @Min(1)
+    @JsonProperty
+    private long mcpToolResultCacheMaxEntries = 10_000;
+    
+    // Also cache tool results in Redis, shared by all nodes (Redis backend only)
+    @JsonProperty
+    private boolean mcpToolResultCacheShared = false;
+    
+    // Messages to one A2A agent in flight at once; more wait for a slot
+    @Min(1)
+    @JsonProperty
+    private int a2aMaxConcurrentRequestsPerAgent = 32;
+    
+    // Stored A2A agents reconnected at once in the background on startup
+    @Min(1)
+    @JsonProperty
+    private int a2aReconnectThreads = 8;
+    
+    // Time one A2A agent may take to return its agent card before it is marked disconnected
+    @Min(1)
+    @JsonProperty
+    private long a2aReconnectTimeoutSeconds = 30;
+    
+    // Requests waiting on MCP servers or A2A agents run on this many threads, off Jetty's
+    @Min(1)
+    @JsonProperty
+    private int upstreamThreads = 128;
+    
+    // Further upstream requests queue up to this many, then get 503
+    @Min(1)
+    @JsonProperty
+    private int upstreamQueueSize = 512;
+    
+    // Upstream requests still running after this get 504
+    @Min(1)
+    @JsonProperty
+    private long upstreamTimeoutSeconds = 90;
+    
+    // Identifies this node's change stream consumer group; defaults to the host name and process ID
+    @JsonProperty
+    private String nodeId;
+    
+    @Min(1)
+    @JsonProperty
+    private long agentChangeStreamMaxLength = 100_000;
+    
+    @Min(1)
+    @JsonProperty
+    private long agentChangeStreamRetentionHours = 24;
+    
     public String getRedisHost() {
         return redisHost;
     }
@@ -31,4 +221,340 @@ public class AgentRegistryConfiguration extends Configuration {
     public void setRedisPort(int redisPort) {
         this.redisPort = redisPort;
     }
+    
+    public int getRedisPoolMaxTotal() {
+        return redisPoolMaxTotal;
+    }
+    
+    public void setRedisPoolMaxTotal(int redisPoolMaxTotal) {
+        this.redisPoolMaxTotal = redisPoolMaxTotal;
+    }
+    
+    public int getRedisPoolMaxIdle() {
+        return redisPoolMaxIdle;
+    }
+    
+    public void setRedisPoolMaxIdle(int redisPoolMaxIdle) {
+        this.redisPoolMaxIdle = redisPoolMaxIdle;
+    }
+    
+    public int getRedisPoolMinIdle() {
+        return redisPoolMinIdle;
+    }
+    
+    public void setRedisPoolMinIdle(int redisPoolMinIdle) {
+        this.redisPoolMinIdle = redisPoolMinIdle;
+    }
+    
+    public long getRedisPoolMaxWaitMillis() {
+        return redisPoolMaxWaitMillis;
+    }
+    
+    public void setRedisPoolMaxWaitMillis(long redisPoolMaxWaitMillis) {
+        this.redisPoolMaxWaitMillis = redisPoolMaxWaitMillis;
+    }
+    
+    public int getRedisConnectTimeoutMillis() {
+        return redisConnectTimeoutMillis;
+    }
+    
+    public void setRedisConnectTimeoutMillis(int redisConnectTimeoutMillis) {
+        this.redisConnectTimeoutMillis = redisConnectTimeoutMillis;
+    }
+    
+    public int getRedisSocketTimeoutMillis() {
+        return redisSocketTimeoutMillis;
+    }
+    
+    public void setRedisSocketTimeoutMillis(int redisSocketTimeoutMillis) {
+        this.redisSocketTimeoutMillis = redisSocketTimeoutMillis;
+    }
+    
+    public RegistryStore.Backend getRegistryBackend() {
+        return registryBackend;
+    }
+    
+    public void setRegistryBackend(RegistryStore.Backend registryBackend) {
+        this.registryBackend = registryBackend;
+    }
+    
+    public RegistryCodec.Format getRegistryValueFormat() {
+        return registryValueFormat;
+    }
+    
+    public void setRegistryValueFormat(RegistryCodec.Format registryValueFormat) {
+        this.registryValueFormat = registryValueFormat;
+    }
+    
+    public String getEmbeddedStorePath() {
+        return embeddedStorePath;
+    }
+    
+    public void setEmbeddedStorePath(String embeddedStorePath) {
+        this.embeddedStorePath = embeddedStorePath;
+    }
+    
+    public long getAgentCacheMaxSize() {
+        return agentCacheMaxSize;
+    }
+    
+    public void setAgentCacheMaxSize(long agentCacheMaxSize) {
+        this.agentCacheMaxSize = agentCacheMaxSize;
+    }
+    
+    public long getAgentCacheTtlSeconds() {
+        return agentCacheTtlSeconds;
+    }
+    
+    public void setAgentCacheTtlSeconds(long agentCacheTtlSeconds) {
+        this.agentCacheTtlSeconds = agentCacheTtlSeconds;
+    }
+    
+    public int getAgentEventWorkers() {
+        return agentEventWorkers;
+    }
+    
+    public void setAgentEventWorkers(int agentEventWorkers) {
+        this.agentEventWorkers = agentEventWorkers;
+    }
+    
+    public int getAgentEventQueueCapacity() {
+        return agentEventQueueCapacity;
+    }
+    
+    public void setAgentEventQueueCapacity(int agentEventQueueCapacity) {
+        this.agentEventQueueCapacity = agentEventQueueCapacity;
+    }
+    
+    public AgentEventDispatcher.Backpressure getAgentEventBackpressure() {
+        return agentEventBackpressure;
+    }
+    
+    public void setAgentEventBackpressure(AgentEventDispatcher.Backpressure agentEventBackpressure) {
+        this.agentEventBackpressure = agentEventBackpressure;
+    }
+    
+    public int getMcpMaxSessions() {
+        return mcpMaxSessions;
+    }
+    
+    public void setMcpMaxSessions(int mcpMaxSessions) {
+        this.mcpMaxSessions = mcpMaxSessions;
+    }
+    
+    public long getMcpSessionIdleTimeoutSeconds() {
+        return mcpSessionIdleTimeoutSeconds;
+    }
+    
+    public void setMcpSessionIdleTimeoutSeconds(long mcpSessionIdleTimeoutSeconds) {
+        this.mcpSessionIdleTimeoutSeconds = mcpSessionIdleTimeoutSeconds;
+    }
+    
+    public long getMcpSessionValidateAfterSeconds() {
+        return mcpSessionValidateAfterSeconds;
+    }
+    
+    public void setMcpSessionValidateAfterSeconds(long mcpSessionValidateAfterSeconds) {
+        this.mcpSessionValidateAfterSeconds = mcpSessionValidateAfterSeconds;
+    }
+    
+    public int getMcpStdioMinProcesses() {
+        return mcpStdioMinProcesses;
+    }
+    
+    public void setMcpStdioMinProcesses(int mcpStdioMinProcesses) {
+        this.mcpStdioMinProcesses = mcpStdioMinProcesses;
+    }
+    
+    public int getMcpStdioMaxProcesses() {
+        return mcpStdioMaxProcesses;
+    }
+    
+    public void setMcpStdioMaxProcesses(int mcpStdioMaxProcesses) {
+        this.mcpStdioMaxProcesses = mcpStdioMaxProcesses;
+    }
+    
+    public int getMcpStdioMaxConcurrentRequests() {
+        return mcpStdioMaxConcurrentRequests;
+    }
+    
+    public void setMcpStdioMaxConcurrentRequests(int mcpStdioMaxConcurrentRequests) {
+        this.mcpStdioMaxConcurrentRequests = mcpStdioMaxConcurrentRequests;
+    }
+    
+    public long getMcpStdioIdleTimeoutSeconds() {
+        return mcpStdioIdleTimeoutSeconds;
+    }
+    
+    public void setMcpStdioIdleTimeoutSeconds(long mcpStdioIdleTimeoutSeconds) {
+        this.mcpStdioIdleTimeoutSeconds = mcpStdioIdleTimeoutSeconds;
+    }
+    
+    public long getMcpStdioMaxWaitMillis() {
+        return mcpStdioMaxWaitMillis;
+    }
+    
+    public void setMcpStdioMaxWaitMillis(long mcpStdioMaxWaitMillis) {
+        this.mcpStdioMaxWaitMillis = mcpStdioMaxWaitMillis;
+    }
+    
+    public long getMcpCatalogRefreshSeconds() {
+        return mcpCatalogRefreshSeconds;
+    }
+    
+    public void setMcpCatalogRefreshSeconds(long mcpCatalogRefreshSeconds) {
+        this.mcpCatalogRefreshSeconds = mcpCatalogRefreshSeconds;
+    }
+    
+    public long getMcpCatalogPushedRefreshSeconds() {
+        return mcpCatalogPushedRefreshSeconds;
+    }
+    
+    public void setMcpCatalogPushedRefreshSeconds(long mcpCatalogPushedRefreshSeconds) {
+        this.mcpCatalogPushedRefreshSeconds = mcpCatalogPushedRefreshSeconds;
+    }
+    
+    public int getMcpCatalogRefreshThreads() {
+        return mcpCatalogRefreshThreads;
+    }
+    
+    public void setMcpCatalogRefreshThreads(int mcpCatalogRefreshThreads) {
+        this.mcpCatalogRefreshThreads = mcpCatalogRefreshThreads;
+    }
+    
+    public long getMcpRequestTimeoutSeconds() {
+        return mcpRequestTimeoutSeconds;
+    }
+    
+    public void setMcpRequestTimeoutSeconds(long mcpRequestTimeoutSeconds) {
+        this.mcpRequestTimeoutSeconds = mcpRequestTimeoutSeconds;
+    }
+    
+    public long getMcpEnrichmentDeadlineMillis() {
+        return mcpEnrichmentDeadlineMillis;
+    }
+    
+    public void setMcpEnrichmentDeadlineMillis(long mcpEnrichmentDeadlineMillis) {
+        this.mcpEnrichmentDeadlineMillis = mcpEnrichmentDeadlineMillis;
+    }
+    
+    public long getMcpHealthCheckIntervalSeconds() {
+        return mcpHealthCheckIntervalSeconds;
+    }
+    
+    public void setMcpHealthCheckIntervalSeconds(long mcpHealthCheckIntervalSeconds) {
+        this.mcpHealthCheckIntervalSeconds = mcpHealthCheckIntervalSeconds;
+    }
+    
+    public long getMcpHealthCheckMaxBackoffSeconds() {
+        return mcpHealthCheckMaxBackoffSeconds;
+    }
+    
+    public void setMcpHealthCheckMaxBackoffSeconds(long mcpHealthCheckMaxBackoffSeconds) {
+        this.mcpHealthCheckMaxBackoffSeconds = mcpHealthCheckMaxBackoffSeconds;
+    }
+    
+    public int getMcpToolCallThreads() {
+        return mcpToolCallThreads;
+    }
+    
+    public void setMcpToolCallThreads(int mcpToolCallThreads) {
+        this.mcpToolCallThreads = mcpToolCallThreads;
+    }
+    
+    public int getMcpToolCallMaxConcurrentPerServer() {
+        return mcpToolCallMaxConcurrentPerServer;
+    }
+    
+    public void setMcpToolCallMaxConcurrentPerServer(int mcpToolCallMaxConcurrentPerServer) {
+        this.mcpToolCallMaxConcurrentPerServer = mcpToolCallMaxConcurrentPerServer;
+    }
+    
+    public long getMcpToolResultCacheMaxEntries() {
+        return mcpToolResultCacheMaxEntries;
+    }
+    
+    public void setMcpToolResultCacheMaxEntries(long mcpToolResultCacheMaxEntries) {
+        this.mcpToolResultCacheMaxEntries = mcpToolResultCacheMaxEntries;
+    }
+    
+    public boolean isMcpToolResultCacheShared() {
+        return mcpToolResultCacheShared;
+    }
+    
+    public void setMcpToolResultCacheShared(boolean mcpToolResultCacheShared) {
+        this.mcpToolResultCacheShared = mcpToolResultCacheShared;
+    }
+    
+    public int getUpstreamThreads() {
+        return upstreamThreads;
+    }
+    
+    public void setUpstreamThreads(int upstreamThreads) {
+        this.upstreamThreads = upstreamThreads;
+    }
+    
+    public int getUpstreamQueueSize() {
+        return upstreamQueueSize;
+    }
+    
+    public void setUpstreamQueueSize(int upstreamQueueSize) {
+        this.upstreamQueueSize = upstreamQueueSize;
+    }
+    
+    public long getUpstreamTimeoutSeconds() {
+        return upstreamTimeoutSeconds;
+    }
+    
+    public void setUpstreamTimeoutSeconds(long upstreamTimeoutSeconds) {
+        this.upstreamTimeoutSeconds = upstreamTimeoutSeconds;
+    }
+    
+    public int getA2aMaxConcurrentRequestsPerAgent() {
+        return a2aMaxConcurrentRequestsPerAgent;
+    }
+    
+    public void setA2aMaxConcurrentRequestsPerAgent(int a2aMaxConcurrentRequestsPerAgent) {
+        this.a2aMaxConcurrentRequestsPerAgent = a2aMaxConcurrentRequestsPerAgent;
+    }
+    
+    public int getA2aReconnectThreads() {
+        return a2aReconnectThreads;
+    }
+    
+    public void setA2aReconnectThreads(int a2aReconnectThreads) {
+        this.a2aReconnectThreads = a2aReconnectThreads;
+    }
+    
+    public long getA2aReconnectTimeoutSeconds() {
+        return a2aReconnectTimeoutSeconds;
+    }
+    
+    public void setA2aReconnectTimeoutSeconds(long a2aReconnectTimeoutSeconds) {
+        this.a2aReconnectTimeoutSeconds = a2aReconnectTimeoutSeconds;
+    }
+    
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+    
+    public long getAgentChangeStreamMaxLength() {
+        return agentChangeStreamMaxLength;
+    }
+    
+    public void setAgentChangeStreamMaxLength(long agentChangeStreamMaxLength) {
+        this.agentChangeStreamMaxLength = agentChangeStreamMaxLength;
+    }
+    
+    public long getAgentChangeStreamRetentionHours() {
+        return agentChangeStreamRetentionHours;
+    }
+    
+    public void setAgentChangeStreamRetentionHours(long agentChangeStreamRetentionHours) {
+        this.agentChangeStreamRetentionHours = agentChangeStreamRetentionHours;
+    }
 }
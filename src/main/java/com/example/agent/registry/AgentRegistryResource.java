@@ -45,11 +45,28 @@ public class AgentRegistryResource {
     }
     
     /**
-     * Get all agents
+     * Get all agents.
+     * With ?since=<updatedAt>, or the next_since of an earlier delta, only agents changed or deleted since then are returned;
+     * with ?cursor= and/or ?limit= the listing is paginated.
      */
     @GET
-    public Response getAllAgents() {
+    public Response getAllAgents(@QueryParam("cursor") String cursor,
+                                 @QueryParam("limit") Integer limit,
+                                 @QueryParam("since") String since) {
         try {
+            if (since != null) {
+                RegistryListings.DeltaPosition from;
+                try {
+                    from = RegistryListings.DeltaPosition.parse(since);
+                } catch (IllegalArgumentException e) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(errorResponse(e.getMessage())).build();
+                }
+                return Response.ok(registry.getAgentsChangedSince(from, RegistryListings.clampLimit(limit))).build();
+            }
+            if (cursor != null || limit != null) {
+                return Response.ok(registry.listAgents(cursor, RegistryListings.clampLimit(limit))).build();
+            }
             List<AgentMetadata> agents = registry.getAllAgents();
             return Response.ok(agents).build();
         } catch (Exception e) {
@@ -132,6 +149,29 @@ public class AgentRegistryResource {
         }
     }
     
+    /**
+     * Find agents by several capabilities, e.g.
+     * /api/agents/capabilities?capability=math&capability=search&match=all
+     * match=all requires every capability, match=any (default) requires at least one
+     */
+    @GET
+    @Path("/capabilities")
+    public Response findByCapabilities(@QueryParam("capability") List<String> capabilities,
+                                       @QueryParam("match") @DefaultValue("any") String match) {
+        if (!"all".equalsIgnoreCase(match) && !"any".equalsIgnoreCase(match)) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(errorResponse("match must be 'all' or 'any'")).build();
+        }
+        try {
+            List<AgentMetadata> agents = registry.findAgentsByCapabilities(
+                capabilities, "all".equalsIgnoreCase(match));
+            return Response.ok(agents).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(errorResponse("Failed to search agents: " + e.getMessage())).build();
+        }
+    }
+    
     /**
      * Load an agent
      */
@@ -190,9 +230,12 @@ public class AgentRegistryResource {
     public Response getStatus() {
         try {
             Map<String, Object> status = new HashMap<>();
-            status.put("total_agents", registry.getAllAgents().size());
+            status.put("total_agents", registry.getAgentCount());
             status.put("loaded_agents", loader.getAllLoadedAgents().size());
             status.put("redis_connected", true);
+            status.put("near_cache", registry.getCacheStats());
+            status.put("event_dispatch", registry.getDispatcherStats());
+            status.put("change_feed", registry.getChangeFeedStats());
             return Response.ok(status).build();
         } catch (Exception e) {
             Map<String, Object> status = new HashMap<>();
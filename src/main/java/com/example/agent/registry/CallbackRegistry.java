@@ -1,10 +1,5 @@
 package com.example.agent.registry;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.JedisPoolConfig;
-
 import java.util.*;
 import java.util.logging.Logger;
 
@@ -14,24 +9,24 @@ import java.util.logging.Logger;
 public class CallbackRegistry {
     
     private static final Logger LOGGER = Logger.getLogger(CallbackRegistry.class.getName());
-    private static final String CALLBACK_KEY_PREFIX = "callback:";
-    private static final String CALLBACK_LIST_KEY = "callbacks:list";
+    private static final RegistryNamespace NAMESPACE = RegistryNamespace.CALLBACKS;
     
-    private final JedisPool jedisPool;
-    private final ObjectMapper objectMapper;
+    private final RegistryStore store;
+    private final RegistryCodec codec;
     
-    public CallbackRegistry() {
-        this("localhost", 6379);
+    public CallbackRegistry(RegistryStore store) {
+        this(store, new RegistryCodec());
     }
     
-    public CallbackRegistry(String host, int port) {
-        JedisPoolConfig poolConfig = new JedisPoolConfig();
-        poolConfig.setMaxTotal(20);
-        poolConfig.setMaxIdle(10);
-        poolConfig.setMinIdle(5);
+    public CallbackRegistry(RegistryStore store, RegistryCodec codec) {
+        this.store = store;
+        this.codec = codec;
         
-        this.jedisPool = new JedisPool(poolConfig, host, port);
-        this.objectMapper = new ObjectMapper();
+        try {
+            ensureUpdatedIndex();
+        } catch (Exception e) {
+            LOGGER.severe("Failed to build callback updatedAt index: " + e.getMessage());
+        }
         
         // Initialize default callbacks on startup
         try {
@@ -80,10 +75,13 @@ public class CallbackRegistry {
             )
         );
         
+        long now = System.currentTimeMillis();
         for (CallbackMetadata callback : defaultCallbacks) {
             // Only register if not already present
-            if (getCallback(callback.getCallbackId()).isEmpty()) {
-                registerCallback(callback);
+            callback.setCreatedAt(now);
+            callback.setUpdatedAt(now);
+            if (putCallback(callback, RegistryStore.WriteMode.CREATE)) {
+                LOGGER.info("Registered callback: " + callback.getName() + " (ID: " + callback.getCallbackId() + ")");
             }
         }
         
@@ -102,53 +100,65 @@ public class CallbackRegistry {
         metadata.setCreatedAt(now);
         metadata.setUpdatedAt(now);
         
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = CALLBACK_KEY_PREFIX + metadata.getCallbackId();
-            String json = objectMapper.writeValueAsString(metadata);
-            
-            jedis.set(key, json);
-            jedis.sadd(CALLBACK_LIST_KEY, metadata.getCallbackId());
-            
-            LOGGER.info("Registered callback: " + metadata.getName() + " (ID: " + metadata.getCallbackId() + ")");
-            return metadata;
-        }
+        putCallback(metadata, RegistryStore.WriteMode.UPSERT);
+        
+        LOGGER.info("Registered callback: " + metadata.getName() + " (ID: " + metadata.getCallbackId() + ")");
+        return metadata;
     }
     
     /**
      * Get callback by ID
      */
     public Optional<CallbackMetadata> getCallback(String callbackId) throws Exception {
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = CALLBACK_KEY_PREFIX + callbackId;
-            String json = jedis.get(key);
-            
-            if (json == null) {
-                return Optional.empty();
-            }
-            
-            CallbackMetadata metadata = objectMapper.readValue(json, CallbackMetadata.class);
-            return Optional.of(metadata);
+        byte[] value = store.get(NAMESPACE, callbackId);
+        if (value == null) {
+            return Optional.empty();
         }
+        
+        CallbackMetadata metadata = codec.decode(value, CallbackMetadata.class);
+        return Optional.of(metadata);
     }
     
     /**
      * Get all callbacks
      */
     public List<CallbackMetadata> getAllCallbacks() throws Exception {
-        try (Jedis jedis = jedisPool.getResource()) {
-            Set<String> callbackIds = jedis.smembers(CALLBACK_LIST_KEY);
-            List<CallbackMetadata> callbacks = new ArrayList<>();
-            
-            for (String callbackId : callbackIds) {
-                Optional<CallbackMetadata> callback = getCallback(callbackId);
-                callback.ifPresent(callbacks::add);
+        List<CallbackMetadata> callbacks = readCallbacks(store.ids(NAMESPACE));
+        
+        // Sort by name
+        callbacks.sort(Comparator.comparing(CallbackMetadata::getName));
+        
+        return callbacks;
+    }
+    
+    /**
+     * List one page of callbacks; pass the returned next_cursor to continue
+     */
+    public RegistryPage<CallbackMetadata> listCallbacks(String cursor, int limit) throws Exception {
+        RegistryPage<String> ids = store.scan(NAMESPACE, cursor, limit);
+        return new RegistryPage<>(readCallbacks(ids.getItems()), ids.getNextCursor());
+    }
+    
+    /**
+     * Get callbacks updated or deleted after the given position (see {@link RegistryDelta})
+     */
+    public RegistryDelta<CallbackMetadata> getCallbacksChangedSince(RegistryListings.DeltaPosition since, int limit) throws Exception {
+        RegistryListings.ChangedIds changed = store.changedSince(NAMESPACE, since, limit);
+        return new RegistryDelta<>(readCallbacks(changed.updated), changed.deleted, changed.asOf,
+            changed.next.toString(), changed.resyncRequired);
+    }
+    
+    /**
+     * Read several callbacks in one bulk read, skipping missing IDs
+     */
+    private List<CallbackMetadata> readCallbacks(Collection<String> callbackIds) throws Exception {
+        List<CallbackMetadata> callbacks = new ArrayList<>();
+        for (byte[] value : store.getAll(NAMESPACE, new ArrayList<>(callbackIds))) {
+            if (value != null) {
+                callbacks.add(codec.decode(value, CallbackMetadata.class));
             }
-            
-            // Sort by name
-            callbacks.sort(Comparator.comparing(CallbackMetadata::getName));
-            
-            return callbacks;
         }
+        return callbacks;
     }
     
     /**
@@ -180,40 +190,56 @@ public class CallbackRegistry {
         metadata.setCreatedAt(existing.get().getCreatedAt());
         metadata.setUpdatedAt(System.currentTimeMillis());
         
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = CALLBACK_KEY_PREFIX + callbackId;
-            String json = objectMapper.writeValueAsString(metadata);
-            jedis.set(key, json);
-            
-            LOGGER.info("Updated callback: " + callbackId);
-            return metadata;
+        if (!putCallback(metadata, RegistryStore.WriteMode.UPDATE)) {
+            throw new IllegalArgumentException("Callback not found: " + callbackId);
         }
+        
+        LOGGER.info("Updated callback: " + callbackId);
+        return metadata;
     }
     
     /**
      * Delete callback
      */
     public boolean deleteCallback(String callbackId) throws Exception {
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = CALLBACK_KEY_PREFIX + callbackId;
-            Long deleted = jedis.del(key);
-            jedis.srem(CALLBACK_LIST_KEY, callbackId);
-            
-            if (deleted > 0) {
-                LOGGER.info("Deleted callback: " + callbackId);
-                return true;
-            }
-            
-            return false;
+        if (store.delete(NAMESPACE, callbackId, System.currentTimeMillis(), null)) {
+            LOGGER.info("Deleted callback: " + callbackId);
+            return true;
         }
+        
+        return false;
     }
     
     /**
-     * Close registry
+     * Store the callback and its listing entries in one atomic store call.
+     * Returns false if the mode precondition (UPDATE needs an existing callback,
+     * CREATE needs an absent one) failed.
      */
-    public void close() {
-        if (jedisPool != null) {
-            jedisPool.close();
+    private boolean putCallback(CallbackMetadata metadata, RegistryStore.WriteMode mode) throws Exception {
+        RegistryStore.Record record = new RegistryStore.Record(
+            metadata.getCallbackId(), codec.encode(metadata), metadata.getUpdatedAt(), Set.of());
+        return store.put(NAMESPACE, record, mode, null);
+    }
+    
+    /**
+     * Build the updatedAt index for callbacks registered before it existed
+     */
+    private void ensureUpdatedIndex() throws Exception {
+        if (!store.needsIndexRebuild(NAMESPACE)) {
+            return;
         }
+        
+        List<RegistryStore.Record> records = new ArrayList<>();
+        for (CallbackMetadata callback : readCallbacks(store.ids(NAMESPACE))) {
+            records.add(new RegistryStore.Record(callback.getCallbackId(), null, callback.getUpdatedAt(), Set.of()));
+        }
+        store.rebuildIndexes(NAMESPACE, records);
+        LOGGER.info("Built updatedAt index for " + records.size() + " callbacks");
+    }
+    
+    /**
+     * Close registry; the store is owned and closed by the caller
+     */
+    public void close() {
     }
 }
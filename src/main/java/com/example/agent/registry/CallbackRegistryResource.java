@@ -23,12 +23,32 @@ public class CallbackRegistryResource {
     }
     
     /**
-     * Get all available callbacks
+     * Get all available callbacks.
+     * With ?since=<updatedAt>, or the next_since of an earlier delta, only callbacks changed or deleted since then are returned;
+     * with ?cursor= and/or ?limit= the listing is paginated.
      */
     @GET
     @Timed
-    public Response getAllCallbacks() {
+    public Response getAllCallbacks(@QueryParam("cursor") String cursor,
+                                    @QueryParam("limit") Integer limit,
+                                    @QueryParam("since") String since) {
         try {
+            if (since != null) {
+                RegistryListings.DeltaPosition from;
+                try {
+                    from = RegistryListings.DeltaPosition.parse(since);
+                } catch (IllegalArgumentException e) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity(new ErrorResponse(e.getMessage()))
+                            .build();
+                }
+                return Response.ok(callbackRegistry.getCallbacksChangedSince(
+                    from, RegistryListings.clampLimit(limit))).build();
+            }
+            if (cursor != null || limit != null) {
+                return Response.ok(callbackRegistry.listCallbacks(
+                    cursor, RegistryListings.clampLimit(limit))).build();
+            }
             List<CallbackMetadata> callbacks = callbackRegistry.getAllCallbacks();
             return Response.ok(callbacks).build();
         } catch (Exception e) {
@@ -0,0 +1,750 @@
+package com.example.agent.registry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Single-node {@link RegistryStore} kept in an append-only log on local disk.
+ *
+ * The log is memory-mapped in fixed-size chunks. Every put and delete is appended
+ * as one checksummed entry; an in-memory index maps each live record to its value
+ * in the mapping, so reads are a map lookup and a copy, with no I/O. On startup the
+ * log is replayed to rebuild the index (stopping at the first torn or corrupt
+ * entry), and rewritten without superseded entries once they make up most of it.
+ *
+ * Writes reach the OS page cache immediately and so survive a process crash; they
+ * are forced to disk on close and after compaction. Change events are delivered
+ * in-process, so this store is only suitable when a single node owns the data;
+ * the directory is locked while the store is open so a second process cannot
+ * open it too.
+ */
+public class EmbeddedRegistryStore implements RegistryStore {
+
+    private static final Logger LOGGER = Logger.getLogger(EmbeddedRegistryStore.class.getName());
+
+    private static final String LOG_FILE = "registry.log";
+    // Held for the life of the store; the log itself is replaced by compaction
+    private static final String LOCK_FILE = "registry.lock";
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    // Compact on open when less than this share of the log is still live
+    private static final double COMPACTION_LIVE_RATIO = 0.5;
+
+    private final Path logPath;
+    private final Map<String, Space> spaces = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final FileChannel lockChannel;
+    private LogFile log;
+
+    public EmbeddedRegistryStore(Path directory) {
+        this.logPath = directory.resolve(LOG_FILE);
+        try {
+            Files.createDirectories(directory);
+            lockChannel = lockDirectory(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open embedded registry store at " + directory, e);
+        }
+        try {
+            log = LogFile.open(logPath);
+            long liveBytes = recover();
+
+            if (log.writePosition > 0 && liveBytes < log.writePosition * COMPACTION_LIVE_RATIO) {
+                compact(liveBytes);
+            }
+        } catch (IOException e) {
+            abandonOpen();
+            throw new UncheckedIOException("Failed to open embedded registry store at " + directory, e);
+        } catch (RuntimeException e) {
+            abandonOpen();
+            throw e;
+        }
+        LOGGER.info("Opened embedded registry store at " + logPath + " (" + log.writePosition + " bytes)");
+    }
+
+    @Override
+    public byte[] get(RegistryNamespace namespace, String id) {
+        Slot slot = space(namespace).records.get(id);
+        return slot != null ? log.read(slot) : null;
+    }
+
+    @Override
+    public List<byte[]> getAll(RegistryNamespace namespace, List<String> ids) {
+        Space space = space(namespace);
+        List<byte[]> values = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Slot slot = space.records.get(id);
+            values.add(slot != null ? log.read(slot) : null);
+        }
+        return values;
+    }
+
+    @Override
+    public Set<String> ids(RegistryNamespace namespace) {
+        return new LinkedHashSet<>(space(namespace).records.keySet());
+    }
+
+    @Override
+    public long count(RegistryNamespace namespace) {
+        return space(namespace).records.size();
+    }
+
+    /**
+     * IDs in sorted order; the cursor is the last ID of the previous page
+     */
+    @Override
+    public RegistryPage<String> scan(RegistryNamespace namespace, String cursor, int limit) {
+        ConcurrentSkipListMap<String, Slot> records = space(namespace).records;
+        NavigableSet<String> remaining = cursor == null || cursor.isEmpty()
+            ? records.keySet()
+            : records.tailMap(cursor, false).keySet();
+
+        List<String> ids = new ArrayList<>(Math.min(limit, records.size()));
+        Iterator<String> iterator = remaining.iterator();
+        while (iterator.hasNext() && ids.size() < limit) {
+            ids.add(iterator.next());
+        }
+        return new RegistryPage<>(ids, iterator.hasNext() ? ids.get(ids.size() - 1) : null);
+    }
+
+    @Override
+    public RegistryListings.ChangedIds changedSince(RegistryNamespace namespace, RegistryListings.DeltaPosition from,
+                                                   int limit) {
+        Space space = space(namespace);
+        long now = System.currentTimeMillis();
+        lock.readLock().lock();
+        try {
+            List<String> updated = space.updated.range(from.getSince(), from.getAfterUpdated(), limit);
+            List<String> deleted = space.deleted.range(from.getSince(), from.getAfterDeleted(), limit);
+            return RegistryListings.changedIds(from, limit, now,
+                updated, space.updated.scores(updated),
+                deleted, space.deleted.scores(deleted));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<String> findByTerms(RegistryNamespace namespace, Collection<String> terms, boolean matchAll) {
+        Space space = space(namespace);
+        Set<String> ids = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            boolean first = true;
+            for (String term : terms) {
+                Set<String> matches = space.termIndex.getOrDefault(term, Collections.emptySet());
+                if (!matchAll) {
+                    ids.addAll(matches);
+                } else if (first) {
+                    ids.addAll(matches);
+                } else {
+                    ids.retainAll(matches);
+                }
+                first = false;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ids;
+    }
+
+    @Override
+    public boolean put(RegistryNamespace namespace, Record record, WriteMode mode, String eventType) {
+        Space space = space(namespace);
+        Set<String> terms = record.getTerms() != null ? record.getTerms() : Collections.emptySet();
+
+        lock.writeLock().lock();
+        try {
+            boolean exists = space.records.containsKey(record.getId());
+            if ((mode == WriteMode.UPDATE && !exists) || (mode == WriteMode.CREATE && exists)) {
+                return false;
+            }
+            Slot slot = log.append(OP_PUT, namespace.getName(), record.getId(), record.getUpdatedAt(),
+                terms, record.getValue());
+            applyPut(space, record.getId(), slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        publish(space, eventType, record.getId());
+        return true;
+    }
+
+    @Override
+    public boolean delete(RegistryNamespace namespace, String id, long now, String eventType) {
+        Space space = space(namespace);
+
+        lock.writeLock().lock();
+        try {
+            if (!space.records.containsKey(id)) {
+                return false;
+            }
+            log.append(OP_DELETE, namespace.getName(), id, now, Collections.emptySet(), new byte[0]);
+            applyDelete(space, id, now, RegistryListings.tombstoneCutoff(now));
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        publish(space, eventType, id);
+        return true;
+    }
+
+    @Override
+    public boolean replaceValue(RegistryNamespace namespace, String id, byte[] expected, byte[] value) {
+        Space space = space(namespace);
+
+        lock.writeLock().lock();
+        try {
+            Slot current = space.records.get(id);
+            if (current == null || !Arrays.equals(log.read(current), expected)) {
+                return false;
+            }
+            Slot slot = log.append(OP_PUT, namespace.getName(), id, current.updatedAt, current.terms, value);
+            applyPut(space, id, slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes are rebuilt from the log on every open, so they are never stale
+     */
+    @Override
+    public boolean needsIndexRebuild(RegistryNamespace namespace) {
+        return false;
+    }
+
+    @Override
+    public Set<String> unlistedIds(RegistryNamespace namespace) {
+        // Every stored record is listed
+        return new HashSet<>();
+    }
+
+    @Override
+    public void rebuildIndexes(RegistryNamespace namespace, Collection<Record> records) {
+        // Nothing to do; see needsIndexRebuild
+    }
+
+    /**
+     * Events are delivered synchronously, on the writing thread, after the write is applied
+     */
+    @Override
+    public ChangeFeed openChangeFeed(RegistryNamespace namespace, String nodeId, ChangeHandler handler) {
+        Space space = space(namespace);
+        AtomicLong delivered = new AtomicLong();
+        ChangeHandler counting = new ChangeHandler() {
+            @Override
+            public void onChange(String eventType, String id) {
+                delivered.incrementAndGet();
+                handler.onChange(eventType, id);
+            }
+
+            @Override
+            public void onResync() {
+                handler.onResync();
+            }
+        };
+
+        return new ChangeFeed() {
+            @Override
+            public void start() {
+                space.handlers.add(counting);
+                counting.onResync();
+            }
+
+            @Override
+            public void close() {
+                space.handlers.remove(counting);
+            }
+
+            @Override
+            public Map<String, Object> getStats() {
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("backend", "embedded");
+                stats.put("processed", delivered.get());
+                return stats;
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            log.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // Closing the channel releases the directory lock
+        closeQuietly(lockChannel);
+    }
+
+    // Release what a failed constructor opened, so the directory can be opened again
+    private void abandonOpen() {
+        if (log != null) {
+            log.close();
+        }
+        closeQuietly(lockChannel);
+    }
+
+    /**
+     * Take an exclusive lock on the store directory, failing if another process
+     * (or another store in this JVM) already holds it
+     */
+    private static FileChannel lockDirectory(Path directory) throws IOException {
+        Path lockPath = directory.resolve(LOCK_FILE);
+        FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock fileLock;
+        try {
+            fileLock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            fileLock = null;
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+        if (fileLock == null) {
+            closeQuietly(channel);
+            throw new IllegalStateException("Embedded registry store at " + directory
+                + " is already open (" + lockPath + " is locked)");
+        }
+        return channel;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.warning("Failed to close " + channel + ": " + e.getMessage());
+        }
+    }
+
+    private Space space(RegistryNamespace namespace) {
+        return spaces.computeIfAbsent(namespace.getName(), name -> new Space());
+    }
+
+    private void publish(Space space, String eventType, String id) {
+        if (eventType == null) {
+            return;
+        }
+        for (ChangeHandler handler : space.handlers) {
+            try {
+                handler.onChange(eventType, id);
+            } catch (Exception e) {
+                LOGGER.warning("Change handler error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void applyPut(Space space, String id, Slot slot) {
+        Slot previous = space.records.put(id, slot);
+        space.updated.put(id, slot.updatedAt);
+        space.deleted.remove(id);
+        if (previous != null) {
+            unindexTerms(space, id, previous.terms);
+        }
+        for (String term : slot.terms) {
+            space.termIndex.computeIfAbsent(term, t -> new HashSet<>()).add(id);
+        }
+    }
+
+    // A compacted log holds tombstones without the records they deleted
+    private void applyDelete(Space space, String id, long deletedAt, long tombstoneCutoff) {
+        Slot previous = space.records.remove(id);
+        if (previous != null) {
+            space.updated.remove(id);
+            unindexTerms(space, id, previous.terms);
+        }
+        space.deleted.put(id, deletedAt);
+        space.deleted.removeBelow(tombstoneCutoff);
+    }
+
+    private void unindexTerms(Space space, String id, Set<String> terms) {
+        for (String term : terms) {
+            Set<String> ids = space.termIndex.get(term);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    space.termIndex.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replay the log into the in-memory index.
+     * Returns the number of bytes taken by entries that are still live.
+     */
+    private long recover() throws IOException {
+        long cutoff = RegistryListings.tombstoneCutoff(System.currentTimeMillis());
+        log.replay(entry -> {
+            Space space = spaces.computeIfAbsent(entry.namespace, name -> new Space());
+            if (entry.op == OP_PUT) {
+                applyPut(space, entry.id, entry.slot);
+            } else {
+                applyDelete(space, entry.id, entry.timestamp, cutoff);
+            }
+        });
+
+        long liveBytes = 0;
+        for (Space space : spaces.values()) {
+            for (Slot slot : space.records.values()) {
+                liveBytes += slot.entrySize;
+            }
+        }
+        return liveBytes;
+    }
+
+    /**
+     * Rewrite the log with only live records and retained tombstones, swap it in, and reload
+     */
+    private void compact(long liveBytes) throws IOException {
+        long before = log.writePosition;
+        Path compacted = logPath.resolveSibling(LOG_FILE + ".compact");
+        Files.deleteIfExists(compacted);
+
+        LogFile target = LogFile.open(compacted);
+        try {
+            for (Map.Entry<String, Space> entry : spaces.entrySet()) {
+                Space space = entry.getValue();
+                for (Map.Entry<String, Slot> record : space.records.entrySet()) {
+                    Slot slot = record.getValue();
+                    target.append(OP_PUT, entry.getKey(), record.getKey(), slot.updatedAt, slot.terms, log.read(slot));
+                }
+                for (Map.Entry<String, Long> tombstone : space.deleted.scores.entrySet()) {
+                    target.append(OP_DELETE, entry.getKey(), tombstone.getKey(), tombstone.getValue(),
+                        Collections.emptySet(), new byte[0]);
+                }
+            }
+        } finally {
+            target.close();
+        }
+
+        log.close();
+        Files.move(compacted, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        spaces.clear();
+        log = LogFile.open(logPath);
+        recover();
+        LOGGER.info("Compacted embedded registry log from " + before + " to " + log.writePosition
+            + " bytes (" + liveBytes + " live)");
+    }
+
+    /**
+     * Location and indexed fields of a live record
+     */
+    private static class Slot {
+        final int chunk;
+        final int valueOffset;
+        final int valueLength;
+        final int entrySize;
+        final long updatedAt;
+        final Set<String> terms;
+
+        Slot(int chunk, int valueOffset, int valueLength, int entrySize, long updatedAt, Set<String> terms) {
+            this.chunk = chunk;
+            this.valueOffset = valueOffset;
+            this.valueLength = valueLength;
+            this.entrySize = entrySize;
+            this.updatedAt = updatedAt;
+            this.terms = terms;
+        }
+    }
+
+    /**
+     * In-memory index for one namespace; all but records are guarded by the store lock
+     */
+    private static class Space {
+        final ConcurrentSkipListMap<String, Slot> records = new ConcurrentSkipListMap<>();
+        final ScoreIndex updated = new ScoreIndex();
+        final ScoreIndex deleted = new ScoreIndex();
+        final Map<String, Set<String>> termIndex = new HashMap<>();
+        final List<ChangeHandler> handlers = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * IDs ordered by a timestamp score, like a Redis sorted set
+     */
+    private static class ScoreIndex {
+        final Map<String, Long> scores = new HashMap<>();
+        final TreeMap<Long, TreeSet<String>> byScore = new TreeMap<>();
+
+        void put(String id, long score) {
+            remove(id);
+            scores.put(id, score);
+            byScore.computeIfAbsent(score, s -> new TreeSet<>()).add(id);
+        }
+
+        void remove(String id) {
+            Long score = scores.remove(id);
+            if (score != null) {
+                Set<String> ids = byScore.get(score);
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    byScore.remove(score);
+                }
+            }
+        }
+
+        void removeBelow(long cutoff) {
+            Iterator<Map.Entry<Long, TreeSet<String>>> iterator = byScore.headMap(cutoff, false).entrySet().iterator();
+            while (iterator.hasNext()) {
+                for (String id : iterator.next().getValue()) {
+                    scores.remove(id);
+                }
+                iterator.remove();
+            }
+        }
+
+        // IDs in (score, ID) order from since on, leaving out those at exactly since up to and including after
+        List<String> range(long since, String after, int limit) {
+            List<String> ids = new ArrayList<>();
+            for (Map.Entry<Long, TreeSet<String>> atScore : byScore.tailMap(since, true).entrySet()) {
+                Set<String> candidates = atScore.getValue();
+                if (after != null && atScore.getKey() == since) {
+                    candidates = atScore.getValue().tailSet(after, false);
+                }
+                for (String id : candidates) {
+                    if (ids.size() == limit) {
+                        return ids;
+                    }
+                    ids.add(id);
+                }
+            }
+            return ids;
+        }
+
+        List<Long> scores(List<String> ids) {
+            List<Long> result = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                result.add(scores.get(id));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A decoded log entry, passed to the replay callback
+     */
+    private static class LogEntry {
+        byte op;
+        String namespace;
+        String id;
+        long timestamp;
+        Slot slot;
+    }
+
+    private interface EntryHandler {
+        void accept(LogEntry entry);
+    }
+
+    /**
+     * The memory-mapped log file.
+     *
+     * Entry layout: int body length, int CRC32 of body, then the body: op, namespace,
+     * ID, timestamp, term count and terms, value length and value. The length is
+     * written last, so a zero length marks the end of the log. Entries never span
+     * chunks; SKIP_MARKER pads the tail of a chunk that cannot fit the next entry.
+     */
+    private static class LogFile {
+        private static final int CHUNK_SIZE = 16 * 1024 * 1024;
+        private static final int HEADER_SIZE = 8;
+        private static final int SKIP_MARKER = -1;
+
+        private final FileChannel channel;
+        private final List<MappedByteBuffer> chunks = new CopyOnWriteArrayList<>();
+        private long writePosition;
+
+        private LogFile(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        static LogFile open(Path path) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            LogFile log = new LogFile(channel);
+            long size = channel.size();
+            for (long mapped = 0; mapped < size; mapped += CHUNK_SIZE) {
+                log.mapChunk();
+            }
+            return log;
+        }
+
+        private void mapChunk() throws IOException {
+            long start = (long) chunks.size() * CHUNK_SIZE;
+            chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, start, CHUNK_SIZE));
+        }
+
+        byte[] read(Slot slot) {
+            byte[] value = new byte[slot.valueLength];
+            chunks.get(slot.chunk).get(slot.valueOffset, value);
+            return value;
+        }
+
+        Slot append(byte op, String namespace, String id, long timestamp, Set<String> terms, byte[] value) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 + value.length);
+            int valueStart;
+            try (DataOutputStream out = new DataOutputStream(buffer)) {
+                out.writeByte(op);
+                out.writeUTF(namespace);
+                out.writeUTF(id);
+                out.writeLong(timestamp);
+                out.writeInt(terms.size());
+                for (String term : terms) {
+                    out.writeUTF(term);
+                }
+                out.writeInt(value.length);
+                valueStart = out.size();
+                out.write(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            byte[] body = buffer.toByteArray();
+
+            int entrySize = HEADER_SIZE + body.length;
+            if (entrySize > CHUNK_SIZE) {
+                throw new IllegalArgumentException("Record too large for embedded store: " + id
+                    + " (" + body.length + " bytes)");
+            }
+
+            int offset = (int) (writePosition % CHUNK_SIZE);
+            if (offset + entrySize > CHUNK_SIZE) {
+                if (CHUNK_SIZE - offset >= HEADER_SIZE) {
+                    chunks.get(chunkIndex()).putInt(offset, SKIP_MARKER);
+                }
+                writePosition += CHUNK_SIZE - offset;
+                offset = 0;
+            }
+            int chunkIndex = chunkIndex();
+            try {
+                while (chunks.size() <= chunkIndex) {
+                    mapChunk();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            MappedByteBuffer chunk = chunks.get(chunkIndex);
+            chunk.put(offset + HEADER_SIZE, body);
+            chunk.putInt(offset + 4, checksum(body));
+            chunk.putInt(offset, body.length);
+            writePosition += entrySize;
+
+            return new Slot(chunkIndex, offset + HEADER_SIZE + valueStart, value.length, entrySize,
+                timestamp, terms);
+        }
+
+        /**
+         * Decode entries from the start of the log, leaving writePosition after the last valid one
+         */
+        void replay(EntryHandler handler) throws IOException {
+            long position = 0;
+            while (true) {
+                int chunkIndex = (int) (position / CHUNK_SIZE);
+                int offset = (int) (position % CHUNK_SIZE);
+                if (chunkIndex >= chunks.size()) {
+                    break;
+                }
+                if (CHUNK_SIZE - offset < HEADER_SIZE) {
+                    position += CHUNK_SIZE - offset;
+                    continue;
+                }
+
+                MappedByteBuffer chunk = chunks.get(chunkIndex);
+                int length = chunk.getInt(offset);
+                if (length == 0) {
+                    break;
+                }
+                if (length == SKIP_MARKER) {
+                    position += CHUNK_SIZE - offset;
+                    continue;
+                }
+
+                byte[] body = null;
+                if (length > 0 && offset + HEADER_SIZE + length <= CHUNK_SIZE) {
+                    body = new byte[length];
+                    chunk.get(offset + HEADER_SIZE, body);
+                }
+                if (body == null || checksum(body) != chunk.getInt(offset + 4)) {
+                    LOGGER.warning("Discarding torn or corrupt embedded log tail at offset " + position);
+                    clearFrom(chunk, offset);
+                    break;
+                }
+
+                handler.accept(decode(body, chunkIndex, offset));
+                position += HEADER_SIZE + length;
+            }
+            writePosition = position;
+        }
+
+        private static LogEntry decode(byte[] body, int chunkIndex, int offset) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+            LogEntry entry = new LogEntry();
+            entry.op = in.readByte();
+            entry.namespace = in.readUTF();
+            entry.id = in.readUTF();
+            entry.timestamp = in.readLong();
+
+            int termCount = in.readInt();
+            Set<String> terms = new LinkedHashSet<>();
+            for (int i = 0; i < termCount; i++) {
+                terms.add(in.readUTF());
+            }
+            int valueLength = in.readInt();
+            int valueStart = body.length - in.available();
+
+            entry.slot = new Slot(chunkIndex, offset + HEADER_SIZE + valueStart, valueLength,
+                HEADER_SIZE + body.length, entry.timestamp, terms);
+            return entry;
+        }
+
+        // Zero the rest of the chunk so later appends are not followed by stale bytes
+        private static void clearFrom(MappedByteBuffer chunk, int offset) {
+            byte[] zeros = new byte[Math.min(64 * 1024, CHUNK_SIZE)];
+            for (int position = offset; position < CHUNK_SIZE; position += zeros.length) {
+                chunk.put(position, zeros, 0, Math.min(zeros.length, CHUNK_SIZE - position));
+            }
+        }
+
+        private int chunkIndex() {
+            return (int) (writePosition / CHUNK_SIZE);
+        }
+
+        private static int checksum(byte[] body) {
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            return (int) crc.getValue();
+        }
+
+        void close() {
+            for (MappedByteBuffer chunk : chunks) {
+                chunk.force();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.warning("Failed to close embedded registry log: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.example.agent.registry;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Per-endpoint cache of MCP tool catalogs, refreshed in the background.
+ *
+ * Reads return the last fetched catalog immediately and never contact the MCP
+ * server. Each endpoint is refreshed on its own schedule, with jitter so servers
+ * registered together are not all queried at once. A failed refresh keeps the
+ * previous catalog and records the error. Endpoints nobody has read for a while
+ * stop being refreshed and are dropped. Refreshes of different endpoints run
+ * concurrently, and each one's latency is recorded under mcp.discovery.&lt;endpoint&gt;.
+ * Endpoints that push tool change notifications have the pushed tool list stored
+ * directly (see {@link #update}) and are otherwise polled only at the much longer
+ * pushed refresh interval, as a safety net for notifications missed while
+ * disconnected.
+ */
+public class MCPCatalogCache {
+
+    private static final Logger LOGGER = Logger.getLogger(MCPCatalogCache.class.getName());
+
+    // Each refresh is scheduled at interval +/- this fraction of it
+    private static final double JITTER = 0.2;
+    // Endpoints not read for this many intervals are dropped
+    private static final int IDLE_INTERVALS = 10;
+    private static final int DEFAULT_REFRESH_THREADS = 4;
+
+    /**
+     * Fetches a catalog from an MCP server
+     */
+    public interface Loader {
+        MCPDiscoveryService.DiscoveryResult load(String endpoint) throws Exception;
+    }
+
+    /**
+     * Whether an endpoint currently pushes tool change notifications
+     */
+    public interface PushCheck {
+        boolean pushesChanges(String endpoint);
+    }
+
+    /**
+     * Told about each catalog that was fetched for the first time or came back different
+     */
+    public interface ChangeListener {
+        void catalogChanged(String endpoint, List<Map<String, Object>> tools);
+    }
+
+    private final Loader loader;
+    private final PushCheck pushCheck;
+    private final long refreshIntervalMs;
+    private final long pushedRefreshIntervalMs;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final MetricRegistry metrics;
+    private final Timer discoveryTimer;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public MCPCatalogCache(Loader loader, Duration refreshInterval) {
+        this(loader, refreshInterval, DEFAULT_REFRESH_THREADS, new MetricRegistry());
+    }
+
+    public MCPCatalogCache(Loader loader, Duration refreshInterval, int refreshThreads, MetricRegistry metrics) {
+        this(loader, endpoint -> false, refreshInterval, refreshInterval, refreshThreads, metrics);
+    }
+
+    /**
+     * @param pushedRefreshInterval polling interval for endpoints the push check accepts
+     */
+    public MCPCatalogCache(Loader loader, PushCheck pushCheck, Duration refreshInterval,
+                           Duration pushedRefreshInterval, int refreshThreads, MetricRegistry metrics) {
+        this.loader = loader;
+        this.pushCheck = pushCheck;
+        this.refreshIntervalMs = refreshInterval.toMillis();
+        this.pushedRefreshIntervalMs = Math.max(pushedRefreshInterval.toMillis(), refreshIntervalMs);
+        this.metrics = metrics;
+        this.discoveryTimer = metrics.timer(MetricRegistry.name("mcp", "discovery"));
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(refreshThreads, runnable -> {
+            Thread thread = new Thread(runnable, "mcp-catalog-refresh-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Current catalog for an endpoint. An endpoint seen for the first time is
+     * fetched in the background and returns an empty, never-refreshed snapshot.
+     */
+    public Snapshot get(String endpoint) {
+        Entry entry = entries.computeIfAbsent(endpoint, this::track);
+        entry.lastReadAt = System.currentTimeMillis();
+        return entry.snapshot;
+    }
+
+    /**
+     * Current catalogs for several endpoints, waiting up to the deadline for those
+     * never fetched before. Their first fetches run concurrently; endpoints that
+     * miss the deadline come back unloaded. Loaded endpoints never wait.
+     */
+    public Map<String, Snapshot> getAll(Collection<String> endpoints, Duration deadline) {
+        Map<String, Entry> tracked = new LinkedHashMap<>();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (String endpoint : endpoints) {
+            Entry entry = entries.computeIfAbsent(endpoint, this::track);
+            entry.lastReadAt = System.currentTimeMillis();
+            tracked.put(endpoint, entry);
+            if (!entry.firstLoad.isDone()) {
+                pending.add(entry.firstLoad);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            try {
+                CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]))
+                    .get(deadline.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                LOGGER.fine("MCP catalog deadline passed with servers still loading");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // firstLoad never completes exceptionally
+            }
+        }
+
+        Map<String, Snapshot> snapshots = new LinkedHashMap<>();
+        tracked.forEach((endpoint, entry) -> snapshots.put(endpoint, entry.snapshot));
+        return snapshots;
+    }
+
+    /**
+     * Fetch an endpoint again now (e.g. after its tool registration or its tools
+     * changed), without waiting. If a refresh is already running, another one
+     * follows it, since the running one may predate the change.
+     */
+    public void refresh(String endpoint) {
+        Entry entry = entries.computeIfAbsent(endpoint, this::track);
+        entry.lastReadAt = System.currentTimeMillis();
+        entry.refreshRequested.set(true);
+        scheduler.execute(() -> refresh(endpoint, entry));
+    }
+
+    /**
+     * Store a catalog the server pushed (the tool list that follows its tool change
+     * notification) without fetching it again. A refresh already running when it
+     * arrives predates it, so that refresh's result is dropped.
+     */
+    public void update(String endpoint, MCPDiscoveryService.DiscoveryResult result) {
+        Entry entry = entries.computeIfAbsent(endpoint, this::track);
+        List<Map<String, Object>> tools = result.toToolMaps();
+        Snapshot previous;
+        synchronized (entry) {
+            entry.generation++;
+            previous = entry.snapshot;
+            entry.snapshot = new Snapshot(tools, System.currentTimeMillis(), null, null, previous.getLatencyMs());
+        }
+        entry.firstLoad.complete(null);
+        if (previous.getRefreshedAt() == null || !previous.getTools().equals(tools)) {
+            notifyChanged(endpoint, tools);
+        }
+    }
+
+    /**
+     * Count the endpoints as read so they keep being refreshed, and start
+     * tracking those not tracked yet
+     */
+    public void touch(Collection<String> endpoints) {
+        long now = System.currentTimeMillis();
+        for (String endpoint : endpoints) {
+            entries.computeIfAbsent(endpoint, this::track).lastReadAt = now;
+        }
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Refresh state of every tracked endpoint
+     */
+    public List<Map<String, Object>> getStatus() {
+        List<Map<String, Object>> status = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            Snapshot snapshot = e.getValue().snapshot;
+            Map<String, Object> server = new LinkedHashMap<>();
+            server.put("endpoint", e.getKey());
+            server.put("tool_count", snapshot.getTools().size());
+            server.put("last_refresh_at", snapshot.getRefreshedAt());
+            server.put("last_error", snapshot.getError());
+            server.put("last_error_at", snapshot.getErrorAt());
+            server.put("last_latency_ms", snapshot.getLatencyMs());
+            server.put("refreshing", e.getValue().refreshing.get());
+            status.add(server);
+        }
+        return status;
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private Entry track(String endpoint) {
+        Entry entry = new Entry();
+        scheduler.execute(() -> refresh(endpoint, entry));
+        return entry;
+    }
+
+    private void refresh(String endpoint, Entry entry) {
+        // Another refresh of this endpoint is already running; its result will do
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        entry.refreshRequested.set(false);
+        long start = System.nanoTime();
+        long generation;
+        synchronized (entry) {
+            generation = entry.generation;
+        }
+        try {
+            // Converted to the API shape once per refresh rather than on every read
+            List<Map<String, Object>> tools = loader.load(endpoint).toToolMaps();
+            Snapshot previous;
+            synchronized (entry) {
+                // A pushed catalog arrived meanwhile and is newer than this one
+                if (entry.generation != generation) {
+                    return;
+                }
+                previous = entry.snapshot;
+                entry.snapshot = new Snapshot(tools, System.currentTimeMillis(), null, null, elapsedMs(start));
+            }
+            if (previous.getRefreshedAt() == null || !previous.getTools().equals(tools)) {
+                notifyChanged(endpoint, tools);
+            }
+        } catch (Exception e) {
+            synchronized (entry) {
+                Snapshot previous = entry.snapshot;
+                entry.snapshot = new Snapshot(previous.getTools(), previous.getRefreshedAt(),
+                    e.getMessage(), System.currentTimeMillis(), elapsedMs(start));
+            }
+            LOGGER.warning("Failed to refresh MCP catalog for " + endpoint + ": " + e.getMessage());
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            discoveryTimer.update(elapsed, TimeUnit.NANOSECONDS);
+            metrics.timer(MetricRegistry.name("mcp", "discovery", endpoint)).update(elapsed, TimeUnit.NANOSECONDS);
+            entry.refreshing.set(false);
+            entry.firstLoad.complete(null);
+            if (entry.refreshRequested.get() && !scheduler.isShutdown()) {
+                scheduler.execute(() -> refresh(endpoint, entry));
+            }
+            scheduleNext(endpoint, entry);
+        }
+    }
+
+    private void notifyChanged(String endpoint, List<Map<String, Object>> tools) {
+        for (ChangeListener listener : listeners) {
+            try {
+                listener.catalogChanged(endpoint, tools);
+            } catch (RuntimeException e) {
+                LOGGER.warning("MCP catalog listener failed for " + endpoint + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void scheduleNext(String endpoint, Entry entry) {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        if (System.currentTimeMillis() - entry.lastReadAt > refreshIntervalMs * IDLE_INTERVALS) {
+            entries.remove(endpoint, entry);
+            metrics.remove(MetricRegistry.name("mcp", "discovery", endpoint));
+            LOGGER.fine("Stopped refreshing idle MCP catalog " + endpoint);
+            return;
+        }
+        // Only the entry's own chain reschedules, so explicit refreshes don't multiply timers
+        if (entry.scheduled.compareAndSet(false, true)) {
+            long interval = pushCheck.pushesChanges(endpoint) ? pushedRefreshIntervalMs : refreshIntervalMs;
+            long jitter = (long) (interval * JITTER);
+            long delay = interval + ThreadLocalRandom.current().nextLong(-jitter, jitter + 1);
+            scheduler.schedule(() -> {
+                entry.scheduled.set(false);
+                refresh(endpoint, entry);
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static class Entry {
+        volatile Snapshot snapshot = new Snapshot(Collections.emptyList(), null, null, null, null);
+        volatile long lastReadAt = System.currentTimeMillis();
+        // Completed once the first refresh has finished, successfully or not
+        final CompletableFuture<Void> firstLoad = new CompletableFuture<>();
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        // Set by explicit refreshes, cleared when a refresh starts
+        final AtomicBoolean refreshRequested = new AtomicBoolean();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        // Bumped by each pushed catalog; guarded by the entry's lock
+        long generation;
+    }
+
+    /**
+     * An endpoint's catalog as of its last successful refresh, plus the last error if the latest refresh failed
+     */
+    public static class Snapshot {
+        private final List<Map<String, Object>> tools;
+        private final Long refreshedAt;
+        private final String error;
+        private final Long errorAt;
+        private final Long latencyMs;
+
+        Snapshot(List<Map<String, Object>> tools, Long refreshedAt, String error, Long errorAt, Long latencyMs) {
+            this.tools = tools != null ? tools : Collections.emptyList();
+            this.refreshedAt = refreshedAt;
+            this.error = error;
+            this.errorAt = errorAt;
+            this.latencyMs = latencyMs;
+        }
+
+        public List<Map<String, Object>> getTools() {
+            return tools;
+        }
+
+        public Long getRefreshedAt() {
+            return refreshedAt;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public Long getErrorAt() {
+            return errorAt;
+        }
+
+        /**
+         * Duration of the latest refresh attempt
+         */
+        public Long getLatencyMs() {
+            return latencyMs;
+        }
+
+        /**
+         * True once a refresh has completed, successfully or not
+         */
+        public boolean isLoaded() {
+            return refreshedAt != null || errorAt != null;
+        }
+    }
+}
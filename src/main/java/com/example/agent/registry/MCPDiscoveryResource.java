@@ -1,13 +1,13 @@
 package com.example.agent.registry;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
  * REST API for discovering and querying MCP servers.
@@ -20,6 +20,14 @@ public class MCPDiscoveryResource {
     
     private static final Logger LOGGER = Logger.getLogger(MCPDiscoveryResource.class.getName());
     
+    private final MCPDiscoveryService discovery;
+    private final UpstreamExecutor upstream;
+    
+    public MCPDiscoveryResource(MCPDiscoveryService discovery, UpstreamExecutor upstream) {
+        this.discovery = discovery;
+        this.upstream = upstream;
+    }
+    
     /**
      * Query an MCP server and discover its tools
      * 
@@ -31,7 +39,11 @@ public class MCPDiscoveryResource {
      */
     @POST
     @Path("/discover")
-    public Response discoverTools(Map<String, String> request) {
+    public void discoverTools(Map<String, String> request, @Suspended AsyncResponse asyncResponse) {
+        upstream.submit(asyncResponse, () -> doDiscoverTools(request));
+    }
+    
+    private Response doDiscoverTools(Map<String, String> request) {
         String url = request.get("url");
         String transport = request.getOrDefault("transport", "sse");
         
@@ -44,8 +56,7 @@ public class MCPDiscoveryResource {
         try {
             LOGGER.info("Discovering tools from MCP server: " + url);
             
-            // Create MCP client based on transport type
-            StandardMCPClient client;
+            MCPDiscoveryService.DiscoveryResult result;
             if ("stdio".equalsIgnoreCase(transport)) {
                 // For stdio, expect command and args in request
                 String command = request.get("command");
@@ -54,52 +65,17 @@ public class MCPDiscoveryResource {
                         .entity(errorResponse("Command required for stdio transport"))
                         .build();
                 }
-                client = StandardMCPClient.createStdioClient(command);
+                result = discovery.discoverStdio(command);
             } else {
-                // SSE transport - ensure URL points to SSE endpoint
-                String sseUrl = url;
-                if (!url.endsWith("/sse")) {
-                    // If user provides base URL, append /sse
-                    sseUrl = url.endsWith("/") ? url + "sse" : url + "/sse";
-                    LOGGER.info("Adjusted SSE URL to: " + sseUrl);
-                }
-                client = StandardMCPClient.createSseClient(sseUrl);
+                result = discovery.discoverSse(url);
             }
             
-            try {
-                // Test connection
-                if (!client.ping()) {
-                    return Response.status(Response.Status.SERVICE_UNAVAILABLE)
-                        .entity(errorResponse("Cannot connect to MCP server"))
-                        .build();
-                }
-                
-                // Discover tools
-                List<StandardMCPClient.MCPToolInfo> tools = client.listTools();
-                
-                // Convert to response format
-                List<Map<String, Object>> toolsList = tools.stream()
-                    .map(tool -> {
-                        Map<String, Object> toolMap = new HashMap<>();
-                        toolMap.put("name", tool.getName());
-                        toolMap.put("description", tool.getDescription());
-                        toolMap.put("inputSchema", tool.getInputSchema());
-                        return toolMap;
-                    })
-                    .collect(Collectors.toList());
-                
-                Map<String, Object> response = new HashMap<>();
-                response.put("success", true);
-                response.put("server", client.getServerIdentifier());
-                response.put("toolCount", tools.size());
-                response.put("tools", toolsList);
-                
-                LOGGER.info("Discovered " + tools.size() + " tools from " + url);
-                return Response.ok(response).build();
-                
-            } finally {
-                client.close();
-            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("server", result.getServer());
+            response.put("toolCount", result.getTools().size());
+            response.put("tools", result.toToolMaps());
+            return Response.ok(response).build();
             
         } catch (Exception e) {
             LOGGER.severe("Failed to discover tools from MCP server: " + e.getMessage());
@@ -119,7 +95,11 @@ public class MCPDiscoveryResource {
      */
     @POST
     @Path("/test")
-    public Response testConnection(Map<String, String> request) {
+    public void testConnection(Map<String, String> request, @Suspended AsyncResponse asyncResponse) {
+        upstream.submit(asyncResponse, () -> doTestConnection(request));
+    }
+    
+    private Response doTestConnection(Map<String, String> request) {
         String url = request.get("url");
         
         if (url == null || url.trim().isEmpty()) {
@@ -131,16 +111,14 @@ public class MCPDiscoveryResource {
         try {
             LOGGER.info("Testing connection to MCP server: " + url);
             
-            try (StandardMCPClient client = StandardMCPClient.createSseClient(url)) {
-                boolean connected = client.ping();
-                
-                Map<String, Object> response = new HashMap<>();
-                response.put("success", connected);
-                response.put("server", url);
-                response.put("message", connected ? "Connected successfully" : "Connection failed");
-                
-                return Response.ok(response).build();
-            }
+            boolean connected = discovery.testConnection(url);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", connected);
+            response.put("server", url);
+            response.put("message", connected ? "Connected successfully" : "Connection failed");
+            
+            return Response.ok(response).build();
             
         } catch (Exception e) {
             LOGGER.warning("Connection test failed: " + e.getMessage());
@@ -150,6 +128,15 @@ public class MCPDiscoveryResource {
         }
     }
     
+    /**
+     * Open MCP sessions and pool counters
+     */
+    @GET
+    @Path("/sessions")
+    public Response getSessionStats() {
+        return Response.ok(discovery.getSessionStats()).build();
+    }
+    
     /**
      * Helper method to create error response
      */
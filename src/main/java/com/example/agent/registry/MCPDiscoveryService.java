@@ -0,0 +1,215 @@
+package com.example.agent.registry;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+/**
+ * Discovers the tools an MCP server offers.
+ *
+ * Shared in-process by {@link ToolRegistry} (catalog refreshes) and
+ * {@link MCPDiscoveryResource} (the UI), so the registry talks to MCP servers
+ * directly instead of going through its own HTTP API. Requests run on pooled,
+ * long-lived sessions. Servers passed to {@link #subscribe} keep their session
+ * open, and the tool list that follows a notifications/tools/list_changed from
+ * one of them is reported to listeners under the endpoint it was subscribed as.
+ */
+public class MCPDiscoveryService {
+
+    private static final Logger LOGGER = Logger.getLogger(MCPDiscoveryService.class.getName());
+
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Told a subscribed server's tools after they changed
+     */
+    public interface ToolsChangedListener {
+        void toolsChanged(String endpoint, DiscoveryResult tools);
+    }
+
+    private final MCPSessionPool sessions;
+    private final Duration requestTimeout;
+    // SSE URL -> subscribed endpoints reached through it (base and /sse forms of one server)
+    private volatile Map<String, Set<String>> subscribedEndpoints = Map.of();
+    private final List<ToolsChangedListener> listeners = new CopyOnWriteArrayList<>();
+
+    public MCPDiscoveryService() {
+        this(new MCPSessionPool(), DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    /**
+     * @param requestTimeout per-server bound on connecting and on each request
+     */
+    public MCPDiscoveryService(MCPSessionPool sessions, Duration requestTimeout) {
+        this.sessions = sessions;
+        this.requestTimeout = requestTimeout;
+        sessions.addListener(this::toolsChanged);
+    }
+
+    /**
+     * Discover tools from a server over SSE; a base URL gets /sse appended
+     */
+    public DiscoveryResult discoverSse(String url) throws Exception {
+        return discover(sseConfig(url));
+    }
+
+    /**
+     * Discover tools from a server launched as a local process over stdio
+     */
+    public DiscoveryResult discoverStdio(String command, String... args) throws Exception {
+        return discover(new StandardMCPClient.MCPConfig(StandardMCPClient.TransportType.STDIO)
+            .withCommand(command, args)
+            .withTimeout((int) requestTimeout.toSeconds()));
+    }
+
+    /**
+     * List the server's tools on its pooled session
+     */
+    public DiscoveryResult discover(StandardMCPClient.MCPConfig config) throws Exception {
+        return sessions.execute(config, client -> {
+            List<StandardMCPClient.MCPToolInfo> tools = client.listTools();
+            LOGGER.fine("Discovered " + tools.size() + " tools from " + client.getServerIdentifier());
+            return new DiscoveryResult(client.getServerIdentifier(), tools);
+        });
+    }
+
+    /**
+     * Whether a server accepts a connection and answers a ping.
+     * A pooled session that stopped answering is replaced and asked again.
+     */
+    public boolean testConnection(String url) throws Exception {
+        StandardMCPClient.MCPConfig config = new StandardMCPClient.MCPConfig(StandardMCPClient.TransportType.SSE).withUrl(url);
+        if (sessions.execute(config, StandardMCPClient::ping)) {
+            return true;
+        }
+        // An interrupted ping fails without asking the server; leave the shared session alone
+        if (Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        sessions.invalidate(config);
+        return sessions.execute(config, StandardMCPClient::ping);
+    }
+
+    /**
+     * Whether the server at an endpoint answers a ping on its pooled SSE session.
+     * A session that stopped answering is replaced and pinged again; a server that
+     * cannot be connected to is not healthy.
+     */
+    public boolean ping(String endpoint) {
+        StandardMCPClient.MCPConfig config = sseConfig(endpoint);
+        try {
+            if (sessions.execute(config, StandardMCPClient::ping)) {
+                return true;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            sessions.invalidate(config);
+            return sessions.execute(config, StandardMCPClient::ping);
+        } catch (Exception e) {
+            LOGGER.fine("Failed to ping MCP server " + endpoint + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Keep sessions open to exactly these SSE servers and listen for their tool
+     * changes, replacing the previous set
+     */
+    public void subscribe(Set<String> endpoints) {
+        Map<String, Set<String>> byUrl = new HashMap<>();
+        for (String endpoint : endpoints) {
+            byUrl.computeIfAbsent(sseUrl(endpoint), u -> new HashSet<>()).add(endpoint);
+        }
+        List<StandardMCPClient.MCPConfig> configs = new ArrayList<>();
+        for (String url : byUrl.keySet()) {
+            configs.add(sseConfig(url));
+        }
+        subscribedEndpoints = byUrl;
+        sessions.subscribe(configs);
+    }
+
+    /**
+     * Whether the endpoint's tool changes currently arrive as notifications
+     */
+    public boolean isSubscribed(String endpoint) {
+        return sessions.isSubscribed(sseConfig(endpoint));
+    }
+
+    public void addListener(ToolsChangedListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Session pool counters
+     */
+    public Map<String, Object> getSessionStats() {
+        return sessions.getStats();
+    }
+
+    public void close() {
+        sessions.close();
+    }
+
+    private StandardMCPClient.MCPConfig sseConfig(String url) {
+        return new StandardMCPClient.MCPConfig(StandardMCPClient.TransportType.SSE)
+            .withUrl(sseUrl(url))
+            .withTimeout((int) requestTimeout.toSeconds());
+    }
+
+    private void toolsChanged(String url, List<StandardMCPClient.MCPToolInfo> tools) {
+        DiscoveryResult result = new DiscoveryResult(url, tools);
+        for (String endpoint : subscribedEndpoints.getOrDefault(url, Set.of())) {
+            for (ToolsChangedListener listener : listeners) {
+                listener.toolsChanged(endpoint, result);
+            }
+        }
+    }
+
+    /**
+     * SSE endpoint for a server URL, which may be given as its base URL
+     */
+    public static String sseUrl(String url) {
+        if (url.endsWith("/sse")) {
+            return url;
+        }
+        return url.endsWith("/") ? url + "sse" : url + "/sse";
+    }
+
+    /**
+     * Tools offered by one server
+     */
+    public static class DiscoveryResult {
+        private final String server;
+        private final List<StandardMCPClient.MCPToolInfo> tools;
+
+        public DiscoveryResult(String server, List<StandardMCPClient.MCPToolInfo> tools) {
+            this.server = server;
+            this.tools = tools;
+        }
+
+        public String getServer() {
+            return server;
+        }
+
+        public List<StandardMCPClient.MCPToolInfo> getTools() {
+            return tools;
+        }
+
+        /**
+         * Tools in the API's JSON shape: name, description, inputSchema
+         */
+        public List<Map<String, Object>> toToolMaps() {
+            List<Map<String, Object>> maps = new ArrayList<>(tools.size());
+            for (StandardMCPClient.MCPToolInfo tool : tools) {
+                Map<String, Object> map = new HashMap<>();
+                map.put("name", tool.getName());
+                map.put("description", tool.getDescription());
+                map.put("inputSchema", tool.getInputSchema());
+                maps.add(map);
+            }
+            return maps;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.agent.registry;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Health-checks the MCP servers of registered tools in the background.
+ *
+ * An endpoint is checked by pinging it over its pooled MCP session (see
+ * {@link MCPDiscoveryService#ping}), so a check reuses the session that catalog
+ * refreshes and tool calls use rather than opening a connection of its own.
+ * Every endpoint is checked once per interval; a failing endpoint is checked with
+ * exponential backoff (doubling per consecutive failure, up to the max backoff).
+ * Results, including a short latency history, are stored in
+ * {@link RegistryNamespace#TOOL_HEALTH}, so status reads never contact the server
+ * and every node sees the same state. The stored next_check_at also keeps nodes
+ * from re-checking an endpoint another node just checked; results are written
+ * with compare-and-set, so concurrent checks on several nodes never drop each
+ * other's history. Each sweep also reports the set of registered endpoints to
+ * listeners, so in-memory views of the registered servers follow registrations
+ * made on any node. That set is kept from the tools' delta listing, so a sweep
+ * only decodes tools changed since the last one; every few minutes all tools are
+ * read again, and health records of endpoints no longer registered are deleted.
+ */
+public class MCPHealthMonitor {
+
+    private static final Logger LOGGER = Logger.getLogger(MCPHealthMonitor.class.getName());
+    private static final RegistryNamespace NAMESPACE = RegistryNamespace.TOOL_HEALTH;
+
+    private static final int HISTORY_SIZE = 20;
+    // Backoff stops doubling after this many consecutive failures
+    private static final int MAX_BACKOFF_EXPONENT = 6;
+    private static final long MAX_SWEEP_INTERVAL_MS = 5_000;
+    private static final int DEFAULT_CHECK_THREADS = 4;
+    // Also catches changes a writer with a lagging clock stamped behind the delta position
+    private static final long FULL_RELOAD_INTERVAL_MS = 10 * 60_000;
+    // Changes stamped this long before a full reload are read again by the next delta
+    private static final long RELOAD_OVERLAP_MS = 10_000;
+    private static final int SAVE_ATTEMPTS = 5;
+
+    /**
+     * Checks whether the MCP server at an endpoint answers
+     */
+    public interface Probe {
+        boolean isHealthy(String endpoint) throws Exception;
+    }
+
+    /**
+     * Told the endpoints of all registered tools on every sweep
+     */
+    public interface EndpointsListener {
+        void registeredEndpoints(Set<String> endpoints);
+    }
+
+    private final RegistryStore store;
+    private final RegistryCodec codec;
+    private final Probe probe;
+    private final long intervalMs;
+    private final long maxBackoffMs;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService sweeper;
+    private final ExecutorService checkers;
+    private final Timer checkTimer;
+    private final List<EndpointsListener> listeners = new CopyOnWriteArrayList<>();
+    // Endpoint of every registered tool by tool ID; only touched by the sweep thread
+    private final Map<String, String> toolEndpoints = new HashMap<>();
+    private RegistryListings.DeltaPosition toolsPosition;
+    private long lastReloadAt;
+
+    public MCPHealthMonitor(RegistryStore store, RegistryCodec codec, Probe probe, Duration interval,
+                            Duration maxBackoff) {
+        this(store, codec, probe, interval, maxBackoff, DEFAULT_CHECK_THREADS, new MetricRegistry());
+    }
+
+    public MCPHealthMonitor(RegistryStore store, RegistryCodec codec, Probe probe, Duration interval,
+                            Duration maxBackoff, int checkThreads, MetricRegistry metrics) {
+        this.store = store;
+        this.codec = codec;
+        this.probe = probe;
+        this.intervalMs = interval.toMillis();
+        this.maxBackoffMs = Math.max(maxBackoff.toMillis(), intervalMs);
+        this.checkTimer = metrics.timer(MetricRegistry.name("mcp", "health", "check"));
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.checkers = Executors.newFixedThreadPool(checkThreads, runnable -> {
+            Thread thread = new Thread(runnable, "mcp-health-check-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mcp-health-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepMs = Math.min(intervalMs, MAX_SWEEP_INTERVAL_MS);
+        sweeper.scheduleWithFixedDelay(this::sweep, 0, sweepMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Check an endpoint as soon as possible (e.g. after a tool was registered for it),
+     * without waiting. Returns its stored health, pending if it was never checked.
+     */
+    public ToolHealth checkSoon(String endpoint) throws Exception {
+        ToolHealth health = getHealth(endpoint);
+        if (health == null) {
+            health = new ToolHealth(endpoint);
+            store.put(NAMESPACE, new RegistryStore.Record(endpoint, codec.encode(health), System.currentTimeMillis(),
+                Set.of()), RegistryStore.WriteMode.CREATE, null);
+        }
+        submit(endpoint);
+        return health;
+    }
+
+    /**
+     * Stored health of an endpoint, or null if it was never scheduled
+     */
+    public ToolHealth getHealth(String endpoint) throws Exception {
+        byte[] value = store.get(NAMESPACE, endpoint);
+        return value != null ? codec.decode(value, ToolHealth.class) : null;
+    }
+
+    /**
+     * Stored health of several endpoints in one bulk read; endpoints never scheduled are absent
+     */
+    public Map<String, ToolHealth> getHealth(Collection<String> endpoints) throws Exception {
+        List<String> ids = new ArrayList<>(endpoints);
+        List<byte[]> values = store.getAll(NAMESPACE, ids);
+        Map<String, ToolHealth> health = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (values.get(i) != null) {
+                health.put(ids.get(i), codec.decode(values.get(i), ToolHealth.class));
+            }
+        }
+        return health;
+    }
+
+    public void addListener(EndpointsListener listener) {
+        listeners.add(listener);
+    }
+
+    public void close() {
+        sweeper.shutdownNow();
+        checkers.shutdownNow();
+    }
+
+    /**
+     * Queue a check of every registered endpoint that is due
+     */
+    private void sweep() {
+        try {
+            long now = System.currentTimeMillis();
+            boolean reload = toolsPosition == null || now - lastReloadAt >= FULL_RELOAD_INTERVAL_MS;
+            if (reload) {
+                loadAllTools(now);
+            } else {
+                applyToolChanges(now);
+            }
+            Set<String> endpoints = new HashSet<>(toolEndpoints.values());
+            for (EndpointsListener listener : listeners) {
+                listener.registeredEndpoints(endpoints);
+            }
+            if (reload) {
+                deleteUnregisteredHealth(endpoints);
+            }
+            if (endpoints.isEmpty()) {
+                return;
+            }
+            Map<String, ToolHealth> health = getHealth(endpoints);
+            for (String endpoint : endpoints) {
+                ToolHealth current = health.get(endpoint);
+                if (current == null || current.getNextCheckAt() <= now) {
+                    submit(endpoint);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warning("MCP health sweep failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Read every tool's endpoint, and resume the delta listing from just before now
+     */
+    private void loadAllTools(long now) throws Exception {
+        List<String> ids = new ArrayList<>(store.ids(RegistryNamespace.TOOLS));
+        toolEndpoints.clear();
+        setEndpoints(ids, store.getAll(RegistryNamespace.TOOLS, ids));
+        toolsPosition = RegistryListings.DeltaPosition.at(now - RELOAD_OVERLAP_MS);
+        lastReloadAt = now;
+    }
+
+    /**
+     * Apply the tools updated or deleted since the last sweep
+     */
+    private void applyToolChanges(long now) throws Exception {
+        while (true) {
+            RegistryListings.ChangedIds changed = store.changedSince(RegistryNamespace.TOOLS, toolsPosition,
+                RegistryListings.MAX_LIMIT);
+            // Deletions older than the tombstones may have been missed
+            if (changed.resyncRequired) {
+                loadAllTools(now);
+                return;
+            }
+            for (String id : changed.deleted) {
+                toolEndpoints.remove(id);
+            }
+            // Current values, so a tool updated and then deleted comes back null
+            setEndpoints(changed.updated, store.getAll(RegistryNamespace.TOOLS, changed.updated));
+            toolsPosition = changed.next;
+            if (changed.updated.size() < RegistryListings.MAX_LIMIT && changed.deleted.size() < RegistryListings.MAX_LIMIT) {
+                return;
+            }
+        }
+    }
+
+    private void setEndpoints(List<String> ids, List<byte[]> values) throws Exception {
+        for (int i = 0; i < ids.size(); i++) {
+            String endpoint = values.get(i) != null
+                ? codec.decode(values.get(i), ToolMetadata.class).getEndpointUrl()
+                : null;
+            if (endpoint != null) {
+                toolEndpoints.put(ids.get(i), endpoint);
+            } else {
+                toolEndpoints.remove(ids.get(i));
+            }
+        }
+    }
+
+    /**
+     * Delete the stored health of endpoints that no registered tool uses any more
+     */
+    private void deleteUnregisteredHealth(Set<String> endpoints) {
+        long now = System.currentTimeMillis();
+        for (String endpoint : store.ids(NAMESPACE)) {
+            if (!endpoints.contains(endpoint) && store.delete(NAMESPACE, endpoint, now, null)) {
+                LOGGER.fine("Deleted health of unregistered MCP server " + endpoint);
+            }
+        }
+    }
+
+    private void submit(String endpoint) {
+        // Already being checked; that result will do
+        if (!inFlight.add(endpoint)) {
+            return;
+        }
+        try {
+            checkers.execute(() -> {
+                try {
+                    check(endpoint);
+                } catch (Exception e) {
+                    LOGGER.warning("Failed to record health of MCP server " + endpoint + ": " + e.getMessage());
+                } finally {
+                    inFlight.remove(endpoint);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(endpoint);
+        }
+    }
+
+    private void check(String endpoint) throws Exception {
+        long start = System.nanoTime();
+        boolean healthy;
+        try {
+            healthy = probe.isHealthy(endpoint);
+        } catch (Exception e) {
+            LOGGER.fine("Health check of MCP server " + endpoint + " failed: " + e.getMessage());
+            healthy = false;
+        }
+        long elapsed = System.nanoTime() - start;
+        checkTimer.update(elapsed, TimeUnit.NANOSECONDS);
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(elapsed);
+
+        for (int attempt = 0; attempt < SAVE_ATTEMPTS; attempt++) {
+            // Re-read so history recorded by other nodes is kept, and only replace what was read
+            byte[] stored = store.get(NAMESPACE, endpoint);
+            ToolHealth health = stored != null ? codec.decode(stored, ToolHealth.class) : new ToolHealth(endpoint);
+            String previousStatus = health.getStatus();
+            long now = System.currentTimeMillis();
+            record(health, healthy, latencyMs, now);
+
+            byte[] value = codec.encode(health);
+            boolean saved = stored != null
+                ? store.replaceValue(NAMESPACE, endpoint, stored, value)
+                : store.put(NAMESPACE, new RegistryStore.Record(endpoint, value, now, Set.of()),
+                    RegistryStore.WriteMode.CREATE, null);
+            if (saved) {
+                if (!health.getStatus().equals(previousStatus)) {
+                    LOGGER.info("MCP server " + endpoint + " is now " + health.getStatus());
+                }
+                return;
+            }
+        }
+        LOGGER.fine("Health of MCP server " + endpoint + " kept changing; dropped this check's result");
+    }
+
+    /**
+     * Apply one check's outcome to the endpoint's health and history
+     */
+    private void record(ToolHealth health, boolean healthy, long latencyMs, long now) {
+        health.setLastCheckedAt(now);
+        health.setLastLatencyMs(latencyMs);
+        if (healthy) {
+            health.setStatus(ToolHealth.HEALTHY);
+            health.setLastHealthyAt(now);
+            health.setConsecutiveFailures(0);
+            health.setNextCheckAt(now + intervalMs);
+        } else {
+            health.setStatus(ToolHealth.UNHEALTHY);
+            health.setConsecutiveFailures(health.getConsecutiveFailures() + 1);
+            health.setNextCheckAt(now + backoffMs(health.getConsecutiveFailures()));
+        }
+
+        List<ToolHealth.Check> history = health.getHistory();
+        history.add(new ToolHealth.Check(now, healthy, latencyMs));
+        if (history.size() > HISTORY_SIZE) {
+            history.subList(0, history.size() - HISTORY_SIZE).clear();
+        }
+    }
+
+    private long backoffMs(int failures) {
+        long backoff = intervalMs << Math.min(failures, MAX_BACKOFF_EXPONENT);
+        return Math.min(backoff, maxBackoffMs);
+    }
+}
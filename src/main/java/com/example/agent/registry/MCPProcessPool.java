@@ -0,0 +1,447 @@
+package com.example.agent.registry;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Warm stdio MCP server processes, pooled per command line and environment.
+ *
+ * Starting a stdio server means starting an interpreter, so processes are kept
+ * running between calls. Each server gets between minProcesses and maxProcesses
+ * processes, and each process runs at most maxConcurrentRequests calls at once.
+ * Calls go to the least busy process. A new process is started only when all
+ * existing ones are at their limit, and a call waits up to maxWait for capacity
+ * once maxProcesses are running. Processes that stop answering pings are
+ * replaced (a call that timed out or was interrupted says nothing either way), and the pool is topped back up to minProcesses. Processes above
+ * minProcesses that sit idle for idleTimeout are stopped. A server that goes
+ * unused for {@value #IDLE_GROUP_TIMEOUTS} idle timeouts has all its processes
+ * stopped.
+ */
+public class MCPProcessPool {
+
+    private static final Logger LOGGER = Logger.getLogger(MCPProcessPool.class.getName());
+
+    private static final long MAINTENANCE_INTERVAL_MS = 10_000;
+    private static final int IDLE_GROUP_TIMEOUTS = 10;
+
+    private final int minProcesses;
+    private final int maxProcesses;
+    private final int maxConcurrentRequests;
+    private final long idleTimeoutMs;
+    private final long validateAfterMs;
+    private final long maxWaitMs;
+    private final Map<String, Group> groups = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService maintainer;
+
+    private final AtomicInteger runningProcesses = new AtomicInteger();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong restarts = new AtomicLong();
+    private final AtomicLong reaped = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+
+    public MCPProcessPool() {
+        this(1, 4, 4, Duration.ofMinutes(5), Duration.ofSeconds(30), Duration.ofSeconds(5));
+    }
+
+    /**
+     * @param validateAfter idle processes are pinged this often, so crashed ones are replaced before use
+     * @param maxWait how long a call waits for a free slot once maxProcesses are busy
+     */
+    public MCPProcessPool(int minProcesses, int maxProcesses, int maxConcurrentRequests,
+                          Duration idleTimeout, Duration validateAfter, Duration maxWait) {
+        this.minProcesses = minProcesses;
+        this.maxProcesses = Math.max(maxProcesses, Math.max(minProcesses, 1));
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.idleTimeoutMs = idleTimeout.toMillis();
+        this.validateAfterMs = validateAfter.toMillis();
+        this.maxWaitMs = maxWait.toMillis();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.maintainer = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "mcp-process-pool-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintainer.scheduleWithFixedDelay(this::maintain, MAINTENANCE_INTERVAL_MS, MAINTENANCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run a call on one of the server's processes. If that process turns out to
+     * have died, it is replaced and the call is retried once on another process.
+     * Only for calls that are safe to repeat.
+     */
+    public <T> T execute(StandardMCPClient.MCPConfig config, MCPSessionPool.SessionCall<T> call) throws Exception {
+        String key = MCPSessionPool.keyOf(config);
+        Group group = groups.computeIfAbsent(key, k -> new Group(k, config));
+        Worker worker = acquire(group);
+        // Group was shut down while we waited; start over with a new one
+        while (worker == null) {
+            group = groups.computeIfAbsent(key, k -> new Group(k, config));
+            worker = acquire(group);
+        }
+        try {
+            return call.apply(worker.client);
+        } catch (Exception e) {
+            // Given up on, or the process answered, so the failure was the call's own
+            if (MCPSessionPool.isAbandoned(e) || worker.client.ping()) {
+                throw e;
+            }
+            LOGGER.info("MCP process for " + config.getCommand() + " is dead, restarting: " + e.getMessage());
+            retire(group, worker);
+            restarts.incrementAndGet();
+        } finally {
+            release(group, worker);
+        }
+
+        // Other processes may have died too (e.g. the interpreter was upgraded), so check before retrying
+        Worker retry = acquireLive(group);
+        if (retry == null) {
+            return execute(config, call);
+        }
+        try {
+            return call.apply(retry.client);
+        } finally {
+            release(group, retry);
+        }
+    }
+
+    /**
+     * Run a call on one of the server's processes without retrying, for calls that
+     * must not run twice. A process found dead is still replaced.
+     */
+    public <T> T executeOnce(StandardMCPClient.MCPConfig config, MCPSessionPool.SessionCall<T> call) throws Exception {
+        String key = MCPSessionPool.keyOf(config);
+        Group group;
+        Worker worker;
+        do {
+            group = groups.computeIfAbsent(key, k -> new Group(k, config));
+            worker = acquire(group);
+        } while (worker == null);
+        try {
+            return call.apply(worker.client);
+        } catch (Exception e) {
+            if (!MCPSessionPool.isAbandoned(e) && !worker.client.ping()) {
+                LOGGER.info("MCP process for " + config.getCommand() + " is dead, restarting: " + e.getMessage());
+                retire(group, worker);
+                restarts.incrementAndGet();
+            }
+            throw e;
+        } finally {
+            release(group, worker);
+        }
+    }
+
+    /**
+     * Stop all of the server's processes; the next call starts new ones
+     */
+    public void invalidate(StandardMCPClient.MCPConfig config) {
+        Group group = groups.remove(MCPSessionPool.keyOf(config));
+        if (group != null) {
+            synchronized (group) {
+                group.retired = true;
+            }
+            retireAll(group);
+        }
+    }
+
+    /**
+     * Running processes and lifetime counters. Servers are listed by command only,
+     * since their environment may hold credentials.
+     */
+    public Map<String, Object> getStats() {
+        List<Map<String, Object>> servers = new ArrayList<>();
+        for (Group group : groups.values()) {
+            Map<String, Object> server = new LinkedHashMap<>();
+            server.put("command", group.config.getCommand());
+            synchronized (group) {
+                int inFlight = 0;
+                for (Worker worker : group.workers) {
+                    inFlight += worker.inFlight;
+                }
+                server.put("processes", group.workers.size());
+                server.put("starting", group.starting);
+                server.put("in_flight", inFlight);
+            }
+            servers.add(server);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running_processes", runningProcesses.get());
+        stats.put("min_processes", minProcesses);
+        stats.put("max_processes", maxProcesses);
+        stats.put("max_concurrent_requests", maxConcurrentRequests);
+        stats.put("started", started.get());
+        stats.put("restarts", restarts.get());
+        stats.put("reaped", reaped.get());
+        stats.put("waits", waits.get());
+        stats.put("servers", servers);
+        return stats;
+    }
+
+    public void close() {
+        maintainer.shutdownNow();
+        for (Group group : groups.values()) {
+            retireAll(group);
+        }
+        groups.clear();
+    }
+
+    /**
+     * Reserve a slot on the least busy process, starting a process if every
+     * running one is full and the server is below maxProcesses. Returns null if
+     * the group has been shut down.
+     */
+    private Worker acquire(Group group) throws Exception {
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        synchronized (group) {
+            boolean waited = false;
+            while (true) {
+                if (group.retired) {
+                    return null;
+                }
+                Worker best = null;
+                for (Worker worker : group.workers) {
+                    if (worker.inFlight < maxConcurrentRequests && (best == null || worker.inFlight < best.inFlight)) {
+                        best = worker;
+                    }
+                }
+                if (best != null) {
+                    best.inFlight++;
+                    best.lastUsedAt = System.currentTimeMillis();
+                    group.lastUsedAt = best.lastUsedAt;
+                    return best;
+                }
+                if (group.workers.size() + group.starting < maxProcesses) {
+                    group.starting++;
+                    break;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IllegalStateException("All " + maxProcesses + " MCP processes for "
+                        + group.config.getCommand() + " are busy");
+                }
+                if (!waited) {
+                    waits.incrementAndGet();
+                    waited = true;
+                }
+                group.wait(remaining);
+            }
+        }
+
+        // Started outside the lock so calls to running processes are not held up
+        Worker worker = start(group);
+        synchronized (group) {
+            worker.inFlight++;
+            group.lastUsedAt = worker.lastUsedAt;
+        }
+        return worker;
+    }
+
+    /**
+     * Acquire a process that answers a ping, replacing dead ones along the way
+     */
+    private Worker acquireLive(Group group) throws Exception {
+        for (int attempt = 0; attempt < maxProcesses; attempt++) {
+            Worker worker = acquire(group);
+            if (worker == null || worker.client.ping()) {
+                return worker;
+            }
+            retire(group, worker);
+            restarts.incrementAndGet();
+            release(group, worker);
+        }
+        return acquire(group);
+    }
+
+    private void release(Group group, Worker worker) {
+        synchronized (group) {
+            worker.inFlight--;
+            worker.lastUsedAt = System.currentTimeMillis();
+            group.notifyAll();
+        }
+        if (worker.orphaned) {
+            closeWorker(worker);
+        }
+    }
+
+    /**
+     * Start a process for a slot already reserved in group.starting
+     */
+    private Worker start(Group group) throws Exception {
+        StandardMCPClient client;
+        try {
+            client = new StandardMCPClient(group.config);
+        } catch (Exception e) {
+            synchronized (group) {
+                group.starting--;
+                group.notifyAll();
+            }
+            throw e;
+        }
+        Worker worker = new Worker(client);
+        runningProcesses.incrementAndGet();
+        started.incrementAndGet();
+        synchronized (group) {
+            group.starting--;
+            if (!group.retired) {
+                group.workers.add(worker);
+                group.notifyAll();
+                return worker;
+            }
+        }
+        // Group shut down while the process was starting; the caller's call still runs on it
+        worker.orphaned = true;
+        return worker;
+    }
+
+    private void retire(Group group, Worker worker) {
+        synchronized (group) {
+            if (!group.workers.remove(worker)) {
+                return;
+            }
+            group.notifyAll();
+        }
+        closeWorker(worker);
+    }
+
+    private void retireAll(Group group) {
+        List<Worker> workers;
+        synchronized (group) {
+            workers = new ArrayList<>(group.workers);
+            group.workers.clear();
+            group.notifyAll();
+        }
+        workers.forEach(this::closeWorker);
+    }
+
+    private void closeWorker(Worker worker) {
+        worker.client.close();
+        runningProcesses.decrementAndGet();
+    }
+
+    /**
+     * Replace crashed processes, stop idle ones and keep each server at minProcesses
+     */
+    private void maintain() {
+        long now = System.currentTimeMillis();
+        for (Group group : groups.values()) {
+            try {
+                if (retireIfUnused(group, now)) {
+                    continue;
+                }
+                reapAndValidate(group, now);
+                topUp(group);
+            } catch (Exception e) {
+                LOGGER.warning("MCP process maintenance failed for " + group.config.getCommand() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean retireIfUnused(Group group, long now) {
+        synchronized (group) {
+            if (now - group.lastUsedAt <= idleTimeoutMs * IDLE_GROUP_TIMEOUTS || group.starting > 0) {
+                return false;
+            }
+            for (Worker worker : group.workers) {
+                if (worker.inFlight > 0) {
+                    return false;
+                }
+            }
+            group.retired = true;
+        }
+        groups.remove(group.key, group);
+        retireAll(group);
+        LOGGER.fine("Stopped unused MCP server processes for " + group.config.getCommand());
+        return true;
+    }
+
+    private void reapAndValidate(Group group, long now) {
+        List<Worker> toValidate = new ArrayList<>();
+        List<Worker> toReap = new ArrayList<>();
+        synchronized (group) {
+            int remaining = group.workers.size();
+            for (Worker worker : group.workers) {
+                if (worker.inFlight > 0) {
+                    continue;
+                }
+                long idle = now - worker.lastUsedAt;
+                if (idle > idleTimeoutMs && remaining > minProcesses) {
+                    toReap.add(worker);
+                    remaining--;
+                } else if (idle > validateAfterMs) {
+                    // Held like a call so it is neither handed out nor reaped while pinged
+                    worker.inFlight++;
+                    toValidate.add(worker);
+                }
+            }
+        }
+
+        for (Worker worker : toReap) {
+            retire(group, worker);
+            reaped.incrementAndGet();
+        }
+        for (Worker worker : toValidate) {
+            boolean alive = worker.client.ping();
+            synchronized (group) {
+                worker.inFlight--;
+                group.notifyAll();
+            }
+            if (!alive) {
+                LOGGER.info("MCP process for " + group.config.getCommand() + " stopped answering, restarting");
+                retire(group, worker);
+                restarts.incrementAndGet();
+            }
+        }
+    }
+
+    private void topUp(Group group) throws Exception {
+        while (true) {
+            synchronized (group) {
+                if (group.retired || group.workers.size() + group.starting >= minProcesses) {
+                    return;
+                }
+                group.starting++;
+            }
+            start(group);
+        }
+    }
+
+    /**
+     * Processes of one server; workers, starting and retired are guarded by the group's lock
+     */
+    private static class Group {
+        final String key;
+        final StandardMCPClient.MCPConfig config;
+        final List<Worker> workers = new ArrayList<>();
+        int starting;
+        boolean retired;
+        volatile long lastUsedAt = System.currentTimeMillis();
+
+        Group(String key, StandardMCPClient.MCPConfig config) {
+            this.key = key;
+            this.config = config;
+        }
+    }
+
+    /**
+     * One running server process; inFlight is guarded by its group's lock
+     */
+    private static class Worker {
+        final StandardMCPClient client;
+        int inFlight;
+        volatile long lastUsedAt = System.currentTimeMillis();
+        // Started for a group that was shut down meanwhile; closed after its one call
+        volatile boolean orphaned;
+
+        Worker(StandardMCPClient client) {
+            this.client = client;
+        }
+    }
+}
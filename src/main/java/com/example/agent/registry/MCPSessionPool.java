@@ -0,0 +1,574 @@
+package com.example.agent.registry;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Long-lived MCP client sessions, one per server, shared by concurrent callers.
+ *
+ * Sessions are keyed by transport and URL (or command line for stdio servers) and
+ * are opened on first use. An MCP session multiplexes concurrent requests, so
+ * callers share it rather than each paying for a connect and initialize. A session
+ * idle for longer than the validation interval is pinged before it is handed out
+ * and reopened if the ping fails; a call that fails on a session that no longer
+ * answers pings is retried once on a fresh session. Calls that time out or are
+ * interrupted leave the session open. Sessions unused for the idle
+ * timeout are closed, and when maxSessions are open the least recently used idle
+ * session is closed to make room.
+ *
+ * Sessions can be subscribed to, for servers whose tool changes callers want to
+ * hear about: a subscribed session is kept open (reconnecting when it drops) as
+ * long as the server announces notifications/tools/list_changed, and each such
+ * notification is passed to the {@link ToolsChangedListener}s. Subscribed
+ * sessions are never closed to make room for others; at most maxSessions - 1
+ * servers are subscribed, so at least one session is always left for the rest.
+ *
+ * Stdio servers are handed to an {@link MCPProcessPool}, which keeps several warm
+ * processes per server since a single process serves requests one at a time.
+ */
+public class MCPSessionPool {
+
+    private static final Logger LOGGER = Logger.getLogger(MCPSessionPool.class.getName());
+
+    private static final long EVICTION_INTERVAL_MS = 30_000;
+    private static final int SUBSCRIBE_THREADS = 4;
+
+    /**
+     * Work to run against a pooled session
+     */
+    public interface SessionCall<T> {
+        T apply(StandardMCPClient client) throws Exception;
+    }
+
+    /**
+     * Told a server's new tools when it sends notifications/tools/list_changed on a pooled session
+     */
+    public interface ToolsChangedListener {
+        void toolsChanged(String url, List<StandardMCPClient.MCPToolInfo> tools);
+    }
+
+    private final int maxSessions;
+    private final long idleTimeoutMs;
+    private final long validateAfterMs;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger openSessions = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+    private final MCPProcessPool processes;
+    // Subscribed sessions by key, and those whose server never sends tool change notifications
+    private final Map<String, StandardMCPClient.MCPConfig> subscriptions = new ConcurrentHashMap<>();
+    private final Set<String> unsubscribable = ConcurrentHashMap.newKeySet();
+    private final Set<String> connecting = ConcurrentHashMap.newKeySet();
+    // Whether the last subscribe call had to drop servers over the cap; logged on change only
+    private volatile boolean subscriptionsCapped;
+    private final ExecutorService subscribers;
+    private final List<ToolsChangedListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+
+    public MCPSessionPool() {
+        this(32, Duration.ofMinutes(5), Duration.ofSeconds(30), new MCPProcessPool());
+    }
+
+    public MCPSessionPool(int maxSessions, Duration idleTimeout, Duration validateAfter, MCPProcessPool processes) {
+        this.maxSessions = maxSessions;
+        this.processes = processes;
+        this.idleTimeoutMs = idleTimeout.toMillis();
+        this.validateAfterMs = validateAfter.toMillis();
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mcp-session-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, EVICTION_INTERVAL_MS, EVICTION_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        evictor.scheduleWithFixedDelay(this::keepSubscriptionsOpen, EVICTION_INTERVAL_MS, EVICTION_INTERVAL_MS,
+            TimeUnit.MILLISECONDS);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // Connecting to an unreachable server blocks until the timeout, so it happens off the evictor
+        this.subscribers = Executors.newFixedThreadPool(SUBSCRIBE_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "mcp-session-subscribe-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run a call on the server's session, reconnecting and retrying once if the
+     * session turns out to be dead. Only for calls that are safe to repeat.
+     */
+    public <T> T execute(StandardMCPClient.MCPConfig config, SessionCall<T> call) throws Exception {
+        if (isStdio(config)) {
+            return processes.execute(config, call);
+        }
+        Session session = borrow(config);
+        StandardMCPClient client = session.client;
+        try {
+            return call.apply(client);
+        } catch (Exception e) {
+            // Given up on, or the server answered, so the failure was the call's own
+            if (isAbandoned(e) || client.ping()) {
+                throw e;
+            }
+            LOGGER.info("MCP session " + session.key + " is dead, reconnecting: " + e.getMessage());
+            discard(session);
+            reconnects.incrementAndGet();
+        } finally {
+            release(session);
+        }
+
+        Session retry = borrow(config);
+        StandardMCPClient retryClient = retry.client;
+        try {
+            return call.apply(retryClient);
+        } finally {
+            release(retry);
+        }
+    }
+
+    /**
+     * Run a call on the server's session without retrying, for calls that must not
+     * run twice (e.g. tool calls). A session found dead is still closed so the next
+     * call reconnects.
+     */
+    public <T> T executeOnce(StandardMCPClient.MCPConfig config, SessionCall<T> call) throws Exception {
+        if (isStdio(config)) {
+            return processes.executeOnce(config, call);
+        }
+        Session session = borrow(config);
+        StandardMCPClient client = session.client;
+        try {
+            return call.apply(client);
+        } catch (Exception e) {
+            if (!isAbandoned(e) && !client.ping()) {
+                LOGGER.info("MCP session " + session.key + " is dead, closing: " + e.getMessage());
+                discard(session);
+                reconnects.incrementAndGet();
+            }
+            throw e;
+        } finally {
+            release(session);
+        }
+    }
+
+    /**
+     * Close the server's session, if open; the next call reconnects
+     */
+    public void invalidate(StandardMCPClient.MCPConfig config) {
+        if (isStdio(config)) {
+            processes.invalidate(config);
+            return;
+        }
+        Session session = sessions.get(keyOf(config));
+        if (session != null) {
+            discard(session);
+        }
+    }
+
+    /**
+     * Keep sessions to exactly these servers open for tool change notifications,
+     * replacing the previous set. Newly subscribed servers are connected in the
+     * background. Stdio servers are ignored.
+     */
+    public void subscribe(Collection<StandardMCPClient.MCPConfig> configs) {
+        Map<String, StandardMCPClient.MCPConfig> next = new TreeMap<>();
+        for (StandardMCPClient.MCPConfig config : configs) {
+            if (!isStdio(config)) {
+                next.put(keyOf(config), config);
+            }
+        }
+        capSubscriptions(next);
+        boolean added = !subscriptions.keySet().containsAll(next.keySet());
+        subscriptions.keySet().retainAll(next.keySet());
+        unsubscribable.retainAll(next.keySet());
+        subscriptions.putAll(next);
+        if (added) {
+            try {
+                evictor.execute(this::keepSubscriptionsOpen);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+    }
+
+    /**
+     * Keep the first maxSessions - 1 servers (in key order, so the same ones on
+     * every call); the rest fall back to periodic refreshes
+     */
+    private void capSubscriptions(Map<String, StandardMCPClient.MCPConfig> next) {
+        int cap = Math.max(0, maxSessions - 1);
+        boolean capped = next.size() > cap;
+        if (capped != subscriptionsCapped) {
+            subscriptionsCapped = capped;
+            if (capped) {
+                LOGGER.warning(next.size() + " MCP servers to subscribe to, but only " + cap
+                    + " sessions can be held open (maxSessions " + maxSessions + "); the rest are not subscribed");
+            } else {
+                LOGGER.info("All " + next.size() + " MCP servers are subscribed again");
+            }
+        }
+        if (capped) {
+            Iterator<String> keys = next.keySet().iterator();
+            for (int kept = 0; keys.hasNext(); kept++) {
+                keys.next();
+                if (kept >= cap) {
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the server's session is subscribed, open, and announced tool change notifications
+     */
+    public boolean isSubscribed(StandardMCPClient.MCPConfig config) {
+        String key = keyOf(config);
+        Session session = sessions.get(key);
+        return subscriptions.containsKey(key) && !unsubscribable.contains(key)
+            && session != null && session.client != null;
+    }
+
+    public void addListener(ToolsChangedListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Open sessions and lifetime counters
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("open_sessions", openSessions.get());
+        stats.put("max_sessions", maxSessions);
+        stats.put("opened", opened.get());
+        stats.put("reused", reused.get());
+        stats.put("evicted", evicted.get());
+        stats.put("reconnects", reconnects.get());
+        stats.put("subscribed", subscriptions.size() - unsubscribable.size());
+        stats.put("stdio", processes.getStats());
+        return stats;
+    }
+
+    public void close() {
+        evictor.shutdownNow();
+        subscribers.shutdownNow();
+        processes.close();
+        for (Session session : sessions.values()) {
+            discard(session);
+        }
+    }
+
+    /**
+     * Sessions are shared per server, identified by how it is reached
+     */
+    static String keyOf(StandardMCPClient.MCPConfig config) {
+        if (isStdio(config)) {
+            StringBuilder key = new StringBuilder("stdio:").append(config.getCommand());
+            if (config.getArgs() != null) {
+                for (String arg : config.getArgs()) {
+                    key.append(' ').append(arg);
+                }
+            }
+            if (!config.getEnv().isEmpty()) {
+                key.append(' ').append(new TreeMap<>(config.getEnv()));
+            }
+            return key.toString();
+        }
+        return "sse:" + config.getUrl();
+    }
+
+    /**
+     * Whether a call failed because it was interrupted or timed out rather than
+     * because its session broke. An interrupted thread cannot ping, and a slow
+     * call says nothing about the session, which other callers are still using.
+     */
+    static boolean isAbandoned(Exception e) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isStdio(StandardMCPClient.MCPConfig config) {
+        return config.getTransportType() == StandardMCPClient.TransportType.STDIO;
+    }
+
+    /**
+     * Hand out the server's session, connected and counted as in flight. Pinging
+     * and connecting happen outside the session's lock, so a slow server does not
+     * hold up eviction; concurrent borrowers of a connecting session wait for that
+     * one connect rather than each starting their own.
+     */
+    private Session borrow(StandardMCPClient.MCPConfig config) throws Exception {
+        String key = keyOf(config);
+        while (true) {
+            Session session = sessions.computeIfAbsent(key, Session::new);
+            if (session.client == null) {
+                ensureCapacity(session);
+            }
+
+            StandardMCPClient client;
+            CompletableFuture<StandardMCPClient> connection = null;
+            boolean connectHere = false;
+            synchronized (session) {
+                // Removed from the map by eviction while we waited; start over with a new one
+                if (session.retired) {
+                    continue;
+                }
+                client = session.client;
+                boolean validate = client != null && needsValidation(session);
+                // In flight from here on, so the session is not evicted while we ping or connect
+                session.inFlight.incrementAndGet();
+                session.lastUsedAt = System.currentTimeMillis();
+                if (client != null && !validate) {
+                    reused.incrementAndGet();
+                    return session;
+                }
+                if (client == null) {
+                    if (session.connection == null) {
+                        session.connection = new CompletableFuture<>();
+                        connectHere = true;
+                    }
+                    connection = session.connection;
+                }
+            }
+
+            try {
+                if (client != null) {
+                    if (client.ping()) {
+                        reused.incrementAndGet();
+                        return session;
+                    }
+                    LOGGER.info("MCP session " + key + " failed validation, reconnecting");
+                    synchronized (session) {
+                        if (session.client == client) {
+                            closeClient(session);
+                            reconnects.incrementAndGet();
+                        }
+                    }
+                    release(session);
+                    continue;
+                }
+                if (connectHere) {
+                    connect(session, config, connection);
+                }
+                awaitConnection(connection);
+                if (session.client != null) {
+                    return session;
+                }
+                // Retired while connecting, or right after; start over
+                release(session);
+            } catch (Exception e) {
+                release(session);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Open the session's client and publish it, unless the session was retired meanwhile
+     */
+    private void connect(Session session, StandardMCPClient.MCPConfig config,
+                         CompletableFuture<StandardMCPClient> connection) {
+        String url = config.getUrl();
+        StandardMCPClient client;
+        try {
+            client = new StandardMCPClient(config, tools -> notifyToolsChanged(url, tools));
+        } catch (Exception e) {
+            synchronized (session) {
+                session.connection = null;
+            }
+            connection.completeExceptionally(e);
+            return;
+        }
+
+        boolean published;
+        synchronized (session) {
+            session.connection = null;
+            published = !session.retired;
+            if (published) {
+                session.client = client;
+                openSessions.incrementAndGet();
+                opened.incrementAndGet();
+            }
+        }
+        if (!published) {
+            client.close();
+        }
+        // Waiters find the client on the session, or start over if it was retired
+        connection.complete(published ? client : null);
+    }
+
+    private static void awaitConnection(CompletableFuture<StandardMCPClient> connection) throws Exception {
+        try {
+            connection.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : new Exception(cause);
+        }
+    }
+
+    private void release(Session session) {
+        session.lastUsedAt = System.currentTimeMillis();
+        session.inFlight.decrementAndGet();
+    }
+
+    private boolean needsValidation(Session session) {
+        return System.currentTimeMillis() - session.lastUsedAt > validateAfterMs;
+    }
+
+    /**
+     * Close least recently used idle sessions, other than subscribed ones, until
+     * there is room for one more. Best effort: concurrent opens can briefly exceed
+     * the limit.
+     */
+    private void ensureCapacity(Session requester) {
+        while (openSessions.get() >= maxSessions) {
+            Session oldest = null;
+            for (Session session : sessions.values()) {
+                if (session != requester && session.client != null && session.inFlight.get() == 0
+                    && !isHeldOpen(session.key)
+                    && (oldest == null || session.lastUsedAt < oldest.lastUsedAt)) {
+                    oldest = session;
+                }
+            }
+            if (oldest == null) {
+                throw new IllegalStateException("All " + maxSessions + " MCP sessions are in use");
+            }
+            if (retireIfIdle(oldest, 0)) {
+                evicted.incrementAndGet();
+            }
+        }
+    }
+
+    // Subscribed and announcing tool changes, so kept open rather than evicted
+    private boolean isHeldOpen(String key) {
+        return subscriptions.containsKey(key) && !unsubscribable.contains(key);
+    }
+
+    /**
+     * Borrow every subscribed session once: opens the ones that are closed, and
+     * pings and reconnects idle ones, which also keeps them from idling out
+     */
+    private void keepSubscriptionsOpen() {
+        for (Map.Entry<String, StandardMCPClient.MCPConfig> e : subscriptions.entrySet()) {
+            String key = e.getKey();
+            // Unsubscribable servers, or still connecting from the last round
+            if (unsubscribable.contains(key) || !connecting.add(key)) {
+                continue;
+            }
+            try {
+                subscribers.execute(() -> {
+                    try {
+                        Session session = borrow(e.getValue());
+                        try {
+                            if (!session.client.supportsToolsListChanged()) {
+                                unsubscribable.add(key);
+                                LOGGER.fine("MCP server " + key + " does not send tool change notifications");
+                            }
+                        } finally {
+                            release(session);
+                        }
+                    } catch (Exception ex) {
+                        LOGGER.fine("Failed to open subscribed MCP session " + key + ": " + ex.getMessage());
+                    } finally {
+                        connecting.remove(key);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                connecting.remove(key);
+            }
+        }
+    }
+
+    private void notifyToolsChanged(String url, List<StandardMCPClient.MCPToolInfo> tools) {
+        LOGGER.fine("MCP server " + url + " changed its tools");
+        for (ToolsChangedListener listener : listeners) {
+            try {
+                listener.toolsChanged(url, tools);
+            } catch (RuntimeException e) {
+                LOGGER.warning("MCP tools listener failed for " + url + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void evictIdle() {
+        for (Session session : sessions.values()) {
+            if (retireIfIdle(session, idleTimeoutMs)) {
+                evicted.incrementAndGet();
+                LOGGER.fine("Closed idle MCP session " + session.key);
+            }
+        }
+    }
+
+    private boolean retireIfIdle(Session session, long minIdleMs) {
+        synchronized (session) {
+            if (session.retired || session.inFlight.get() > 0
+                || System.currentTimeMillis() - session.lastUsedAt < minIdleMs) {
+                return false;
+            }
+            retire(session);
+            return true;
+        }
+    }
+
+    private void discard(Session session) {
+        synchronized (session) {
+            if (!session.retired) {
+                retire(session);
+            }
+        }
+    }
+
+    // Caller holds the session's lock
+    private void retire(Session session) {
+        session.retired = true;
+        sessions.remove(session.key, session);
+        closeClient(session);
+    }
+
+    // Caller holds the session's lock
+    private void closeClient(Session session) {
+        if (session.client != null) {
+            session.client.close();
+            session.client = null;
+            openSessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * A server's session; client and connection are replaced under the session's lock
+     */
+    private static class Session {
+        final String key;
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile StandardMCPClient client;
+        // Set while one borrower connects the client; other borrowers wait on it
+        CompletableFuture<StandardMCPClient> connection;
+        volatile long lastUsedAt = System.currentTimeMillis();
+        boolean retired;
+
+        Session(String key) {
+            this.key = key;
+        }
+    }
+}
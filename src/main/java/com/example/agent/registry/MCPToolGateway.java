@@ -0,0 +1,302 @@
+package com.example.agent.registry;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.modelcontextprotocol.spec.McpSchema;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Calls tools on registered MCP servers over pooled sessions.
+ *
+ * Calls run on a shared worker pool, so a batch runs its calls concurrently.
+ * Each server takes at most maxConcurrentPerServer calls at once; further calls
+ * to it wait for a slot within their own timeout. A call that exceeds its timeout
+ * is reported as timed out but its worker is not interrupted, since that would
+ * break the session it shares with other calls; the MCP request timeout ends it.
+ * Tool calls are not idempotent, so a failed call is never retried. Calls to tools registered with
+ * a result TTL are answered from the {@link MCPToolResultCache} when possible.
+ */
+public class MCPToolGateway {
+
+    private static final Logger LOGGER = Logger.getLogger(MCPToolGateway.class.getName());
+
+    private final MCPSessionPool sessions;
+    private final MCPToolResultCache cache;
+    private final Duration requestTimeout;
+    private final int maxConcurrentPerServer;
+    private final Map<String, Semaphore> serverSlots = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+    private final Timer callTimer;
+    private final Counter timeouts;
+    private final Counter failures;
+
+    public MCPToolGateway(MCPSessionPool sessions, Duration requestTimeout) {
+        this(sessions, new MCPToolResultCache(10_000), requestTimeout, 8, 64, new MetricRegistry());
+    }
+
+    /**
+     * @param requestTimeout default and upper bound of each call's timeout
+     */
+    public MCPToolGateway(MCPSessionPool sessions, MCPToolResultCache cache, Duration requestTimeout,
+                          int maxConcurrentPerServer, int workerThreads, MetricRegistry metrics) {
+        this.sessions = sessions;
+        this.cache = cache;
+        this.requestTimeout = requestTimeout;
+        this.maxConcurrentPerServer = maxConcurrentPerServer;
+        this.callTimer = metrics.timer(MetricRegistry.name("mcp", "tools", "call"));
+        this.timeouts = metrics.counter(MetricRegistry.name("mcp", "tools", "call", "timeouts"));
+        this.failures = metrics.counter(MetricRegistry.name("mcp", "tools", "call", "failures"));
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "mcp-tool-call-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Call one tool and wait for its result
+     */
+    public CallResult call(Call call) {
+        return callAll(List.of(call)).get(0);
+    }
+
+    /**
+     * Call several tools concurrently; results are in the order of the calls
+     */
+    public List<CallResult> callAll(List<Call> calls) {
+        List<Future<CallResult>> futures = new ArrayList<>(calls.size());
+        List<Long> deadlines = new ArrayList<>(calls.size());
+        for (Call call : calls) {
+            long timeoutMs = timeoutMs(call);
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            deadlines.add(deadline);
+            try {
+                futures.add(workers.submit(() -> invoke(call, deadline)));
+            } catch (RejectedExecutionException e) {
+                futures.add(null);
+            }
+        }
+
+        List<CallResult> results = new ArrayList<>(calls.size());
+        for (int i = 0; i < calls.size(); i++) {
+            results.add(await(calls.get(i), futures.get(i), deadlines.get(i)));
+        }
+        return results;
+    }
+
+    /**
+     * Result cache hit and miss counts
+     */
+    public Map<String, Object> getCacheStats() {
+        return cache.getStats();
+    }
+
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private CallResult await(Call call, Future<CallResult> future, long deadline) {
+        if (future == null) {
+            return CallResult.failed(call, "Gateway is shutting down", 0, false);
+        }
+        long start = deadline - timeoutMs(call);
+        try {
+            return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            timeouts.inc();
+            return CallResult.failed(call, "Timed out after " + timeoutMs(call) + " ms",
+                System.currentTimeMillis() - start, true);
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            return CallResult.failed(call, "Interrupted", System.currentTimeMillis() - start, false);
+        } catch (ExecutionException e) {
+            // invoke() reports its own failures
+            return CallResult.failed(call, String.valueOf(e.getCause()), System.currentTimeMillis() - start, false);
+        }
+    }
+
+    private CallResult invoke(Call call, long deadline) {
+        long start = System.nanoTime();
+        String cacheKey = null;
+        if (call.cacheTtl != null) {
+            cacheKey = cache.key(call.endpoint, call.tool, call.arguments);
+            MCPToolResultCache.Entry cached = cache.get(cacheKey);
+            if (cached != null) {
+                return CallResult.cached(call, cached, elapsedMs(start));
+            }
+        }
+
+        Semaphore slots = serverSlots.computeIfAbsent(call.endpoint, e -> new Semaphore(maxConcurrentPerServer, true));
+        try {
+            if (!slots.tryAcquire(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                timeouts.inc();
+                return CallResult.failed(call, "All " + maxConcurrentPerServer + " call slots for "
+                    + call.endpoint + " stayed busy", elapsedMs(start), true);
+            }
+        } catch (InterruptedException e) {
+            return CallResult.failed(call, "Interrupted", elapsedMs(start), true);
+        }
+
+        try (Timer.Context ignored = callTimer.time()) {
+            StandardMCPClient.MCPConfig config = new StandardMCPClient.MCPConfig(StandardMCPClient.TransportType.SSE)
+                .withUrl(MCPDiscoveryService.sseUrl(call.endpoint))
+                .withTimeout((int) requestTimeout.toSeconds());
+            StandardMCPClient.ToolCallResult result = sessions.executeOnce(config,
+                client -> client.callTool(call.tool, call.arguments != null ? call.arguments : Map.of()));
+            if (cacheKey != null && !result.isError()) {
+                cache.put(cacheKey, result.getContent(), call.cacheTtl.toMillis());
+            }
+            return CallResult.completed(call, result, elapsedMs(start));
+        } catch (Exception e) {
+            failures.inc();
+            LOGGER.fine("Tool call " + call.tool + " on " + call.endpoint + " failed: " + e.getMessage());
+            return CallResult.failed(call, e.getMessage(), elapsedMs(start), false);
+        } finally {
+            slots.release();
+        }
+    }
+
+    private long timeoutMs(Call call) {
+        long max = requestTimeout.toMillis();
+        return call.timeoutMs != null && call.timeoutMs > 0 ? Math.min(call.timeoutMs, max) : max;
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * One tool call against a registered tool's MCP server
+     */
+    public static class Call {
+        final String toolId;
+        final String endpoint;
+        final String tool;
+        final Map<String, Object> arguments;
+        final Long timeoutMs;
+        final Duration cacheTtl;
+
+        public Call(String toolId, String endpoint, String tool, Map<String, Object> arguments, Long timeoutMs) {
+            this(toolId, endpoint, tool, arguments, timeoutMs, null);
+        }
+
+        /**
+         * @param cacheTtl how long the result may be served from cache; null if the tool is not cacheable
+         */
+        public Call(String toolId, String endpoint, String tool, Map<String, Object> arguments, Long timeoutMs,
+                    Duration cacheTtl) {
+            this.toolId = toolId;
+            this.endpoint = endpoint;
+            this.tool = tool;
+            this.arguments = arguments;
+            this.timeoutMs = timeoutMs;
+            this.cacheTtl = cacheTtl;
+        }
+    }
+
+    /**
+     * Outcome of one tool call; error is set when the call did not complete
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class CallResult {
+        @JsonProperty("tool_id")
+        private final String toolId;
+
+        @JsonProperty("tool")
+        private final String tool;
+
+        @JsonProperty("is_error")
+        private final boolean isError;
+
+        @JsonProperty("content")
+        private final List<McpSchema.Content> content;
+
+        @JsonProperty("error")
+        private final String error;
+
+        @JsonProperty("timed_out")
+        private final boolean timedOut;
+
+        @JsonProperty("latency_ms")
+        private final long latencyMs;
+
+        @JsonProperty("cached")
+        private final boolean cached;
+
+        private CallResult(Call call, boolean isError, List<McpSchema.Content> content, String error,
+                           boolean timedOut, long latencyMs, boolean cached) {
+            this.toolId = call.toolId;
+            this.tool = call.tool;
+            this.isError = isError;
+            this.content = content;
+            this.error = error;
+            this.timedOut = timedOut;
+            this.latencyMs = latencyMs;
+            this.cached = cached;
+        }
+
+        static CallResult completed(Call call, StandardMCPClient.ToolCallResult result, long latencyMs) {
+            return new CallResult(call, result.isError(), result.getContent(), null, false, latencyMs, false);
+        }
+
+        static CallResult cached(Call call, MCPToolResultCache.Entry entry, long latencyMs) {
+            return new CallResult(call, false, entry.getContent(), null, false, latencyMs, true);
+        }
+
+        static CallResult failed(Call call, String error, long latencyMs, boolean timedOut) {
+            return new CallResult(call, true, null, error, timedOut, latencyMs, false);
+        }
+
+        public String getToolId() {
+            return toolId;
+        }
+
+        public String getTool() {
+            return tool;
+        }
+
+        public boolean isError() {
+            return isError;
+        }
+
+        public List<McpSchema.Content> getContent() {
+            return content;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        public long getLatencyMs() {
+            return latencyMs;
+        }
+
+        public boolean isCached() {
+            return cached;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.agent.registry;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the tools every registered MCP server offers.
+ *
+ * Tool names, descriptions and input-schema parameter names are split into
+ * lowercase terms (snake_case, kebab-case and camelCase words are separated).
+ * Each server's tools are replaced as a unit when its catalog changes, so an
+ * update costs only that server's tools. A search matches tools containing
+ * every query term, either exactly or as a prefix. Matches in the name score
+ * above matches in parameters, which score above matches in the description,
+ * and exact term matches score above prefix matches.
+ */
+public class MCPToolIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int PARAMETER_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // term -> tool -> weight of the best field containing the term
+    private final NavigableMap<String, Map<ToolEntry, Integer>> postings = new TreeMap<>();
+    private final Map<String, List<ToolEntry>> toolsByEndpoint = new HashMap<>();
+
+    /**
+     * Replace the indexed tools of one server with its current catalog
+     */
+    public void update(String endpoint, List<Map<String, Object>> tools) {
+        List<ToolEntry> entries = entriesOf(endpoint, tools);
+        lock.writeLock().lock();
+        try {
+            removeLocked(endpoint);
+            addLocked(endpoint, entries);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index a server's catalog unless the server is indexed already, so a catalog
+     * read earlier never replaces one a change notification indexed meanwhile
+     */
+    public void addIfAbsent(String endpoint, List<Map<String, Object>> tools) {
+        lock.readLock().lock();
+        try {
+            if (toolsByEndpoint.containsKey(endpoint)) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<ToolEntry> entries = entriesOf(endpoint, tools);
+        lock.writeLock().lock();
+        try {
+            if (!toolsByEndpoint.containsKey(endpoint)) {
+                addLocked(endpoint, entries);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop every server not in the given set (e.g. after its last tool was deleted)
+     */
+    public void retainEndpoints(Set<String> endpoints) {
+        lock.writeLock().lock();
+        try {
+            for (String endpoint : new ArrayList<>(toolsByEndpoint.keySet())) {
+                if (!endpoints.contains(endpoint)) {
+                    removeLocked(endpoint);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tools matching every term of the query, best first
+     */
+    public List<Hit> search(String query, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(tokenize(query));
+        if (queryTerms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<ToolEntry, Integer> scores = null;
+        lock.readLock().lock();
+        try {
+            for (String term : queryTerms) {
+                Map<ToolEntry, Integer> termScores = match(term);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    for (Map.Entry<ToolEntry, Integer> e : scores.entrySet()) {
+                        e.setValue(e.getValue() + termScores.get(e.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Hit> hits = new ArrayList<>(scores.size());
+        scores.forEach((entry, score) -> hits.add(new Hit(entry, score)));
+        hits.sort(Comparator.comparingInt(Hit::getScore).reversed()
+            .thenComparing(Hit::getName, Comparator.nullsLast(Comparator.naturalOrder())));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    /**
+     * Tools containing the term or a term it prefixes; exact matches score double
+     */
+    private Map<ToolEntry, Integer> match(String term) {
+        Map<ToolEntry, Integer> matches = new HashMap<>();
+        for (Map.Entry<String, Map<ToolEntry, Integer>> posting
+                : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            int factor = posting.getKey().equals(term) ? 2 : 1;
+            posting.getValue().forEach((entry, weight) -> matches.merge(entry, weight * factor, Math::max));
+        }
+        return matches;
+    }
+
+    private static List<ToolEntry> entriesOf(String endpoint, List<Map<String, Object>> tools) {
+        List<ToolEntry> entries = new ArrayList<>(tools.size());
+        for (Map<String, Object> tool : tools) {
+            entries.add(new ToolEntry(endpoint, tool));
+        }
+        return entries;
+    }
+
+    private void addLocked(String endpoint, List<ToolEntry> entries) {
+        toolsByEndpoint.put(endpoint, entries);
+        for (ToolEntry entry : entries) {
+            entry.terms.forEach((term, weight) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(entry, weight));
+        }
+    }
+
+    private void removeLocked(String endpoint) {
+        List<ToolEntry> previous = toolsByEndpoint.remove(endpoint);
+        if (previous == null) {
+            return;
+        }
+        for (ToolEntry entry : previous) {
+            for (String term : entry.terms.keySet()) {
+                Map<ToolEntry, Integer> tools = postings.get(term);
+                if (tools != null) {
+                    tools.remove(entry);
+                    if (tools.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Lowercase words of a name or sentence: "getWeather_forecast" -> get, weather, forecast
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String word : text.split("[^A-Za-z0-9]+")) {
+            for (String part : word.split("(?<=[a-z0-9])(?=[A-Z])|(?<=[A-Z])(?=[A-Z][a-z])")) {
+                if (part.length() > 1) {
+                    terms.add(part.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * One tool of one server and the weighted terms it is indexed under
+     */
+    private static class ToolEntry {
+        final String endpoint;
+        final String name;
+        final String description;
+        final List<String> parameters;
+        final Map<String, Integer> terms = new HashMap<>();
+
+        @SuppressWarnings("unchecked")
+        ToolEntry(String endpoint, Map<String, Object> tool) {
+            this.endpoint = endpoint;
+            this.name = (String) tool.get("name");
+            this.description = (String) tool.get("description");
+
+            List<String> params = new ArrayList<>();
+            Object schema = tool.get("inputSchema");
+            if (schema instanceof Map) {
+                Object properties = ((Map<String, Object>) schema).get("properties");
+                if (properties instanceof Map) {
+                    params.addAll(((Map<String, Object>) properties).keySet());
+                }
+            }
+            this.parameters = params;
+
+            addTerms(description, DESCRIPTION_WEIGHT);
+            for (String param : params) {
+                addTerms(param, PARAMETER_WEIGHT);
+            }
+            addTerms(name, NAME_WEIGHT);
+        }
+
+        private void addTerms(String text, int weight) {
+            for (String term : tokenize(text)) {
+                terms.merge(term, weight, Math::max);
+            }
+        }
+    }
+
+    /**
+     * A matching tool and the server offering it
+     */
+    public static class Hit {
+        @JsonProperty("endpoint_url")
+        private final String endpointUrl;
+
+        @JsonProperty("name")
+        private final String name;
+
+        @JsonProperty("description")
+        private final String description;
+
+        @JsonProperty("parameters")
+        private final List<String> parameters;
+
+        @JsonProperty("score")
+        private final int score;
+
+        Hit(ToolEntry entry, int score) {
+            this.endpointUrl = entry.endpoint;
+            this.name = entry.name;
+            this.description = entry.description;
+            this.parameters = entry.parameters;
+            this.score = score;
+        }
+
+        public String getEndpointUrl() {
+            return endpointUrl;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public List<String> getParameters() {
+            return parameters;
+        }
+
+        public int getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.agent.registry;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.modelcontextprotocol.spec.McpSchema;
+import redis.clients.jedis.params.SetParams;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Cache of tool call results, for tools whose registration declares a result TTL.
+ *
+ * Results are keyed by a hash of the server, the tool name and the arguments in
+ * canonical form (object keys sorted), so argument order does not matter. Each
+ * entry expires after its tool's TTL. The local tier is an LRU bounded to
+ * maxEntries. With Redis configured, results are also written to a shared tier,
+ * so a result fetched by one node serves every node; a local miss checks Redis
+ * before calling the server. Only successful results are cached.
+ */
+public class MCPToolResultCache {
+
+    private static final Logger LOGGER = Logger.getLogger(MCPToolResultCache.class.getName());
+
+    // Outside the tool: value prefix, so scans over tool records never see cached results
+    private static final String REDIS_KEY_PREFIX = "tool-results:";
+
+    private final Cache<String, Entry> local;
+    private final RedisConnections redis;
+    private final RegistryCodec codec;
+    private final ObjectMapper canonicalMapper = JsonMapper.builder()
+        .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+        .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+        .build();
+    private final Counter localHits;
+    private final Counter sharedHits;
+    private final Counter misses;
+
+    public MCPToolResultCache(long maxEntries) {
+        this(maxEntries, null, new RegistryCodec(), new MetricRegistry());
+    }
+
+    /**
+     * @param redis shared tier, or null to cache in this process only
+     */
+    public MCPToolResultCache(long maxEntries, RedisConnections redis, RegistryCodec codec, MetricRegistry metrics) {
+        this.redis = redis;
+        this.codec = codec;
+        this.local = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfter(new Expiry<String, Entry>() {
+                @Override
+                public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                    return remainingNanos(entry);
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                    return remainingNanos(entry);
+                }
+
+                @Override
+                public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+        this.localHits = metrics.counter(MetricRegistry.name("mcp", "tools", "cache", "hits", "local"));
+        this.sharedHits = metrics.counter(MetricRegistry.name("mcp", "tools", "cache", "hits", "shared"));
+        this.misses = metrics.counter(MetricRegistry.name("mcp", "tools", "cache", "misses"));
+        metrics.gauge(MetricRegistry.name("mcp", "tools", "cache", "hit-ratio"), () -> (Gauge<Double>) this::hitRatio);
+        metrics.gauge(MetricRegistry.name("mcp", "tools", "cache", "size"), () -> (Gauge<Long>) local::estimatedSize);
+    }
+
+    /**
+     * Cache key of a call: server, tool and canonicalized arguments
+     */
+    public String key(String endpoint, String tool, Map<String, Object> arguments) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(endpoint.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(tool.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(canonicalMapper.writeValueAsBytes(arguments != null ? arguments : Map.of()));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to hash tool call arguments", e);
+        }
+    }
+
+    /**
+     * Cached, unexpired result for a key, or null
+     */
+    public Entry get(String key) {
+        Entry entry = local.getIfPresent(key);
+        if (entry != null && !entry.isExpired()) {
+            localHits.inc();
+            return entry;
+        }
+
+        if (redis != null) {
+            try {
+                byte[] value = redis.execute("tool-result-get", jedis -> jedis.get(redisKey(key)));
+                if (value != null) {
+                    entry = codec.decode(value, Entry.class);
+                    if (!entry.isExpired()) {
+                        local.put(key, entry);
+                        sharedHits.inc();
+                        return entry;
+                    }
+                }
+            } catch (Exception e) {
+                LOGGER.warning("Failed to read shared tool result cache: " + e.getMessage());
+            }
+        }
+
+        misses.inc();
+        return null;
+    }
+
+    /**
+     * Cache a successful result for ttlMillis
+     */
+    public void put(String key, List<McpSchema.Content> content, long ttlMillis) {
+        Entry entry = new Entry(content, System.currentTimeMillis() + ttlMillis);
+        local.put(key, entry);
+
+        if (redis != null) {
+            try {
+                byte[] value = codec.encode(entry);
+                redis.execute("tool-result-set", jedis -> jedis.set(redisKey(key), value, new SetParams().px(ttlMillis)));
+            } catch (Exception e) {
+                LOGGER.warning("Failed to write shared tool result cache: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Hit and miss counts since startup
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", local.estimatedSize());
+        stats.put("local_hits", localHits.getCount());
+        stats.put("shared_hits", sharedHits.getCount());
+        stats.put("misses", misses.getCount());
+        stats.put("hit_ratio", hitRatio());
+        stats.put("shared_tier", redis != null);
+        return stats;
+    }
+
+    private double hitRatio() {
+        long hits = localHits.getCount() + sharedHits.getCount();
+        long total = hits + misses.getCount();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    private static byte[] redisKey(String key) {
+        return (REDIS_KEY_PREFIX + key).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long remainingNanos(Entry entry) {
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, entry.getExpiresAt() - System.currentTimeMillis()));
+    }
+
+    /**
+     * A cached result and when it expires
+     */
+    public static class Entry {
+        @JsonProperty("content")
+        private List<McpSchema.Content> content;
+
+        @JsonProperty("expires_at")
+        private long expiresAt;
+
+        public Entry() {
+        }
+
+        public Entry(List<McpSchema.Content> content, long expiresAt) {
+            this.content = content;
+            this.expiresAt = expiresAt;
+        }
+
+        public List<McpSchema.Content> getContent() {
+            return content;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
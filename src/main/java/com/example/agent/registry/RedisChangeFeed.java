@@ -0,0 +1,303 @@
+package com.example.agent.registry;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.params.XReadGroupParams;
+import redis.clients.jedis.params.XTrimParams;
+import redis.clients.jedis.resps.StreamConsumerInfo;
+import redis.clients.jedis.resps.StreamEntry;
+import redis.clients.jedis.resps.StreamGroupInfo;
+import redis.clients.jedis.resps.StreamInfo;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Replayable reader for a namespace's change stream (agents:changes for agents).
+ *
+ * Every evented write script appends a {type, id} entry to the stream. Each node
+ * reads it through its own consumer group (agent-registry:&lt;nodeId&gt;), so every
+ * node sees every change, and acknowledges entries once they are applied. After a
+ * disconnect or restart the node resumes from its group offset: unacknowledged
+ * entries are replayed first, then everything appended since. A full resync is
+ * only requested when there is no offset to resume from, or entries past it were
+ * trimmed before the group read them. Groups of other nodes that have not read for longer than the
+ * retention are destroyed, so node IDs that are gone for good (replaced hosts or
+ * containers) do not accumulate groups.
+ */
+public class RedisChangeFeed implements RegistryStore.ChangeFeed {
+
+    private static final Logger LOGGER = Logger.getLogger(RedisChangeFeed.class.getName());
+
+    private static final int READ_BATCH_SIZE = 100;
+    // Blocking reads lift the socket timeout, so this only bounds shutdown latency
+    private static final int READ_BLOCK_MS = 1000;
+    private static final long TRIM_INTERVAL_MS = 60_000;
+    private static final String GROUP_PREFIX = "agent-registry:";
+    private static final long MAX_RECONNECT_BACKOFF_MS = 30_000;
+
+    private final RedisConnections redis;
+    private final String streamKey;
+    private final String groupName;
+    private final String consumerName;
+    private final Duration retention;
+    private final RegistryStore.ChangeHandler handler;
+
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private volatile String lastEntryId;
+    private volatile boolean closed;
+    private long lastTrimAt;
+
+    public RedisChangeFeed(RedisConnections redis, String streamKey, String nodeId, Duration retention,
+                           RegistryStore.ChangeHandler handler) {
+        this.redis = redis;
+        this.streamKey = streamKey;
+        this.groupName = GROUP_PREFIX + nodeId;
+        this.consumerName = nodeId;
+        this.retention = retention;
+        this.handler = handler;
+    }
+
+    /**
+     * Node ID used when none is configured: the local host name and process ID, so
+     * two processes on one host never share a group and split its entries. A
+     * restarted process gets a new group and resyncs; the old one is destroyed once
+     * idle past the retention.
+     */
+    public static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "agent-registry";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+
+    /**
+     * Start reading on a background thread
+     */
+    @Override
+    public void start() {
+        Thread thread = new Thread(this::run, "registry-changes-" + streamKey);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        long backoffMs = 1000;
+        boolean joined = false;
+        boolean replayPending = true;
+
+        while (!closed) {
+            try (Jedis jedis = redis.getResource()) {
+                if (!joined) {
+                    if (joinGroup(jedis)) {
+                        resyncs.incrementAndGet();
+                        handler.onResync();
+                    }
+                    joined = true;
+                    replayPending = true;
+                }
+
+                // ID 0 re-reads entries delivered to this consumer but never acknowledged
+                StreamEntryID from = replayPending ? new StreamEntryID() : StreamEntryID.UNRECEIVED_ENTRY;
+                List<Map.Entry<String, List<StreamEntry>>> batch = jedis.xreadGroup(groupName, consumerName,
+                    XReadGroupParams.xReadGroupParams().count(READ_BATCH_SIZE).block(READ_BLOCK_MS),
+                    Map.of(streamKey, from));
+
+                List<StreamEntry> entries = batch == null || batch.isEmpty()
+                    ? Collections.emptyList()
+                    : batch.get(0).getValue();
+                if (entries.isEmpty()) {
+                    replayPending = false;
+                } else {
+                    apply(jedis, entries);
+                }
+
+                trimIfDue(jedis);
+                backoffMs = 1000;
+            } catch (JedisDataException e) {
+                if (closed) {
+                    break;
+                }
+                // NOGROUP: the stream or group was deleted, so the offset is gone
+                LOGGER.warning("Change feed error on " + streamKey + ": " + e.getMessage());
+                joined = false;
+                backoffMs = sleep(backoffMs);
+            } catch (Exception e) {
+                if (closed) {
+                    break;
+                }
+                LOGGER.severe("Change feed connection error on " + streamKey + ": " + e.getMessage());
+                reconnects.incrementAndGet();
+                joined = false;
+                backoffMs = sleep(backoffMs);
+            }
+        }
+    }
+
+    /**
+     * Apply a batch of entries and acknowledge them
+     */
+    private void apply(Jedis jedis, List<StreamEntry> entries) {
+        StreamEntryID[] ids = new StreamEntryID[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            StreamEntry entry = entries.get(i);
+            ids[i] = entry.getID();
+
+            // Fields are null for entries trimmed while still pending; just ack those
+            Map<String, String> fields = entry.getFields();
+            if (fields != null && fields.get("type") != null && fields.get("id") != null) {
+                try {
+                    handler.onChange(fields.get("type"), fields.get("id"));
+                } catch (Exception e) {
+                    LOGGER.warning("Failed to apply change " + entry.getID() + ": " + e.getMessage());
+                }
+            }
+        }
+        jedis.xack(streamKey, groupName, ids);
+        processed.addAndGet(ids.length);
+        lastEntryId = ids[ids.length - 1].toString();
+    }
+
+    /**
+     * Create or rejoin this node's consumer group.
+     * Returns true if the node has no usable offset and must resync.
+     */
+    private boolean joinGroup(Jedis jedis) {
+        try {
+            jedis.xgroupCreate(streamKey, groupName, StreamEntryID.LAST_ENTRY, true);
+            LOGGER.info("Created change consumer group " + groupName);
+            return true;
+        } catch (JedisDataException e) {
+            if (e.getMessage() == null || !e.getMessage().contains("BUSYGROUP")) {
+                throw e;
+            }
+        }
+
+        StreamEntryID lastDelivered = null;
+        for (StreamGroupInfo group : jedis.xinfoGroups(streamKey)) {
+            if (groupName.equals(group.getName())) {
+                lastDelivered = group.getLastDeliveredId();
+            }
+        }
+        if (lastDelivered != null && entriesLost(jedis.xinfoStream(streamKey), lastDelivered)) {
+            LOGGER.warning("Change stream " + streamKey + " lost entries past offset " + lastDelivered + " of " + groupName);
+            return true;
+        }
+        LOGGER.info("Resuming change feed for " + groupName + " from " + lastDelivered);
+        return false;
+    }
+
+    /**
+     * Whether entries past the offset were trimmed or deleted before the group
+     * read them. Redis 7 reports the highest ID it ever deleted, which answers
+     * this exactly. Older servers only show what is left, so any gap between the
+     * offset and the oldest remaining entry (or the last ID, if the stream is now
+     * empty) counts as loss.
+     */
+    private static boolean entriesLost(StreamInfo info, StreamEntryID offset) {
+        Object maxDeleted = info.getStreamInfo().get("max-deleted-entry-id");
+        if (maxDeleted != null) {
+            String id = maxDeleted instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : maxDeleted.toString();
+            return new StreamEntryID(id).compareTo(offset) > 0;
+        }
+        StreamEntry first = info.getFirstEntry();
+        if (first != null) {
+            return first.getID().compareTo(offset) > 0;
+        }
+        StreamEntryID last = info.getLastGeneratedId();
+        return last != null && last.compareTo(offset) > 0;
+    }
+
+    /**
+     * Length is capped on every append; age is trimmed here, at most once per interval
+     */
+    private void trimIfDue(Jedis jedis) {
+        long now = System.currentTimeMillis();
+        if (now - lastTrimAt < TRIM_INTERVAL_MS) {
+            return;
+        }
+        lastTrimAt = now;
+        try {
+            String minId = (now - retention.toMillis()) + "-0";
+            jedis.xtrim(streamKey, XTrimParams.xTrimParams().minId(minId).approximateTrimming());
+        } catch (JedisDataException e) {
+            // MINID needs Redis 6.2+; length trimming still applies
+            LOGGER.fine("Age-based trim of " + streamKey + " failed: " + e.getMessage());
+        }
+        destroyIdleGroups(jedis, now);
+    }
+
+    /**
+     * Destroy other nodes' groups that have not read for longer than the retention.
+     * Such a node would have to resync on return anyway, since the stream has been
+     * trimmed past its offset; it simply recreates its group.
+     */
+    private void destroyIdleGroups(Jedis jedis, long now) {
+        long retentionMs = retention.toMillis();
+        for (StreamGroupInfo group : jedis.xinfoGroups(streamKey)) {
+            String name = group.getName();
+            if (name.equals(groupName) || !name.startsWith(GROUP_PREFIX)) {
+                continue;
+            }
+
+            long idleMs;
+            if (group.getConsumers() > 0) {
+                idleMs = Long.MAX_VALUE;
+                for (StreamConsumerInfo consumer : jedis.xinfoConsumers2(streamKey, name)) {
+                    idleMs = Math.min(idleMs, consumer.getIdle());
+                }
+            } else {
+                StreamEntryID lastDelivered = group.getLastDeliveredId();
+                idleMs = lastDelivered == null ? Long.MAX_VALUE : now - lastDelivered.getTime();
+            }
+
+            if (idleMs > retentionMs) {
+                jedis.xgroupDestroy(streamKey, name);
+                LOGGER.info("Destroyed change consumer group " + name + ", idle for " + idleMs + " ms");
+            }
+        }
+    }
+
+    private long sleep(long backoffMs) {
+        try {
+            Thread.sleep(backoffMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+        return Math.min(backoffMs * 2, MAX_RECONNECT_BACKOFF_MS);
+    }
+
+    /**
+     * Consumer group, offset and replay counters
+     */
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("stream", streamKey);
+        stats.put("group", groupName);
+        stats.put("last_entry_id", lastEntryId);
+        stats.put("processed", processed.get());
+        stats.put("resyncs", resyncs.get());
+        stats.put("reconnects", reconnects.get());
+        return stats;
+    }
+
+    /**
+     * Stop reading; the thread exits after its current blocking read
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.agent.registry;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The single Redis connection pool shared by every Redis-backed component.
+ *
+ * Pool sizing and timeouts come from configuration. Pool occupancy and borrow
+ * wait times are reported as gauges, and each command run through
+ * {@link #execute} is timed under redis.commands.&lt;command&gt;, so connection
+ * starvation shows up in the metrics rather than as unexplained latency.
+ */
+public class RedisConnections implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_TOTAL = 50;
+    public static final int DEFAULT_MAX_IDLE = 10;
+    public static final int DEFAULT_MIN_IDLE = 5;
+    public static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(2);
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(2);
+    public static final Duration DEFAULT_SOCKET_TIMEOUT = Duration.ofSeconds(2);
+
+    private final JedisPool jedisPool;
+    private final MetricRegistry metrics;
+    private final Timer borrowTimer;
+
+    public RedisConnections(String host, int port) {
+        this(host, port, DEFAULT_MAX_TOTAL, DEFAULT_MAX_IDLE, DEFAULT_MIN_IDLE,
+            DEFAULT_MAX_WAIT, DEFAULT_CONNECT_TIMEOUT, DEFAULT_SOCKET_TIMEOUT, new MetricRegistry());
+    }
+
+    public RedisConnections(String host, int port, int maxTotal, int maxIdle, int minIdle,
+                            Duration maxWait, Duration connectTimeout, Duration socketTimeout,
+                            MetricRegistry metrics) {
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(maxTotal);
+        poolConfig.setMaxIdle(maxIdle);
+        poolConfig.setMinIdle(minIdle);
+        poolConfig.setMaxWait(maxWait);
+        // Pool gauges below replace the JMX beans
+        poolConfig.setJmxEnabled(false);
+
+        this.jedisPool = new JedisPool(poolConfig, host, port,
+            (int) connectTimeout.toMillis(), (int) socketTimeout.toMillis(), null, 0, null);
+        this.metrics = metrics;
+        this.borrowTimer = metrics.timer(MetricRegistry.name("redis", "pool", "borrow"));
+
+        metrics.gauge(MetricRegistry.name("redis", "pool", "active"), () -> (Gauge<Integer>) jedisPool::getNumActive);
+        metrics.gauge(MetricRegistry.name("redis", "pool", "idle"), () -> (Gauge<Integer>) jedisPool::getNumIdle);
+        metrics.gauge(MetricRegistry.name("redis", "pool", "waiters"), () -> (Gauge<Integer>) jedisPool::getNumWaiters);
+        metrics.gauge(MetricRegistry.name("redis", "pool", "max-total"), () -> (Gauge<Integer>) jedisPool::getMaxTotal);
+        metrics.gauge(MetricRegistry.name("redis", "pool", "mean-wait-ms"),
+            () -> (Gauge<Long>) () -> jedisPool.getMeanBorrowWaitDuration().toMillis());
+        metrics.gauge(MetricRegistry.name("redis", "pool", "max-wait-ms"),
+            () -> (Gauge<Long>) () -> jedisPool.getMaxBorrowWaitDuration().toMillis());
+    }
+
+    /**
+     * Borrow a connection; the caller must close it to return it to the pool.
+     * Time spent waiting for a free connection is recorded under redis.pool.borrow.
+     */
+    public Jedis getResource() {
+        try (Timer.Context ignored = borrowTimer.time()) {
+            return jedisPool.getResource();
+        }
+    }
+
+    /**
+     * Run one logical command on a pooled connection, timing it (including the
+     * borrow) under redis.commands.&lt;command&gt;
+     */
+    public <T> T execute(String command, Function<Jedis, T> action) {
+        try (Timer.Context ignored = metrics.timer(MetricRegistry.name("redis", "commands", command)).time();
+             Jedis jedis = getResource()) {
+            return action.apply(jedis);
+        }
+    }
+
+    /**
+     * Current pool occupancy and borrow wait times
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("active", jedisPool.getNumActive());
+        stats.put("idle", jedisPool.getNumIdle());
+        stats.put("waiters", jedisPool.getNumWaiters());
+        stats.put("max_total", jedisPool.getMaxTotal());
+        stats.put("mean_wait_ms", jedisPool.getMeanBorrowWaitDuration().toMillis());
+        stats.put("max_wait_ms", jedisPool.getMaxBorrowWaitDuration().toMillis());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        if (!jedisPool.isClosed()) {
+            jedisPool.close();
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package com.example.agent.registry;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.resps.ScanResult;
+import redis.clients.jedis.resps.Tuple;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * {@link RegistryStore} backed by Redis, shared by every node of a deployment.
+ *
+ * Writes run as Lua scripts so a value and its list, updatedAt, tombstone, term
+ * index and change stream entries change together. Namespaces without a list
+ * index (tool health) are stored as bare keys and listed by an incremental SCAN
+ * of their key pattern.
+ * Every call goes through the shared {@link RedisConnections} pool and is timed
+ * per command.
+ */
+public class RedisRegistryStore implements RegistryStore {
+
+    private static final Logger LOGGER = Logger.getLogger(RedisRegistryStore.class.getName());
+
+    private static final RedisScript PUT_RECORD_SCRIPT = RedisScript.fromResource("record-put");
+    private static final RedisScript DELETE_RECORD_SCRIPT = RedisScript.fromResource("record-delete");
+    private static final RedisScript PUT_INDEXED_SCRIPT = RedisScript.fromResource("indexed-put");
+    private static final RedisScript DELETE_INDEXED_SCRIPT = RedisScript.fromResource("indexed-delete");
+    private static final RedisScript REPLACE_VALUE_SCRIPT = RedisScript.fromResource("value-replace");
+
+    private static final String TERM_INDEX_VERSION = "1";
+    private static final String LIST_INDEX_VERSION = "1";
+
+    // COUNT hint for SCANs over key patterns
+    private static final int KEY_SCAN_COUNT = 1000;
+
+    // Keys per MGET in bulk reads; all chunks go out in a single pipeline
+    private static final int BULK_READ_CHUNK_SIZE = 500;
+
+    // Attempts at an indexed write whose record terms change between the read and the script
+    private static final int INDEXED_WRITE_ATTEMPTS = 5;
+
+    // Returned by the indexed write scripts when the record's terms changed since they were read
+    private static final long TERMS_CHANGED = -1L;
+
+    private static final long DEFAULT_STREAM_MAX_LENGTH = 100_000;
+    private static final Duration DEFAULT_STREAM_RETENTION = Duration.ofHours(24);
+
+    private final RedisConnections redis;
+    private final boolean ownsConnections;
+    private final long streamMaxLength;
+    private final Duration streamRetention;
+
+    public RedisRegistryStore(String host, int port) {
+        this(new RedisConnections(host, port), true, DEFAULT_STREAM_MAX_LENGTH, DEFAULT_STREAM_RETENTION);
+    }
+
+    /**
+     * Store over shared connections; the caller keeps ownership of the pool
+     */
+    public RedisRegistryStore(RedisConnections redis, long streamMaxLength, Duration streamRetention) {
+        this(redis, false, streamMaxLength, streamRetention);
+    }
+
+    private RedisRegistryStore(RedisConnections redis, boolean ownsConnections, long streamMaxLength,
+                               Duration streamRetention) {
+        this.redis = redis;
+        this.ownsConnections = ownsConnections;
+        this.streamMaxLength = streamMaxLength;
+        this.streamRetention = streamRetention;
+
+        try (Jedis jedis = redis.getResource()) {
+            PUT_RECORD_SCRIPT.preload(jedis);
+            DELETE_RECORD_SCRIPT.preload(jedis);
+            PUT_INDEXED_SCRIPT.preload(jedis);
+            DELETE_INDEXED_SCRIPT.preload(jedis);
+            REPLACE_VALUE_SCRIPT.preload(jedis);
+        } catch (Exception e) {
+            LOGGER.warning("Failed to preload Redis scripts: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public byte[] get(RegistryNamespace namespace, String id) {
+        return redis.execute("get", jedis -> jedis.get(bytes(namespace.key(id))));
+    }
+
+    /**
+     * Keys are read with chunked MGETs sent in one pipeline, so the whole batch
+     * costs a single round trip on a single connection.
+     */
+    @Override
+    public List<byte[]> getAll(RegistryNamespace namespace, List<String> ids) {
+        List<byte[]> values = new ArrayList<>(ids.size());
+        if (ids.isEmpty()) {
+            return values;
+        }
+
+        List<Response<List<byte[]>>> chunks = redis.execute("mget", jedis -> {
+            List<Response<List<byte[]>>> responses = new ArrayList<>();
+            Pipeline pipeline = jedis.pipelined();
+            for (int start = 0; start < ids.size(); start += BULK_READ_CHUNK_SIZE) {
+                int end = Math.min(start + BULK_READ_CHUNK_SIZE, ids.size());
+                byte[][] keys = new byte[end - start][];
+                for (int i = start; i < end; i++) {
+                    keys[i - start] = bytes(namespace.key(ids.get(i)));
+                }
+                responses.add(pipeline.mget(keys));
+            }
+            pipeline.sync();
+            return responses;
+        });
+
+        for (Response<List<byte[]>> chunk : chunks) {
+            values.addAll(chunk.get());
+        }
+        return values;
+    }
+
+    @Override
+    public Set<String> ids(RegistryNamespace namespace) {
+        if (namespace.hasListIndex()) {
+            return redis.execute("smembers", jedis -> jedis.smembers(namespace.getListKey()));
+        }
+
+        return scanKeyIds(namespace);
+    }
+
+    @Override
+    public long count(RegistryNamespace namespace) {
+        if (!namespace.hasListIndex()) {
+            return ids(namespace).size();
+        }
+        return redis.execute("scard", jedis -> jedis.scard(namespace.getListKey()));
+    }
+
+    /**
+     * SSCAN over the list set; limit is a COUNT hint, not an exact page size
+     */
+    @Override
+    public RegistryPage<String> scan(RegistryNamespace namespace, String cursor, int limit) {
+        requireListIndex(namespace);
+        String start = cursor == null || cursor.isEmpty() ? ScanParams.SCAN_POINTER_START : cursor;
+        ScanResult<String> scan = redis.execute("sscan",
+            jedis -> jedis.sscan(namespace.getListKey(), start, new ScanParams().count(limit)));
+        return new RegistryPage<>(scan.getResult(), scan.isCompleteIteration() ? null : scan.getCursor());
+    }
+
+    @Override
+    public RegistryListings.ChangedIds changedSince(RegistryNamespace namespace, RegistryListings.DeltaPosition from,
+                                                   int limit) {
+        requireListIndex(namespace);
+        long now = System.currentTimeMillis();
+        List<String> updated = new ArrayList<>();
+        List<Long> updatedScores = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        List<Long> deletedScores = new ArrayList<>();
+        redis.execute("zrangebyscore", jedis -> {
+            range(jedis, namespace.getUpdatedKey(), from.getSince(), from.getAfterUpdated(), limit, updated, updatedScores);
+            range(jedis, namespace.getDeletedKey(), from.getSince(), from.getAfterDeleted(), limit, deleted, deletedScores);
+            return null;
+        });
+        return RegistryListings.changedIds(from, limit, now, updated, updatedScores, deleted, deletedScores);
+    }
+
+    /**
+     * Up to limit members in (score, member) order from since on, leaving out those
+     * at exactly since up to and including after. Members sharing the score since
+     * are read in full, then the rest of the page comes from above it.
+     */
+    private static void range(Jedis jedis, String key, long since, String after, int limit,
+                              List<String> ids, List<Long> scores) {
+        if (after == null) {
+            List<Tuple> page = jedis.zrangeByScoreWithScores(key, since, Double.POSITIVE_INFINITY, 0, limit);
+            ids.addAll(elements(page));
+            scores.addAll(scores(page));
+            return;
+        }
+
+        List<Tuple> tied = jedis.zrangeByScoreWithScores(key, since, since);
+        ids.addAll(elements(tied));
+        scores.addAll(scores(tied));
+        RegistryListings.dropSeen(since, after, ids, scores);
+        if (ids.size() > limit) {
+            ids.subList(limit, ids.size()).clear();
+            scores.subList(limit, scores.size()).clear();
+        } else if (ids.size() < limit) {
+            List<Tuple> above = jedis.zrangeByScoreWithScores(key, "(" + since, "+inf", 0, limit - ids.size());
+            ids.addAll(elements(above));
+            scores.addAll(scores(above));
+        }
+    }
+
+    @Override
+    public Set<String> findByTerms(RegistryNamespace namespace, Collection<String> terms, boolean matchAll) {
+        if (!namespace.hasTermIndex()) {
+            throw new UnsupportedOperationException("Namespace " + namespace + " has no term index");
+        }
+        if (terms.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        String[] keys = terms.stream()
+            .map(term -> namespace.getTermKeyPrefix() + term)
+            .toArray(String[]::new);
+        return matchAll
+            ? redis.execute("sinter", jedis -> jedis.sinter(keys))
+            : redis.execute("sunion", jedis -> jedis.sunion(keys));
+    }
+
+    @Override
+    public boolean put(RegistryNamespace namespace, Record record, WriteMode mode, String eventType) {
+        String id = record.getId();
+        if (!namespace.hasListIndex()) {
+            SetParams params = new SetParams();
+            if (mode == WriteMode.UPDATE) {
+                params.xx();
+            } else if (mode == WriteMode.CREATE) {
+                params.nx();
+            }
+            return redis.execute("set", jedis -> jedis.set(bytes(namespace.key(id)), record.getValue(), params)) != null;
+        }
+
+        Object result;
+        if (namespace.hasTermIndex()) {
+            result = indexedWrite(namespace, id, "indexed-put", (jedis, previous) -> {
+                List<String> terms = new ArrayList<>(record.getTerms());
+                List<byte[]> keys = new ArrayList<>(indexedKeys(namespace, id));
+                keys.addAll(termKeys(namespace, previous));
+                keys.addAll(termKeys(namespace, terms));
+                List<byte[]> args = new ArrayList<>();
+                args.add(bytes(id));
+                args.add(record.getValue());
+                args.add(bytes(mode.name().toLowerCase()));
+                args.add(bytes(namespace.getChangeChannel()));
+                args.add(bytes(String.valueOf(record.getUpdatedAt())));
+                args.add(bytes(String.valueOf(streamMaxLength)));
+                args.add(bytes(eventType != null ? eventType : ""));
+                args.add(bytes(String.valueOf(previous.size())));
+                previous.forEach(term -> args.add(bytes(term)));
+                terms.forEach(term -> args.add(bytes(term)));
+                return PUT_INDEXED_SCRIPT.eval(jedis, keys, args);
+            });
+        } else {
+            List<byte[]> args = List.of(bytes(id), record.getValue(), bytes(mode.name().toLowerCase()),
+                bytes(String.valueOf(record.getUpdatedAt())));
+            result = redis.execute("record-put",
+                jedis -> PUT_RECORD_SCRIPT.eval(jedis, recordKeys(namespace, id), args));
+        }
+        return Long.valueOf(1L).equals(result);
+    }
+
+    @Override
+    public boolean delete(RegistryNamespace namespace, String id, long now, String eventType) {
+        if (!namespace.hasListIndex()) {
+            return redis.execute("del", jedis -> jedis.del(namespace.key(id))) > 0;
+        }
+
+        String cutoff = String.valueOf(RegistryListings.tombstoneCutoff(now));
+        Object result;
+        if (namespace.hasTermIndex()) {
+            result = indexedWrite(namespace, id, "indexed-delete", (jedis, previous) -> {
+                List<byte[]> keys = new ArrayList<>(indexedKeys(namespace, id));
+                keys.addAll(termKeys(namespace, previous));
+                List<byte[]> args = new ArrayList<>(List.of(bytes(id), bytes(namespace.getChangeChannel()),
+                    bytes(String.valueOf(now)), bytes(cutoff), bytes(String.valueOf(streamMaxLength)),
+                    bytes(eventType != null ? eventType : "")));
+                previous.forEach(term -> args.add(bytes(term)));
+                return DELETE_INDEXED_SCRIPT.eval(jedis, keys, args);
+            });
+        } else {
+            List<byte[]> args = List.of(bytes(id), bytes(String.valueOf(now)), bytes(cutoff));
+            result = redis.execute("record-delete",
+                jedis -> DELETE_RECORD_SCRIPT.eval(jedis, recordKeys(namespace, id), args));
+        }
+        return (Long) result > 0;
+    }
+
+    @Override
+    public boolean replaceValue(RegistryNamespace namespace, String id, byte[] expected, byte[] value) {
+        Object result = redis.execute("value-replace", jedis -> REPLACE_VALUE_SCRIPT.eval(jedis,
+            List.of(bytes(namespace.key(id))), List.of(expected, value)));
+        return Long.valueOf(1L).equals(result);
+    }
+
+    @Override
+    public boolean needsIndexRebuild(RegistryNamespace namespace) {
+        if (!namespace.hasListIndex()) {
+            return false;
+        }
+        return redis.execute("index-check", jedis -> {
+            if (jedis.zcard(namespace.getUpdatedKey()) < jedis.scard(namespace.getListKey())) {
+                return true;
+            }
+            if (namespace.hasLegacyKeyLayout()
+                && !LIST_INDEX_VERSION.equals(jedis.get(namespace.getListIndexVersionKey()))) {
+                return true;
+            }
+            return namespace.hasTermIndex()
+                && !TERM_INDEX_VERSION.equals(jedis.get(namespace.getTermIndexVersionKey()));
+        });
+    }
+
+    /**
+     * Value keys missing from the list set, found by an incremental SCAN; only
+     * namespaces that once lacked a list index are scanned
+     */
+    @Override
+    public Set<String> unlistedIds(RegistryNamespace namespace) {
+        Set<String> ids = new HashSet<>();
+        if (!namespace.hasListIndex() || !namespace.hasLegacyKeyLayout()) {
+            return ids;
+        }
+
+        Set<String> stored = scanKeyIds(namespace);
+        Set<String> listed = redis.execute("smembers", jedis -> jedis.smembers(namespace.getListKey()));
+        for (String id : stored) {
+            if (!listed.contains(id)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public void rebuildIndexes(RegistryNamespace namespace, Collection<Record> records) {
+        requireListIndex(namespace);
+        redis.execute("index-rebuild", jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            for (Record record : records) {
+                pipeline.sadd(namespace.getListKey(), record.getId());
+                pipeline.zadd(namespace.getUpdatedKey(), record.getUpdatedAt(), record.getId());
+                if (namespace.hasTermIndex()) {
+                    for (String term : record.getTerms()) {
+                        pipeline.sadd(namespace.getTermKeyPrefix() + term, record.getId());
+                        pipeline.sadd(namespace.recordTermsKey(record.getId()), term);
+                    }
+                }
+            }
+            if (namespace.hasTermIndex()) {
+                pipeline.set(namespace.getTermIndexVersionKey(), TERM_INDEX_VERSION);
+            }
+            if (namespace.hasLegacyKeyLayout()) {
+                pipeline.set(namespace.getListIndexVersionKey(), LIST_INDEX_VERSION);
+            }
+            pipeline.sync();
+            return null;
+        });
+    }
+
+    @Override
+    public ChangeFeed openChangeFeed(RegistryNamespace namespace, String nodeId, ChangeHandler handler) {
+        if (!namespace.hasChangeFeed()) {
+            throw new UnsupportedOperationException("Namespace " + namespace + " has no change feed");
+        }
+        return new RedisChangeFeed(redis, namespace.getChangeStream(), nodeId, streamRetention, handler);
+    }
+
+    /**
+     * The store's connection pool, for other data kept in the same Redis
+     */
+    public RedisConnections getConnections() {
+        return redis;
+    }
+
+    /**
+     * Closes the connection pool only if this store created it
+     */
+    @Override
+    public void close() {
+        if (ownsConnections) {
+            redis.close();
+        }
+    }
+
+    /**
+     * Keys touched by the indexed write scripts, in script KEYS order
+     */
+    private static List<byte[]> indexedKeys(RegistryNamespace namespace, String id) {
+        return List.of(
+            bytes(namespace.key(id)),
+            bytes(namespace.getListKey()),
+            bytes(namespace.recordTermsKey(id)),
+            bytes(namespace.getUpdatedKey()),
+            bytes(namespace.getDeletedKey()),
+            bytes(namespace.getChangeStream()));
+    }
+
+    /**
+     * Index keys of the given terms, in the same order
+     */
+    private static List<byte[]> termKeys(RegistryNamespace namespace, List<String> terms) {
+        List<byte[]> keys = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            keys.add(bytes(namespace.getTermKeyPrefix() + term));
+        }
+        return keys;
+    }
+
+    /**
+     * Runs an indexed write script with the record's currently indexed terms, so
+     * the script can be given every term key it touches. The script refuses to
+     * write if the terms changed after they were read; the read is then repeated.
+     */
+    private Object indexedWrite(RegistryNamespace namespace, String id, String operation, IndexedScript script) {
+        String recordTermsKey = namespace.recordTermsKey(id);
+        return redis.execute(operation, jedis -> {
+            for (int attempt = 1; attempt <= INDEXED_WRITE_ATTEMPTS; attempt++) {
+                List<String> previous = new ArrayList<>(jedis.smembers(recordTermsKey));
+                Object result = script.eval(jedis, previous);
+                if (!Long.valueOf(TERMS_CHANGED).equals(result)) {
+                    return result;
+                }
+            }
+            throw new IllegalStateException("Terms of " + namespace.key(id) + " kept changing during "
+                + operation + "; gave up after " + INDEXED_WRITE_ATTEMPTS + " attempts");
+        });
+    }
+
+    /**
+     * An indexed write script invocation given the record's currently indexed terms
+     */
+    private interface IndexedScript {
+        Object eval(Jedis jedis, List<String> previous);
+    }
+
+    /**
+     * Keys touched by the record write scripts, in script KEYS order
+     */
+    private static List<byte[]> recordKeys(RegistryNamespace namespace, String id) {
+        return List.of(
+            bytes(namespace.key(id)),
+            bytes(namespace.getListKey()),
+            bytes(namespace.getUpdatedKey()),
+            bytes(namespace.getDeletedKey()));
+    }
+
+    /**
+     * IDs of all value keys in the namespace, by SCAN rather than KEYS so Redis is
+     * never blocked for the length of the keyspace
+     */
+    private Set<String> scanKeyIds(RegistryNamespace namespace) {
+        return redis.execute("scan", jedis -> {
+            Set<String> ids = new HashSet<>();
+            int prefixLength = namespace.getKeyPrefix().length();
+            ScanParams params = new ScanParams().match(namespace.getKeyPrefix() + "*").count(KEY_SCAN_COUNT);
+            String cursor = ScanParams.SCAN_POINTER_START;
+            do {
+                ScanResult<String> scan = jedis.scan(cursor, params, "string");
+                for (String key : scan.getResult()) {
+                    ids.add(key.substring(prefixLength));
+                }
+                cursor = scan.getCursor();
+            } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+            return ids;
+        });
+    }
+
+    private static void requireListIndex(RegistryNamespace namespace) {
+        if (!namespace.hasListIndex()) {
+            throw new UnsupportedOperationException("Namespace " + namespace + " has no list index");
+        }
+    }
+
+    private static List<String> elements(List<Tuple> tuples) {
+        List<String> ids = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            ids.add(tuple.getElement());
+        }
+        return ids;
+    }
+
+    private static List<Long> scores(List<Tuple> tuples) {
+        List<Long> scores = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            scores.add((long) tuple.getScore());
+        }
+        return scores;
+    }
+
+    private static byte[] bytes(String value) {
+        return SafeEncoder.encode(value);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.agent.registry;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * A Lua script bundled under /redis on the classpath and executed with EVALSHA.
+ * Each script runs atomically on the server in a single round trip. If the server
+ * has lost the script (restart, SCRIPT FLUSH) it is reloaded transparently.
+ */
+public class RedisScript {
+
+    private static final Logger LOGGER = Logger.getLogger(RedisScript.class.getName());
+
+    private final String name;
+    private final String source;
+    private volatile byte[] sha;
+
+    private RedisScript(String name, String source) {
+        this.name = name;
+        this.source = source;
+    }
+
+    /**
+     * Read a script from /redis/&lt;name&gt;.lua on the classpath
+     */
+    public static RedisScript fromResource(String name) {
+        String path = "/redis/" + name + ".lua";
+        try (InputStream in = RedisScript.class.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IllegalStateException("Redis script not found on classpath: " + path);
+            }
+            return new RedisScript(name, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read Redis script " + path, e);
+        }
+    }
+
+    /**
+     * Load the script into the server's script cache ahead of first use
+     */
+    public void preload(Jedis jedis) {
+        String loaded = jedis.scriptLoad(source);
+        sha = loaded.getBytes(StandardCharsets.UTF_8);
+        LOGGER.fine("Loaded Redis script " + name + " (" + loaded + ")");
+    }
+
+    /**
+     * Execute the script, loading it first if needed.
+     * Keys and arguments are binary so record values pass through unchanged.
+     */
+    public Object eval(Jedis jedis, List<byte[]> keys, List<byte[]> args) {
+        if (sha == null) {
+            preload(jedis);
+        }
+        try {
+            return jedis.evalsha(sha, keys, args);
+        } catch (JedisNoScriptException e) {
+            preload(jedis);
+            return jedis.evalsha(sha, keys, args);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.agent.registry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Serializes registry records for storage.
+ *
+ * Values are written as Smile (binary JSON), prefixed with a one-byte codec
+ * version. Records written before the codec existed are plain JSON text, which
+ * always starts with '{' or whitespace and never with a version byte, so both
+ * are read transparently. {@link RegistryValueMigration} rewrites the legacy ones.
+ */
+public class RegistryCodec {
+
+    /**
+     * Format for new writes; JSON keeps values readable by nodes that predate the codec
+     */
+    public enum Format { JSON, SMILE }
+
+    private static final byte SMILE_V1 = 0x01;
+    // Bytes below this that are not JSON whitespace are reserved for codec versions
+    private static final byte MAX_VERSION = 0x08;
+
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+    private final Format format;
+
+    public RegistryCodec() {
+        this(Format.SMILE);
+    }
+
+    public RegistryCodec(Format format) {
+        this.format = format;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public byte[] encode(Object value) throws IOException {
+        if (format == Format.JSON) {
+            return jsonMapper.writeValueAsBytes(value);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        out.write(SMILE_V1);
+        smileMapper.writeValue(out, value);
+        return out.toByteArray();
+    }
+
+    public <T> T decode(byte[] value, Class<T> type) throws IOException {
+        if (value.length > 0 && value[0] == SMILE_V1) {
+            return smileMapper.readValue(value, 1, value.length - 1, type);
+        }
+        if (value.length > 0 && value[0] > SMILE_V1 && value[0] <= MAX_VERSION) {
+            throw new IOException("Unsupported registry codec version " + value[0]);
+        }
+        return jsonMapper.readValue(value, type);
+    }
+
+    /**
+     * Whether a stored value is already in the configured write format
+     */
+    public boolean isCurrent(byte[] value) {
+        boolean smile = value.length > 0 && value[0] == SMILE_V1;
+        return smile == (format == Format.SMILE);
+    }
+
+    /**
+     * Re-encode a stored value in the configured write format without binding it to a type
+     */
+    public byte[] upgrade(byte[] value) throws IOException {
+        return encode(decode(value, JsonNode.class));
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.agent.registry;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Records changed or deleted since a given updatedAt timestamp.
+ * Pass next_since back as ?since= on the next poll. It resumes at as_of, skipping
+ * the records at exactly as_of already returned; records updated after as_of may
+ * be returned again. When resync_required is true the requested timestamp
+ * predates the retained tombstones and the caller should do a full listing instead.
+ */
+public class RegistryDelta<T> {
+    
+    @JsonProperty("items")
+    private final List<T> items;
+    
+    @JsonProperty("deleted")
+    private final List<String> deleted;
+    
+    @JsonProperty("as_of")
+    private final long asOf;
+    
+    @JsonProperty("next_since")
+    private final String nextSince;
+    
+    @JsonProperty("resync_required")
+    private final boolean resyncRequired;
+    
+    public RegistryDelta(List<T> items, List<String> deleted, long asOf, String nextSince, boolean resyncRequired) {
+        this.items = items;
+        this.deleted = deleted;
+        this.asOf = asOf;
+        this.nextSince = nextSince;
+        this.resyncRequired = resyncRequired;
+    }
+    
+    public List<T> getItems() {
+        return items;
+    }
+    
+    public List<String> getDeleted() {
+        return deleted;
+    }
+    
+    public long getAsOf() {
+        return asOf;
+    }
+    
+    public String getNextSince() {
+        return nextSince;
+    }
+    
+    public boolean isResyncRequired() {
+        return resyncRequired;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.agent.registry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Shared rules for cursor-paginated and delta (?since=) registry listings.
+ *
+ * Each store keeps, per namespace, an index of IDs by updatedAt and a set of
+ * tombstones by deletion time; these helpers turn a range read of both into a
+ * delta result with a safe as_of watermark. Deltas page by (updatedAt, ID): the
+ * next poll resumes after the last ID returned at exactly as_of, so a page full
+ * of records sharing one timestamp still moves the next poll forward.
+ */
+public final class RegistryListings {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    // How long deletions stay visible to delta listings
+    public static final long TOMBSTONE_RETENTION_MS = Duration.ofDays(1).toMillis();
+
+    // as_of trails the clock so writes stamped just before a poll are not skipped
+    private static final long DELTA_SAFETY_LAG_MS = 5_000;
+
+    private RegistryListings() {
+    }
+
+    /**
+     * Apply the default and upper bound to a requested page size
+     */
+    public static int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    /**
+     * Tombstones older than this are trimmed on the next delete
+     */
+    public static long tombstoneCutoff(long now) {
+        return now - TOMBSTONE_RETENTION_MS;
+    }
+
+    /**
+     * Assemble a delta result from the first {@code limit} updated and deleted IDs
+     * after {@code from}, in (score, ID) order, with the score of each ID alongside.
+     */
+    public static ChangedIds changedIds(DeltaPosition from, int limit, long now,
+                                        List<String> updated, List<Long> updatedScores,
+                                        List<String> deleted, List<Long> deletedScores) {
+        long asOf = now - DELTA_SAFETY_LAG_MS;
+        if (updated.size() == limit) {
+            asOf = Math.min(asOf, updatedScores.get(limit - 1));
+        }
+        if (deleted.size() == limit) {
+            asOf = Math.min(asOf, deletedScores.get(limit - 1));
+        }
+        asOf = Math.max(asOf, from.getSince());
+
+        ChangedIds result = new ChangedIds();
+        result.updated = updated;
+        result.deleted = deleted;
+        result.asOf = asOf;
+        result.next = new DeltaPosition(asOf,
+            lastAt(asOf, updated, updatedScores, asOf == from.getSince() ? from.getAfterUpdated() : null),
+            lastAt(asOf, deleted, deletedScores, asOf == from.getSince() ? from.getAfterDeleted() : null));
+        result.resyncRequired = from.getSince() < tombstoneCutoff(now);
+        return result;
+    }
+
+    /**
+     * Keep only IDs after {@code from}: everything above its timestamp, and IDs
+     * above its last returned ID at exactly that timestamp. Input and output are
+     * in (score, ID) order.
+     */
+    public static void dropSeen(long since, String after, List<String> ids, List<Long> scores) {
+        if (after == null) {
+            return;
+        }
+        for (int i = ids.size() - 1; i >= 0; i--) {
+            if (scores.get(i) == since && ids.get(i).compareTo(after) <= 0) {
+                ids.remove(i);
+                scores.remove(i);
+            }
+        }
+    }
+
+    // Greatest ID returned at exactly the given score, else the previous one if still at that score
+    private static String lastAt(long score, List<String> ids, List<Long> scores, String previous) {
+        for (int i = ids.size() - 1; i >= 0; i--) {
+            if (scores.get(i) == score) {
+                return ids.get(i);
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * IDs found by a delta query, before their records are loaded
+     */
+    public static class ChangedIds {
+        public List<String> updated;
+        public List<String> deleted;
+        public long asOf;
+        public DeltaPosition next;
+        public boolean resyncRequired;
+    }
+
+    /**
+     * Where a delta listing resumes: records after since, plus records at exactly
+     * since whose ID sorts after the last one already returned from that index.
+     * Written as "since", or "since:afterUpdated:afterDeleted" with the IDs in
+     * URL-safe base64, in ?since= and next_since.
+     */
+    public static final class DeltaPosition {
+        private final long since;
+        private final String afterUpdated;
+        private final String afterDeleted;
+
+        public DeltaPosition(long since, String afterUpdated, String afterDeleted) {
+            this.since = since;
+            this.afterUpdated = afterUpdated;
+            this.afterDeleted = afterDeleted;
+        }
+
+        public static DeltaPosition at(long since) {
+            return new DeltaPosition(since, null, null);
+        }
+
+        /**
+         * Parse a ?since= value; throws IllegalArgumentException if malformed
+         */
+        public static DeltaPosition parse(String value) {
+            String[] parts = value.split(":", -1);
+            try {
+                if (parts.length == 1) {
+                    return at(Long.parseLong(parts[0]));
+                }
+                if (parts.length == 3) {
+                    return new DeltaPosition(Long.parseLong(parts[0]), decodeId(parts[1]), decodeId(parts[2]));
+                }
+            } catch (IllegalArgumentException e) {
+                // Reported below; NumberFormatException and bad base64 both land here
+            }
+            throw new IllegalArgumentException("Invalid since: " + value);
+        }
+
+        public long getSince() {
+            return since;
+        }
+
+        // Last ID returned at exactly since from the updatedAt index; null to start at since
+        public String getAfterUpdated() {
+            return afterUpdated;
+        }
+
+        public String getAfterDeleted() {
+            return afterDeleted;
+        }
+
+        @Override
+        public String toString() {
+            if (afterUpdated == null && afterDeleted == null) {
+                return String.valueOf(since);
+            }
+            return since + ":" + encodeId(afterUpdated) + ":" + encodeId(afterDeleted);
+        }
+
+        private static String encodeId(String id) {
+            return id == null ? "" : Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static String decodeId(String encoded) {
+            return encoded.isEmpty() ? null : new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.agent.registry;
+
+/**
+ * Describes one kind of registry record and the Redis key layout used for it.
+ *
+ * The key names match what the registries have always written, so switching to
+ * {@link RegistryStore} does not require migrating existing Redis data. Optional
+ * parts (term index, change stream) are null for namespaces that do not use them.
+ * A2A agents were once stored as bare keys only; their list index is filled from
+ * those keys once, see {@link RegistryStore#unlistedIds}.
+ */
+public final class RegistryNamespace {
+
+    // The change stream sits outside the agent: value prefix so a prefix scan over
+    // agent:* only ever sees agent records. The pub/sub channel keeps its original
+    // name for existing subscribers; channels are not keys, so scans never match it.
+    public static final RegistryNamespace AGENTS = new RegistryNamespace(
+        "agents", "agent:", "agents:list", "agents:updated", "agents:deleted",
+        "capability:", "agent-capabilities:", "capabilities:index:version",
+        "agents:changes", "agent:updates", null);
+
+    public static final RegistryNamespace TOOLS = new RegistryNamespace(
+        "tools", "tool:", "tools:list", "tools:updated", "tools:deleted",
+        null, null, null, null, null, null);
+
+    public static final RegistryNamespace CALLBACKS = new RegistryNamespace(
+        "callbacks", "callback:", "callbacks:list", "callbacks:updated", "callbacks:deleted",
+        null, null, null, null, null, null);
+
+    // Connected A2A agents; older deployments stored them as bare a2a:agent:<id> keys only
+    public static final RegistryNamespace A2A_AGENTS = new RegistryNamespace(
+        "a2a-agents", "a2a:agent:", "a2a:agents:list", "a2a:agents:updated", "a2a:agents:deleted",
+        null, null, null, null, null, "a2a:agents:index:version");
+
+    // Health check state per MCP server, keyed by endpoint URL
+    public static final RegistryNamespace TOOL_HEALTH = new RegistryNamespace(
+        "tool-health", "tool-health:", null, null, null,
+        null, null, null, null, null, null);
+
+    private final String name;
+    private final String keyPrefix;
+    private final String listKey;
+    private final String updatedKey;
+    private final String deletedKey;
+    private final String termKeyPrefix;
+    private final String recordTermsKeyPrefix;
+    private final String termIndexVersionKey;
+    private final String changeStream;
+    private final String changeChannel;
+    private final String listIndexVersionKey;
+
+    private RegistryNamespace(String name, String keyPrefix, String listKey, String updatedKey, String deletedKey,
+                              String termKeyPrefix, String recordTermsKeyPrefix, String termIndexVersionKey,
+                              String changeStream, String changeChannel, String listIndexVersionKey) {
+        this.name = name;
+        this.keyPrefix = keyPrefix;
+        this.listKey = listKey;
+        this.updatedKey = updatedKey;
+        this.deletedKey = deletedKey;
+        this.termKeyPrefix = termKeyPrefix;
+        this.recordTermsKeyPrefix = recordTermsKeyPrefix;
+        this.termIndexVersionKey = termIndexVersionKey;
+        this.changeStream = changeStream;
+        this.changeChannel = changeChannel;
+        this.listIndexVersionKey = listIndexVersionKey;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String key(String id) {
+        return keyPrefix + id;
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    // <type>s:list set of IDs; null if IDs are only discoverable by key pattern
+    public String getListKey() {
+        return listKey;
+    }
+
+    public String getUpdatedKey() {
+        return updatedKey;
+    }
+
+    public String getDeletedKey() {
+        return deletedKey;
+    }
+
+    // <prefix><term> -> IDs of records carrying that term (agent capabilities)
+    public String getTermKeyPrefix() {
+        return termKeyPrefix;
+    }
+
+    // <prefix><id> -> terms currently indexed for that record
+    public String recordTermsKey(String id) {
+        return recordTermsKeyPrefix + id;
+    }
+
+    public String getTermIndexVersionKey() {
+        return termIndexVersionKey;
+    }
+
+    public String getChangeStream() {
+        return changeStream;
+    }
+
+    public String getChangeChannel() {
+        return changeChannel;
+    }
+
+    // Set once records stored before the list index existed have been added to it;
+    // null for namespaces that always had one
+    public String getListIndexVersionKey() {
+        return listIndexVersionKey;
+    }
+
+    public boolean hasListIndex() {
+        return listKey != null;
+    }
+
+    public boolean hasTermIndex() {
+        return termKeyPrefix != null;
+    }
+
+    public boolean hasLegacyKeyLayout() {
+        return listIndexVersionKey != null;
+    }
+
+    public boolean hasChangeFeed() {
+        return changeStream != null;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
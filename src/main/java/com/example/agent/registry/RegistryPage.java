@@ -0,0 +1,33 @@
+package com.example.agent.registry;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * One page of a cursor-paginated registry listing.
+ * Pass next_cursor back as ?cursor= to continue; it is null once the listing is complete.
+ * With the Redis store the listing is backed by SSCAN, so a record may occasionally
+ * appear on more than one page.
+ */
+public class RegistryPage<T> {
+    
+    @JsonProperty("items")
+    private final List<T> items;
+    
+    @JsonProperty("next_cursor")
+    private final String nextCursor;
+    
+    public RegistryPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<T> getItems() {
+        return items;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.agent.registry;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storage SPI behind the registries.
+ *
+ * Records are opaque byte values addressed by namespace and ID. Alongside each
+ * value a store keeps the bookkeeping the registries rely on: the set of IDs, an
+ * updatedAt index and deletion tombstones for delta listings, an optional term
+ * index (agent capabilities), and an optional change feed. Every write applies
+ * the value and all of its bookkeeping atomically.
+ *
+ * Implementations: {@link RedisRegistryStore} (shared, multi-node) and
+ * {@link EmbeddedRegistryStore} (single node, memory-mapped log on local disk).
+ */
+public interface RegistryStore {
+
+    /**
+     * Available store implementations, selected by registryBackend in config.yml
+     */
+    enum Backend {
+        REDIS,
+        EMBEDDED
+    }
+
+    /**
+     * Preconditions for {@link #put}
+     */
+    enum WriteMode {
+        UPSERT,  // Always write
+        UPDATE,  // Only write if the record exists
+        CREATE   // Only write if the record does not exist
+    }
+
+    /**
+     * Read a value; null if absent
+     */
+    byte[] get(RegistryNamespace namespace, String id);
+
+    /**
+     * Read several values; the result lines up with {@code ids}, with null for missing records
+     */
+    List<byte[]> getAll(RegistryNamespace namespace, List<String> ids);
+
+    /**
+     * All IDs in the namespace
+     */
+    Set<String> ids(RegistryNamespace namespace);
+
+    long count(RegistryNamespace namespace);
+
+    /**
+     * One page of IDs; pass the returned cursor back to continue, null once complete
+     */
+    RegistryPage<String> scan(RegistryNamespace namespace, String cursor, int limit);
+
+    /**
+     * IDs updated or deleted after {@code from}, in (updatedAt, ID) order
+     */
+    RegistryListings.ChangedIds changedSince(RegistryNamespace namespace, RegistryListings.DeltaPosition from, int limit);
+
+    /**
+     * IDs of records indexed under all (matchAll) or any of the given terms
+     */
+    Set<String> findByTerms(RegistryNamespace namespace, Collection<String> terms, boolean matchAll);
+
+    /**
+     * Write a record and its bookkeeping; a non-null eventType is published on the
+     * namespace's change feed. Returns false if the mode precondition failed.
+     */
+    boolean put(RegistryNamespace namespace, Record record, WriteMode mode, String eventType);
+
+    /**
+     * Delete a record and leave a tombstone; a non-null eventType is published if it existed.
+     * Returns true if the record existed.
+     */
+    boolean delete(RegistryNamespace namespace, String id, long now, String eventType);
+
+    /**
+     * Swap a record's stored value if it still equals {@code expected}, keeping its
+     * updatedAt and terms and publishing no event. For re-encoding a value whose
+     * content is unchanged; returns false if the record changed or is gone.
+     */
+    boolean replaceValue(RegistryNamespace namespace, String id, byte[] expected, byte[] value);
+
+    /**
+     * Whether the list, updatedAt or term index is incomplete, e.g. for data written before it existed
+     */
+    boolean needsIndexRebuild(RegistryNamespace namespace);
+
+    /**
+     * IDs of records stored before the namespace had a list index, which {@link #ids}
+     * does not return until they are passed to {@link #rebuildIndexes}
+     */
+    Set<String> unlistedIds(RegistryNamespace namespace);
+
+    /**
+     * Re-index existing records, adding them to the list index; only IDs, updatedAt and terms are used
+     */
+    void rebuildIndexes(RegistryNamespace namespace, Collection<Record> records);
+
+    /**
+     * Create (but not start) a reader for the namespace's change events
+     */
+    ChangeFeed openChangeFeed(RegistryNamespace namespace, String nodeId, ChangeHandler handler);
+
+    void close();
+
+    /**
+     * A record to write: its value plus the fields the store indexes
+     */
+    final class Record {
+        private final String id;
+        private final byte[] value;
+        private final long updatedAt;
+        private final Set<String> terms;
+
+        public Record(String id, byte[] value, long updatedAt, Set<String> terms) {
+            this.id = id;
+            this.value = value;
+            this.updatedAt = updatedAt;
+            this.terms = terms;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public byte[] getValue() {
+            return value;
+        }
+
+        public long getUpdatedAt() {
+            return updatedAt;
+        }
+
+        public Set<String> getTerms() {
+            return terms;
+        }
+    }
+
+    /**
+     * Receives change events from a {@link ChangeFeed}
+     */
+    interface ChangeHandler {
+        void onChange(String eventType, String id);
+
+        // Changes may have been missed; rebuild any derived state from scratch
+        void onResync();
+    }
+
+    /**
+     * A running subscription to a namespace's change events
+     */
+    interface ChangeFeed {
+        void start();
+
+        void close();
+
+        Map<String, Object> getStats();
+    }
+}
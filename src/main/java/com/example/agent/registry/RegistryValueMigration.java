@@ -0,0 +1,113 @@
+package com.example.agent.registry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Background rewrite of stored values into the codec's current format.
+ *
+ * Walks each namespace in batches and swaps every value that is not yet in the
+ * configured format for its re-encoded form with a compare-and-set, so a record
+ * updated concurrently keeps the newer write (which is already in the current
+ * format). Reads never depend on the migration having finished.
+ */
+public class RegistryValueMigration {
+
+    private static final Logger LOGGER = Logger.getLogger(RegistryValueMigration.class.getName());
+
+    private static final int BATCH_SIZE = 500;
+
+    private final RegistryStore store;
+    private final RegistryCodec codec;
+    private final List<RegistryNamespace> namespaces;
+
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong migrated = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile boolean closed;
+
+    public RegistryValueMigration(RegistryStore store, RegistryCodec codec, List<RegistryNamespace> namespaces) {
+        this.store = store;
+        this.codec = codec;
+        this.namespaces = namespaces;
+    }
+
+    /**
+     * Run the migration once on a background thread
+     */
+    public void start() {
+        Thread thread = new Thread(this::run, "registry-value-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        for (RegistryNamespace namespace : namespaces) {
+            if (closed) {
+                return;
+            }
+            try {
+                long before = migrated.get();
+                migrate(namespace);
+                long count = migrated.get() - before;
+                if (count > 0) {
+                    LOGGER.info("Re-encoded " + count + " " + namespace.getName() + " values as " + codec.getFormat());
+                }
+            } catch (Exception e) {
+                LOGGER.warning("Value migration of " + namespace.getName() + " stopped: " + e.getMessage());
+            }
+        }
+        LOGGER.info("Registry value migration finished: " + scanned.get() + " scanned, " + migrated.get()
+            + " re-encoded, " + skipped.get() + " skipped (changed concurrently or unreadable)");
+    }
+
+    private void migrate(RegistryNamespace namespace) {
+        if (!namespace.hasListIndex()) {
+            migrateBatches(namespace, new ArrayList<>(store.ids(namespace)));
+            return;
+        }
+
+        String cursor = null;
+        do {
+            RegistryPage<String> page = store.scan(namespace, cursor, BATCH_SIZE);
+            migrateBatches(namespace, page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null && !closed);
+    }
+
+    private void migrateBatches(RegistryNamespace namespace, List<String> ids) {
+        for (int start = 0; start < ids.size() && !closed; start += BATCH_SIZE) {
+            List<String> batch = ids.subList(start, Math.min(start + BATCH_SIZE, ids.size()));
+            List<byte[]> values = store.getAll(namespace, batch);
+            for (int i = 0; i < batch.size(); i++) {
+                byte[] value = values.get(i);
+                if (value == null) {
+                    continue;
+                }
+                scanned.incrementAndGet();
+                if (codec.isCurrent(value)) {
+                    continue;
+                }
+                try {
+                    if (store.replaceValue(namespace, batch.get(i), value, codec.upgrade(value))) {
+                        migrated.incrementAndGet();
+                    } else {
+                        skipped.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    skipped.incrementAndGet();
+                    LOGGER.warning("Failed to re-encode " + namespace.getName() + " " + batch.get(i) + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop after the current record
+     */
+    public void close() {
+        closed = true;
+    }
+}
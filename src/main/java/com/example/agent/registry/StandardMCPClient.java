@@ -7,6 +7,7 @@ import io.modelcontextprotocol.client.transport.ServerParameters;
 import io.modelcontextprotocol.client.transport.HttpClientSseClientTransport;
 import io.modelcontextprotocol.spec.McpClientTransport;
 import io.modelcontextprotocol.spec.McpSchema;
+import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.time.Duration;
@@ -34,6 +35,24 @@ public class StandardMCPClient implements AutoCloseable {
     private final TransportType transportType;
     private final String serverIdentifier;
     
+    /**
+     * Stdio transport that accepts messages from concurrent callers. The SDK's
+     * transport rejects a message sent while another thread is sending one
+     * ("Failed to enqueue message"), so sends are serialized; responses are
+     * still matched to their requests concurrently.
+     */
+    private static class SerializedStdioTransport extends StdioClientTransport {
+        
+        SerializedStdioTransport(ServerParameters params) {
+            super(params);
+        }
+        
+        @Override
+        public synchronized Mono<Void> sendMessage(McpSchema.JSONRPCMessage message) {
+            return super.sendMessage(message);
+        }
+    }
+    
     /**
      * Transport types supported by the MCP protocol
      */
@@ -105,6 +124,22 @@ public class StandardMCPClient implements AutoCloseable {
      * Create a new MCP client with the given configuration
      */
     public StandardMCPClient(MCPConfig config) throws IOException {
+        this(config, null);
+    }
+    
+    /**
+     * Told the server's new tool list after it sent notifications/tools/list_changed
+     */
+    public interface ToolsListener {
+        void toolsChanged(List<MCPToolInfo> tools);
+    }
+    
+    /**
+     * Create a new MCP client that passes the server's tools to onToolsChanged
+     * whenever it sends notifications/tools/list_changed, for as long as the
+     * session stays open. The SDK fetches the new list before calling back.
+     */
+    public StandardMCPClient(MCPConfig config, ToolsListener onToolsChanged) throws IOException {
         this.transportType = config.getTransportType();
         this.serverIdentifier = getServerIdentifier(config);
         
@@ -121,7 +156,7 @@ public class StandardMCPClient implements AutoCloseable {
                         .args(config.getArgs() != null ? List.of(config.getArgs()) : List.of())
                         .env(config.getEnv())
                         .build();
-                    transport = new StdioClientTransport(params);
+                    transport = new SerializedStdioTransport(params);
                     LOGGER.info("Connecting to MCP server via STDIO: " + config.getCommand());
                     break;
                     
@@ -148,10 +183,16 @@ public class StandardMCPClient implements AutoCloseable {
             
             // Build the client
             LOGGER.info("Building MCP client with timeout: " + config.getTimeoutSeconds() + "s");
-            this.mcpClient = McpClient.sync(transport)
+            McpClient.SyncSpec spec = McpClient.sync(transport)
                 .requestTimeout(Duration.ofSeconds(config.getTimeoutSeconds()))
-                .capabilities(capBuilder.build())
-                .build();
+                .initializationTimeout(Duration.ofSeconds(config.getTimeoutSeconds()))
+                .capabilities(capBuilder.build());
+            if (onToolsChanged != null) {
+                spec.toolsChangeConsumer(tools -> onToolsChanged.toolsChanged(tools.stream()
+                    .map(this::convertToToolInfo)
+                    .collect(Collectors.toList())));
+            }
+            this.mcpClient = spec.build();
             
             // Initialize the connection
             LOGGER.info("Initializing MCP client connection to: " + serverIdentifier);
@@ -214,7 +255,7 @@ public class StandardMCPClient implements AutoCloseable {
             
             return new ToolCallResult(
                 result.content(),
-                result.isError(),
+                Boolean.TRUE.equals(result.isError()),
                 serverIdentifier
             );
             
@@ -225,11 +266,11 @@ public class StandardMCPClient implements AutoCloseable {
     }
     
     /**
-     * Test if the MCP server is responsive
+     * Test if the MCP server is responsive, using the protocol's ping request
      */
     public boolean ping() {
         try {
-            mcpClient.listTools();
+            mcpClient.ping();
             return true;
         } catch (Exception e) {
             LOGGER.log(Level.FINE, "MCP server ping failed", e);
@@ -237,6 +278,15 @@ public class StandardMCPClient implements AutoCloseable {
         }
     }
     
+    /**
+     * Whether the server announced that it sends notifications/tools/list_changed
+     */
+    public boolean supportsToolsListChanged() {
+        McpSchema.ServerCapabilities capabilities = mcpClient.getServerCapabilities();
+        return capabilities != null && capabilities.tools() != null
+            && Boolean.TRUE.equals(capabilities.tools().listChanged());
+    }
+    
     /**
      * Get server information
      */
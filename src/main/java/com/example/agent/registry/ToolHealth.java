@@ -0,0 +1,156 @@
+package com.example.agent.registry;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stored health state of one MCP server endpoint, written by {@link MCPHealthMonitor}.
+ */
+public class ToolHealth {
+
+    public static final String PENDING = "pending";
+    public static final String HEALTHY = "healthy";
+    public static final String UNHEALTHY = "unhealthy";
+
+    @JsonProperty("endpoint_url")
+    private String endpointUrl;
+
+    // pending until the first check completes, then healthy or unhealthy
+    @JsonProperty("status")
+    private String status = PENDING;
+
+    @JsonProperty("last_checked_at")
+    private Long lastCheckedAt;
+
+    @JsonProperty("last_healthy_at")
+    private Long lastHealthyAt;
+
+    @JsonProperty("last_latency_ms")
+    private Long lastLatencyMs;
+
+    @JsonProperty("consecutive_failures")
+    private int consecutiveFailures;
+
+    @JsonProperty("next_check_at")
+    private long nextCheckAt;
+
+    // Most recent checks, oldest first
+    @JsonProperty("history")
+    private List<Check> history = new ArrayList<>();
+
+    public ToolHealth() {
+    }
+
+    public ToolHealth(String endpointUrl) {
+        this.endpointUrl = endpointUrl;
+    }
+
+    public String getEndpointUrl() {
+        return endpointUrl;
+    }
+
+    public void setEndpointUrl(String endpointUrl) {
+        this.endpointUrl = endpointUrl;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getLastCheckedAt() {
+        return lastCheckedAt;
+    }
+
+    public void setLastCheckedAt(Long lastCheckedAt) {
+        this.lastCheckedAt = lastCheckedAt;
+    }
+
+    public Long getLastHealthyAt() {
+        return lastHealthyAt;
+    }
+
+    public void setLastHealthyAt(Long lastHealthyAt) {
+        this.lastHealthyAt = lastHealthyAt;
+    }
+
+    public Long getLastLatencyMs() {
+        return lastLatencyMs;
+    }
+
+    public void setLastLatencyMs(Long lastLatencyMs) {
+        this.lastLatencyMs = lastLatencyMs;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public void setConsecutiveFailures(int consecutiveFailures) {
+        this.consecutiveFailures = consecutiveFailures;
+    }
+
+    public long getNextCheckAt() {
+        return nextCheckAt;
+    }
+
+    public void setNextCheckAt(long nextCheckAt) {
+        this.nextCheckAt = nextCheckAt;
+    }
+
+    public List<Check> getHistory() {
+        return history;
+    }
+
+    public void setHistory(List<Check> history) {
+        this.history = history;
+    }
+
+    /**
+     * Healthy flag for {@link ToolMetadata#getServerHealthy()}; null while pending
+     */
+    public Boolean toServerHealthy() {
+        return PENDING.equals(status) ? null : HEALTHY.equals(status);
+    }
+
+    /**
+     * Outcome of one health check
+     */
+    public static class Check {
+
+        @JsonProperty("at")
+        private long at;
+
+        @JsonProperty("healthy")
+        private boolean healthy;
+
+        @JsonProperty("latency_ms")
+        private long latencyMs;
+
+        public Check() {
+        }
+
+        public Check(long at, boolean healthy, long latencyMs) {
+            this.at = at;
+            this.healthy = healthy;
+            this.latencyMs = latencyMs;
+        }
+
+        public long getAt() {
+            return at;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public long getLatencyMs() {
+            return latencyMs;
+        }
+    }
+}
@@ -26,6 +26,10 @@ public class ToolMetadata {
     @JsonProperty("updated_at")
     private Long updatedAt;
     
+    // MCP tool name -> seconds its call results may be cached; tools not listed are never cached
+    @JsonProperty("result_cache_ttl_seconds")
+    private java.util.Map<String, Long> resultCacheTtlSeconds;
+    
     // Transient field - populated by querying MCP server
     @JsonProperty("mcp_tools")
     private java.util.List<java.util.Map<String, Object>> mcpTools;
@@ -33,6 +37,27 @@ public class ToolMetadata {
     @JsonProperty("server_healthy")
     private Boolean serverHealthy;
     
+    // Transient fields - state of the cached MCP catalog behind mcp_tools
+    @JsonProperty("catalog_refreshed_at")
+    private Long catalogRefreshedAt;
+    
+    @JsonProperty("catalog_error")
+    private String catalogError;
+    
+    // True when mcp_tools is not current: not fetched yet, or the latest refresh failed
+    @JsonProperty("catalog_stale")
+    private Boolean catalogStale;
+    
+    // Transient fields - latest background health check of the MCP server
+    @JsonProperty("health_status")
+    private String healthStatus;
+    
+    @JsonProperty("health_checked_at")
+    private Long healthCheckedAt;
+    
+    @JsonProperty("health_latency_ms")
+    private Long healthLatencyMs;
+    
     public ToolMetadata() {
     }
     
@@ -100,4 +125,60 @@ public class ToolMetadata {
     public void setServerHealthy(Boolean serverHealthy) {
         this.serverHealthy = serverHealthy;
     }
+    
+    public Long getCatalogRefreshedAt() {
+        return catalogRefreshedAt;
+    }
+    
+    public void setCatalogRefreshedAt(Long catalogRefreshedAt) {
+        this.catalogRefreshedAt = catalogRefreshedAt;
+    }
+    
+    public String getCatalogError() {
+        return catalogError;
+    }
+    
+    public void setCatalogError(String catalogError) {
+        this.catalogError = catalogError;
+    }
+    
+    public Boolean getCatalogStale() {
+        return catalogStale;
+    }
+    
+    public void setCatalogStale(Boolean catalogStale) {
+        this.catalogStale = catalogStale;
+    }
+    
+    public String getHealthStatus() {
+        return healthStatus;
+    }
+    
+    public void setHealthStatus(String healthStatus) {
+        this.healthStatus = healthStatus;
+    }
+    
+    public Long getHealthCheckedAt() {
+        return healthCheckedAt;
+    }
+    
+    public void setHealthCheckedAt(Long healthCheckedAt) {
+        this.healthCheckedAt = healthCheckedAt;
+    }
+    
+    public Long getHealthLatencyMs() {
+        return healthLatencyMs;
+    }
+    
+    public void setHealthLatencyMs(Long healthLatencyMs) {
+        this.healthLatencyMs = healthLatencyMs;
+    }
+    
+    public java.util.Map<String, Long> getResultCacheTtlSeconds() {
+        return resultCacheTtlSeconds;
+    }
+    
+    public void setResultCacheTtlSeconds(java.util.Map<String, Long> resultCacheTtlSeconds) {
+        this.resultCacheTtlSeconds = resultCacheTtlSeconds;
+    }
 }
@@ -1,39 +1,48 @@
 package com.example.agent.registry;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.JedisPoolConfig;
-
+import java.time.Duration;
 import java.util.*;
 import java.util.logging.Logger;
 
 /**
  * Simplified tool registry - stores only endpoint info, queries MCP servers for details.
+ * MCP tool details come from a background-refreshed catalog cache and server health
+ * from background health checks, so neither reads nor writes wait on an MCP server.
  */
 public class ToolRegistry {
     
     private static final Logger LOGGER = Logger.getLogger(ToolRegistry.class.getName());
-    private static final String TOOL_KEY_PREFIX = "tool:";
-    private static final String TOOL_LIST_KEY = "tools:list";
-    
-    private final JedisPool jedisPool;
-    private final ObjectMapper objectMapper;
-    private final MCPClient mcpClient;
+    private static final RegistryNamespace NAMESPACE = RegistryNamespace.TOOLS;
     
-    public ToolRegistry() {
-        this("localhost", 6379);
-    }
+    private final RegistryStore store;
+    private final RegistryCodec codec;
+    private final MCPCatalogCache catalog;
+    private final MCPHealthMonitor health;
+    private final MCPToolGateway gateway;
+    private final MCPToolIndex searchIndex = new MCPToolIndex();
+    private final Duration enrichmentDeadline;
     
-    public ToolRegistry(String host, int port) {
-        JedisPoolConfig poolConfig = new JedisPoolConfig();
-        poolConfig.setMaxTotal(20);
-        poolConfig.setMaxIdle(10);
-        poolConfig.setMinIdle(5);
+    /**
+     * @param enrichmentDeadline how long a read waits for servers whose catalog has never been fetched
+     */
+    public ToolRegistry(RegistryStore store, RegistryCodec codec, MCPCatalogCache catalog,
+                        MCPHealthMonitor health, MCPToolGateway gateway, Duration enrichmentDeadline) {
+        this.store = store;
+        this.codec = codec;
+        this.catalog = catalog;
+        this.health = health;
+        this.gateway = gateway;
+        this.enrichmentDeadline = enrichmentDeadline;
+        
+        // The search index follows each server's catalog, and covers exactly the registered servers
+        catalog.addListener(searchIndex::update);
+        health.addListener(this::syncRegisteredServers);
         
-        this.jedisPool = new JedisPool(poolConfig, host, port);
-        this.objectMapper = new ObjectMapper();
-        this.mcpClient = new MCPClient();
+        try {
+            ensureUpdatedIndex();
+        } catch (Exception e) {
+            LOGGER.severe("Failed to build tool updatedAt index: " + e.getMessage());
+        }
     }
     
     /**
@@ -48,69 +57,90 @@ public class ToolRegistry {
         metadata.setCreatedAt(now);
         metadata.setUpdatedAt(now);
         
-        // Validate MCP server is reachable
-        boolean healthy = mcpClient.testMCPServer(metadata.getEndpointUrl());
-        metadata.setServerHealthy(healthy);
+        putTool(metadata, RegistryStore.WriteMode.UPSERT);
+        catalog.refresh(metadata.getEndpointUrl());
         
-        if (!healthy) {
-            LOGGER.warning("MCP server not healthy: " + metadata.getEndpointUrl());
-        }
+        // Reachability is checked in the background; until then the status is pending
+        applyHealth(metadata, health.checkSoon(metadata.getEndpointUrl()));
         
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = TOOL_KEY_PREFIX + metadata.getToolId();
-            String json = objectMapper.writeValueAsString(metadata);
-            
-            jedis.set(key, json);
-            jedis.sadd(TOOL_LIST_KEY, metadata.getToolId());
-            
-            LOGGER.info("Registered tool: " + metadata.getName() + " (ID: " + metadata.getToolId() + ")");
-            return metadata;
-        }
+        LOGGER.info("Registered tool: " + metadata.getName() + " (ID: " + metadata.getToolId() + ")");
+        return metadata;
     }
     
     /**
-     * Get tool by ID and enrich with MCP server data
+     * Get tool by ID and enrich with cached MCP server data
      */
     public Optional<ToolMetadata> getTool(String toolId) throws Exception {
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = TOOL_KEY_PREFIX + toolId;
-            String json = jedis.get(key);
-            
-            if (json == null) {
-                return Optional.empty();
+        Optional<ToolMetadata> metadata = readTool(toolId);
+        
+        // Enrich with MCP server data
+        metadata.ifPresent(tool -> enrichWithMCPData(List.of(tool)));
+        
+        return metadata;
+    }
+    
+    /**
+     * Read the stored registration without contacting the MCP server
+     */
+    private Optional<ToolMetadata> readTool(String toolId) throws Exception {
+        byte[] value = store.get(NAMESPACE, toolId);
+        if (value == null) {
+            return Optional.empty();
+        }
+        
+        return Optional.of(codec.decode(value, ToolMetadata.class));
+    }
+    
+    /**
+     * Read several stored registrations in one bulk read, skipping missing IDs
+     */
+    private List<ToolMetadata> readTools(Collection<String> toolIds) throws Exception {
+        List<ToolMetadata> tools = new ArrayList<>();
+        for (byte[] value : store.getAll(NAMESPACE, new ArrayList<>(toolIds))) {
+            if (value != null) {
+                tools.add(codec.decode(value, ToolMetadata.class));
             }
-            
-            ToolMetadata metadata = objectMapper.readValue(json, ToolMetadata.class);
-            
-            // Enrich with MCP server data
-            enrichWithMCPData(metadata);
-            
-            return Optional.of(metadata);
         }
+        return tools;
     }
     
     /**
      * Get all tools and enrich with MCP data
      */
     public List<ToolMetadata> getAllTools() throws Exception {
-        try (Jedis jedis = jedisPool.getResource()) {
-            Set<String> toolIds = jedis.smembers(TOOL_LIST_KEY);
-            List<ToolMetadata> tools = new ArrayList<>();
-            
-            for (String toolId : toolIds) {
-                Optional<ToolMetadata> tool = getTool(toolId);
-                tool.ifPresent(tools::add);
-            }
-            
-            return tools;
-        }
+        List<ToolMetadata> tools = readTools(store.ids(NAMESPACE));
+        enrichWithMCPData(tools);
+        return tools;
+    }
+    
+    /**
+     * List one page of tools (enriched with MCP data); pass the returned next_cursor to continue
+     */
+    public RegistryPage<ToolMetadata> listTools(String cursor, int limit) throws Exception {
+        RegistryPage<String> ids = store.scan(NAMESPACE, cursor, limit);
+        
+        List<ToolMetadata> tools = readTools(ids.getItems());
+        enrichWithMCPData(tools);
+        return new RegistryPage<>(tools, ids.getNextCursor());
+    }
+    
+    /**
+     * Get tools updated or deleted after the given position (see {@link RegistryDelta})
+     */
+    public RegistryDelta<ToolMetadata> getToolsChangedSince(RegistryListings.DeltaPosition since, int limit) throws Exception {
+        RegistryListings.ChangedIds changed = store.changedSince(NAMESPACE, since, limit);
+        
+        List<ToolMetadata> tools = readTools(changed.updated);
+        enrichWithMCPData(tools);
+        return new RegistryDelta<>(tools, changed.deleted, changed.asOf,
+            changed.next.toString(), changed.resyncRequired);
     }
     
     /**
      * Update tool
      */
     public ToolMetadata updateTool(String toolId, ToolMetadata metadata) throws Exception {
-        Optional<ToolMetadata> existing = getTool(toolId);
+        Optional<ToolMetadata> existing = readTool(toolId);
         if (existing.isEmpty()) {
             throw new IllegalArgumentException("Tool not found: " + toolId);
         }
@@ -119,59 +149,235 @@ public class ToolRegistry {
         metadata.setCreatedAt(existing.get().getCreatedAt());
         metadata.setUpdatedAt(System.currentTimeMillis());
         
-        // Test MCP server
-        boolean healthy = mcpClient.testMCPServer(metadata.getEndpointUrl());
-        metadata.setServerHealthy(healthy);
-        
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = TOOL_KEY_PREFIX + toolId;
-            String json = objectMapper.writeValueAsString(metadata);
-            jedis.set(key, json);
-            
-            LOGGER.info("Updated tool: " + toolId);
-            return metadata;
+        if (!putTool(metadata, RegistryStore.WriteMode.UPDATE)) {
+            throw new IllegalArgumentException("Tool not found: " + toolId);
         }
+        catalog.refresh(metadata.getEndpointUrl());
+        applyHealth(metadata, health.checkSoon(metadata.getEndpointUrl()));
+        
+        LOGGER.info("Updated tool: " + toolId);
+        return metadata;
     }
     
     /**
      * Delete tool
      */
     public boolean deleteTool(String toolId) throws Exception {
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = TOOL_KEY_PREFIX + toolId;
-            Long deleted = jedis.del(key);
-            jedis.srem(TOOL_LIST_KEY, toolId);
-            
-            if (deleted > 0) {
-                LOGGER.info("Deleted tool: " + toolId);
-                return true;
+        if (store.delete(NAMESPACE, toolId, System.currentTimeMillis(), null)) {
+            LOGGER.info("Deleted tool: " + toolId);
+            return true;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Store the tool and its listing entries in one atomic store call.
+     * Returns false if the mode precondition (UPDATE needs an existing tool) failed.
+     */
+    private boolean putTool(ToolMetadata metadata, RegistryStore.WriteMode mode) throws Exception {
+        clearDerivedFields(metadata);
+        RegistryStore.Record record = new RegistryStore.Record(
+            metadata.getToolId(), codec.encode(metadata), metadata.getUpdatedAt(), Set.of());
+        return store.put(NAMESPACE, record, mode, null);
+    }
+    
+    /**
+     * Catalog and health fields are filled in from the catalog cache and health
+     * monitor on every read; whatever a client sent for them is not stored
+     */
+    private static void clearDerivedFields(ToolMetadata metadata) {
+        metadata.setMcpTools(null);
+        metadata.setServerHealthy(null);
+        metadata.setCatalogRefreshedAt(null);
+        metadata.setCatalogError(null);
+        metadata.setCatalogStale(null);
+        metadata.setHealthStatus(null);
+        metadata.setHealthCheckedAt(null);
+        metadata.setHealthLatencyMs(null);
+    }
+    
+    /**
+     * Build the updatedAt index for tools registered before it existed
+     */
+    private void ensureUpdatedIndex() throws Exception {
+        if (!store.needsIndexRebuild(NAMESPACE)) {
+            return;
+        }
+        
+        List<RegistryStore.Record> records = new ArrayList<>();
+        for (ToolMetadata tool : readTools(store.ids(NAMESPACE))) {
+            records.add(new RegistryStore.Record(tool.getToolId(), null, tool.getUpdatedAt(), Set.of()));
+        }
+        store.rebuildIndexes(NAMESPACE, records);
+        LOGGER.info("Built updatedAt index for " + records.size() + " tools");
+    }
+    
+    /**
+     * Call a tool on a registered tool's MCP server
+     */
+    public Optional<MCPToolGateway.CallResult> callTool(String toolId, String tool, Map<String, Object> arguments,
+                                                        Long timeoutMs) throws Exception {
+        Optional<ToolMetadata> metadata = readTool(toolId);
+        if (metadata.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        return Optional.of(gateway.call(resolveCall(metadata.get(), tool, arguments, timeoutMs)));
+    }
+    
+    /**
+     * Run several tool calls concurrently, reading their registrations in one bulk read.
+     * Calls naming an unknown tool ID fail without being sent.
+     */
+    public List<MCPToolGateway.CallResult> callTools(List<MCPToolGateway.Call> calls) throws Exception {
+        Set<String> toolIds = new LinkedHashSet<>();
+        for (MCPToolGateway.Call call : calls) {
+            toolIds.add(call.toolId);
+        }
+        Map<String, ToolMetadata> registrations = new HashMap<>();
+        for (ToolMetadata tool : readTools(toolIds)) {
+            registrations.put(tool.getToolId(), tool);
+        }
+        
+        List<MCPToolGateway.Call> resolved = new ArrayList<>();
+        for (MCPToolGateway.Call call : calls) {
+            ToolMetadata metadata = registrations.get(call.toolId);
+            if (metadata != null) {
+                resolved.add(resolveCall(metadata, call.tool, call.arguments, call.timeoutMs));
+            }
+        }
+        
+        Iterator<MCPToolGateway.CallResult> results = gateway.callAll(resolved).iterator();
+        List<MCPToolGateway.CallResult> ordered = new ArrayList<>(calls.size());
+        for (MCPToolGateway.Call call : calls) {
+            ordered.add(registrations.containsKey(call.toolId)
+                ? results.next()
+                : MCPToolGateway.CallResult.failed(call, "Tool not found: " + call.toolId, 0, false));
+        }
+        return ordered;
+    }
+    
+    /**
+     * Hit and miss counts of the tool call result cache
+     */
+    public Map<String, Object> getResultCacheStats() {
+        return gateway.getCacheStats();
+    }
+    
+    /**
+     * A call to one of the registration's MCP tools, cacheable if the registration declares a TTL for it
+     */
+    private static MCPToolGateway.Call resolveCall(ToolMetadata metadata, String tool, Map<String, Object> arguments,
+                                                   Long timeoutMs) {
+        Map<String, Long> ttls = metadata.getResultCacheTtlSeconds();
+        Long ttlSeconds = ttls != null ? ttls.get(tool) : null;
+        Duration cacheTtl = ttlSeconds != null && ttlSeconds > 0 ? Duration.ofSeconds(ttlSeconds) : null;
+        return new MCPToolGateway.Call(metadata.getToolId(), metadata.getEndpointUrl(), tool, arguments, timeoutMs, cacheTtl);
+    }
+    
+    /**
+     * Search the tools offered by all registered MCP servers, from the in-memory index
+     */
+    public List<MCPToolIndex.Hit> searchTools(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+    
+    /**
+     * Keep every registered server's catalog refreshed and the index in step with
+     * the registered servers. The catalog only reports changed tool lists, so a
+     * server dropped from the index and registered again (or dropped by a sweep
+     * that raced its refresh) is indexed here from its cached catalog.
+     */
+    private void syncRegisteredServers(Set<String> endpoints) {
+        searchIndex.retainEndpoints(endpoints);
+        catalog.touch(endpoints);
+        for (String endpoint : endpoints) {
+            MCPCatalogCache.Snapshot snapshot = catalog.get(endpoint);
+            if (snapshot.getRefreshedAt() != null) {
+                searchIndex.addIfAbsent(endpoint, snapshot.getTools());
             }
-            
-            return false;
         }
     }
     
     /**
-     * Enrich tool metadata by querying its MCP server
+     * Refresh state of each MCP server's cached catalog
+     */
+    public List<Map<String, Object>> getCatalogStatus() {
+        return catalog.getStatus();
+    }
+    
+    /**
+     * Stored health check state and history of a tool's MCP server
+     */
+    public Optional<ToolHealth> getToolHealth(String toolId) throws Exception {
+        Optional<ToolMetadata> metadata = readTool(toolId);
+        if (metadata.isEmpty() || metadata.get().getEndpointUrl() == null) {
+            return Optional.empty();
+        }
+        
+        ToolHealth toolHealth = health.getHealth(metadata.get().getEndpointUrl());
+        return Optional.of(toolHealth != null ? toolHealth : new ToolHealth(metadata.get().getEndpointUrl()));
+    }
+    
+    /**
+     * Enrich tools from the cached catalogs of their MCP servers. Servers never
+     * fetched before are fetched concurrently, bounded by the enrichment deadline;
+     * those that miss it, or whose last refresh failed, are marked catalog_stale.
+     * Server health is read from the stored health check results.
      */
-    private void enrichWithMCPData(ToolMetadata metadata) {
+    private void enrichWithMCPData(List<ToolMetadata> tools) {
+        Set<String> endpoints = new LinkedHashSet<>();
+        for (ToolMetadata tool : tools) {
+            if (tool.getEndpointUrl() != null) {
+                endpoints.add(tool.getEndpointUrl());
+            }
+        }
+        if (endpoints.isEmpty()) {
+            return;
+        }
+        
+        Map<String, MCPCatalogCache.Snapshot> snapshots = catalog.getAll(endpoints, enrichmentDeadline);
+        for (ToolMetadata metadata : tools) {
+            MCPCatalogCache.Snapshot snapshot = snapshots.get(metadata.getEndpointUrl());
+            if (snapshot == null) {
+                continue;
+            }
+            metadata.setMcpTools(snapshot.getTools());
+            metadata.setCatalogRefreshedAt(snapshot.getRefreshedAt());
+            metadata.setCatalogError(snapshot.getError());
+            metadata.setCatalogStale(!snapshot.isLoaded() || snapshot.getError() != null);
+        }
+        
         try {
-            MCPClient.MCPToolInfo info = mcpClient.queryMCPServer(metadata.getEndpointUrl());
-            metadata.setMcpTools(info.getTools());
-            metadata.setServerHealthy(true);
+            Map<String, ToolHealth> healthByEndpoint = health.getHealth(endpoints);
+            for (ToolMetadata metadata : tools) {
+                applyHealth(metadata, healthByEndpoint.get(metadata.getEndpointUrl()));
+            }
         } catch (Exception e) {
-            LOGGER.warning("Failed to fetch MCP data for " + metadata.getName() + ": " + e.getMessage());
-            metadata.setServerHealthy(false);
-            metadata.setMcpTools(new ArrayList<>());
+            LOGGER.warning("Failed to read MCP server health: " + e.getMessage());
         }
     }
     
     /**
-     * Close registry
+     * Copy stored health onto a tool; an endpoint never checked is pending
      */
-    public void close() {
-        if (jedisPool != null) {
-            jedisPool.close();
+    private static void applyHealth(ToolMetadata metadata, ToolHealth toolHealth) {
+        if (toolHealth == null) {
+            toolHealth = new ToolHealth(metadata.getEndpointUrl());
         }
+        metadata.setServerHealthy(toolHealth.toServerHealthy());
+        metadata.setHealthStatus(toolHealth.getStatus());
+        metadata.setHealthCheckedAt(toolHealth.getLastCheckedAt());
+        metadata.setHealthLatencyMs(toolHealth.getLastLatencyMs());
+    }
+    
+    /**
+     * Close registry; the store is owned and closed by the caller
+     */
+    public void close() {
+        catalog.close();
+        health.close();
+        gateway.close();
     }
 }
@@ -1,9 +1,14 @@
 package com.example.agent.registry;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -18,9 +23,27 @@ import java.util.Optional;
 public class ToolRegistryResource {
     
     private final ToolRegistry registry;
+    private final UpstreamExecutor upstream;
+    
+    public static class ToolCallRequest {
+        public String tool;
+        public Map<String, Object> arguments;
+        @JsonProperty("timeout_ms")
+        public Long timeoutMs;
+    }
+    
+    public static class BatchToolCall extends ToolCallRequest {
+        @JsonProperty("tool_id")
+        public String toolId;
+    }
     
-    public ToolRegistryResource(ToolRegistry registry) {
+    public static class BatchToolCallRequest {
+        public List<BatchToolCall> calls;
+    }
+    
+    public ToolRegistryResource(ToolRegistry registry, UpstreamExecutor upstream) {
         this.registry = registry;
+        this.upstream = upstream;
     }
     
     /**
@@ -38,11 +61,28 @@ public class ToolRegistryResource {
     }
     
     /**
-     * Get all tools (with MCP data enriched)
+     * Get all tools (with MCP data enriched).
+     * With ?since=<updatedAt>, or the next_since of an earlier delta, only tools changed or deleted since then are returned;
+     * with ?cursor= and/or ?limit= the listing is paginated.
      */
     @GET
-    public Response getAllTools() {
+    public Response getAllTools(@QueryParam("cursor") String cursor,
+                                @QueryParam("limit") Integer limit,
+                                @QueryParam("since") String since) {
         try {
+            if (since != null) {
+                RegistryListings.DeltaPosition from;
+                try {
+                    from = RegistryListings.DeltaPosition.parse(since);
+                } catch (IllegalArgumentException e) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(errorResponse(e.getMessage())).build();
+                }
+                return Response.ok(registry.getToolsChangedSince(from, RegistryListings.clampLimit(limit))).build();
+            }
+            if (cursor != null || limit != null) {
+                return Response.ok(registry.listTools(cursor, RegistryListings.clampLimit(limit))).build();
+            }
             List<ToolMetadata> tools = registry.getAllTools();
             return Response.ok(tools).build();
         } catch (Exception e) {
@@ -51,6 +91,29 @@ public class ToolRegistryResource {
         }
     }
     
+    /**
+     * Search tools of all registered MCP servers by name, description and parameter names
+     */
+    @GET
+    @Path("/search")
+    public Response searchTools(@QueryParam("q") String query,
+                                @QueryParam("limit") Integer limit) {
+        if (query == null || query.isBlank()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(errorResponse("Query parameter q is required")).build();
+        }
+        return Response.ok(registry.searchTools(query, RegistryListings.clampLimit(limit))).build();
+    }
+    
+    /**
+     * Refresh time and last error of each MCP server's cached tool catalog
+     */
+    @GET
+    @Path("/catalog")
+    public Response getCatalogStatus() {
+        return Response.ok(registry.getCatalogStatus()).build();
+    }
+    
     /**
      * Get tool by ID (with MCP data enriched)
      */
@@ -71,6 +134,106 @@ public class ToolRegistryResource {
         }
     }
     
+    /**
+     * Health check status and recent history of the tool's MCP server
+     */
+    @GET
+    @Path("/{toolId}/health")
+    public Response getToolHealth(@PathParam("toolId") String toolId) {
+        try {
+            Optional<ToolHealth> health = registry.getToolHealth(toolId);
+            if (health.isPresent()) {
+                return Response.ok(health.get()).build();
+            } else {
+                return Response.status(Response.Status.NOT_FOUND)
+                    .entity(errorResponse("Tool not found: " + toolId)).build();
+            }
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(errorResponse("Failed to retrieve tool health: " + e.getMessage())).build();
+        }
+    }
+    
+    /**
+     * Call one of the tools offered by this registered tool's MCP server.
+     * Tool-level errors come back as 200 with is_error; 504 if the call timed out,
+     * 502 if the server could not be reached.
+     */
+    @POST
+    @Path("/{toolId}/call")
+    public void callTool(@PathParam("toolId") String toolId, ToolCallRequest request,
+                         @Suspended AsyncResponse asyncResponse) {
+        upstream.submit(asyncResponse, () -> doCallTool(toolId, request));
+    }
+    
+    private Response doCallTool(String toolId, ToolCallRequest request) {
+        if (request == null || request.tool == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(errorResponse("Tool name is required")).build();
+        }
+        try {
+            Optional<MCPToolGateway.CallResult> result =
+                registry.callTool(toolId, request.tool, request.arguments, request.timeoutMs);
+            if (result.isEmpty()) {
+                return Response.status(Response.Status.NOT_FOUND)
+                    .entity(errorResponse("Tool not found: " + toolId)).build();
+            }
+            if (result.get().isTimedOut()) {
+                return Response.status(Response.Status.GATEWAY_TIMEOUT).entity(result.get()).build();
+            }
+            if (result.get().getError() != null) {
+                return Response.status(Response.Status.BAD_GATEWAY).entity(result.get()).build();
+            }
+            return Response.ok(result.get()).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(errorResponse("Failed to call tool: " + e.getMessage())).build();
+        }
+    }
+    
+    /**
+     * Run many tool calls concurrently; results come back in request order, each with its own outcome
+     */
+    @POST
+    @Path("/calls")
+    public void callTools(BatchToolCallRequest request, @Suspended AsyncResponse asyncResponse) {
+        upstream.submit(asyncResponse, () -> doCallTools(request));
+    }
+    
+    private Response doCallTools(BatchToolCallRequest request) {
+        if (request == null || request.calls == null || request.calls.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(errorResponse("At least one call is required")).build();
+        }
+        if (request.calls.size() > RegistryListings.MAX_LIMIT) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(errorResponse("At most " + RegistryListings.MAX_LIMIT + " calls per batch")).build();
+        }
+        List<MCPToolGateway.Call> calls = new ArrayList<>(request.calls.size());
+        for (BatchToolCall call : request.calls) {
+            if (call.toolId == null || call.tool == null) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(errorResponse("Each call needs tool_id and tool")).build();
+            }
+            calls.add(new MCPToolGateway.Call(call.toolId, null, call.tool, call.arguments, call.timeoutMs));
+        }
+        try {
+            return Response.ok(registry.callTools(calls)).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(errorResponse("Failed to call tools: " + e.getMessage())).build();
+        }
+    }
+    
+    /**
+     * Hit and miss counts of the tool call result cache
+     */
+    @GET
+    @Path("/calls/cache")
+    public Response getResultCacheStats() {
+        return Response.ok(registry.getResultCacheStats()).build();
+    }
+    
     /**
      * Update tool
      */
@@ -0,0 +1,110 @@
+package com.example.agent.registry;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Runs resource methods that wait on MCP servers or A2A agents off the Jetty
+ * request threads.
+ *
+ * The resource method suspends its {@link AsyncResponse} and hands the work here,
+ * so its request thread returns to the connector at once and slow upstreams cannot
+ * starve cheap registry reads. Work runs on a bounded pool with a bounded queue; when
+ * both are full the request is answered 503 instead of queueing without limit. Each
+ * request is answered 504 if it outlives its timeout. Its worker is not interrupted,
+ * since that would break the pooled upstream session it shares with other requests;
+ * the upstream call's own timeout ends it.
+ */
+public class UpstreamExecutor {
+
+    private static final Logger LOGGER = Logger.getLogger(UpstreamExecutor.class.getName());
+
+    private final ThreadPoolExecutor workers;
+    private final Duration defaultTimeout;
+    private final Counter timeouts;
+    private final Counter rejections;
+
+    public UpstreamExecutor(int threads, int queueSize, Duration defaultTimeout) {
+        this(threads, queueSize, defaultTimeout, new MetricRegistry());
+    }
+
+    public UpstreamExecutor(int threads, int queueSize, Duration defaultTimeout, MetricRegistry metrics) {
+        this.defaultTimeout = defaultTimeout;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize), runnable -> {
+                Thread thread = new Thread(runnable, "upstream-request-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        workers.allowCoreThreadTimeOut(true);
+
+        this.timeouts = metrics.counter(MetricRegistry.name("upstream", "requests", "timeouts"));
+        this.rejections = metrics.counter(MetricRegistry.name("upstream", "requests", "rejections"));
+        metrics.gauge(MetricRegistry.name("upstream", "requests", "active"), () -> (Gauge<Integer>) workers::getActiveCount);
+        metrics.gauge(MetricRegistry.name("upstream", "requests", "queued"), () -> (Gauge<Integer>) () -> workers.getQueue().size());
+    }
+
+    /**
+     * Answer the suspended request with the call's response, within the default timeout
+     */
+    public void submit(AsyncResponse response, Callable<Response> call) {
+        submit(response, defaultTimeout, call);
+    }
+
+    /**
+     * Answer the suspended request with the call's response, or 504 after the timeout
+     */
+    public void submit(AsyncResponse response, Duration timeout, Callable<Response> call) {
+        // Armed before submitting, since a fast call may resume the response right away
+        AtomicReference<Future<?>> running = new AtomicReference<>();
+        response.setTimeoutHandler(suspended -> {
+            timeouts.inc();
+            Future<?> future = running.get();
+            if (future != null) {
+                future.cancel(false);
+            }
+            suspended.resume(error(Response.Status.GATEWAY_TIMEOUT, "Timed out after " + timeout.toMillis() + " ms"));
+        });
+        response.setTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        try {
+            running.set(workers.submit(() -> {
+                try {
+                    response.resume(call.call());
+                } catch (Exception e) {
+                    LOGGER.warning("Upstream request failed: " + e.getMessage());
+                    response.resume(error(Response.Status.INTERNAL_SERVER_ERROR, "Request failed: " + e.getMessage()));
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            rejections.inc();
+            response.resume(error(Response.Status.SERVICE_UNAVAILABLE, "Too many upstream requests in progress"));
+        }
+    }
+
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private static Response error(Response.Status status, String message) {
+        return Response.status(status).type(MediaType.APPLICATION_JSON).entity(Map.of("error", message)).build();
+    }
+}
@@ -0,0 +1,60 @@
+-- Atomically remove a record, its list membership and term index entries,
+-- record a tombstone for delta listings, then record the change on the
+-- namespace's change stream and publish it if the record existed.
+--
+-- Every key the script touches is passed in KEYS. The caller reads the record's
+-- currently indexed terms first and passes them with their term keys; if they
+-- changed in the meantime the script writes nothing and returns -1, and the
+-- caller retries with a fresh read.
+--
+-- KEYS[1] <prefix><id>               value key
+-- KEYS[2] <type>s:list               registered IDs
+-- KEYS[3] <record-terms-prefix><id>  terms currently indexed for the record
+-- KEYS[4] <type>s:updated            sorted set of IDs by updatedAt
+-- KEYS[5] <type>s:deleted            sorted set of deleted IDs by deletion time
+-- KEYS[6] change stream              read by each node's consumer group
+-- KEYS[7..]          term keys of the indexed terms, in ARGV order
+-- ARGV[1] record ID
+-- ARGV[2] change channel
+-- ARGV[3] deletion time (epoch millis)
+-- ARGV[4] tombstone cutoff (epoch millis); older tombstones are trimmed
+-- ARGV[5] approximate maximum length of the change stream
+-- ARGV[6] event type, or empty for no event
+-- ARGV[7..]          indexed terms, as read by the caller
+--
+-- Returns the number of value keys deleted (0 or 1), or -1 if the indexed
+-- terms changed since the caller read them.
+
+local id = ARGV[1]
+local previous = {}
+for i = 7, #ARGV do
+    previous[ARGV[i]] = true
+end
+local indexed = redis.call('SMEMBERS', KEYS[3])
+if #indexed ~= #ARGV - 6 then
+    return -1
+end
+for _, term in ipairs(indexed) do
+    if not previous[term] then
+        return -1
+    end
+end
+
+local deleted = redis.call('DEL', KEYS[1])
+redis.call('SREM', KEYS[2], id)
+redis.call('ZREM', KEYS[4], id)
+
+for i = 7, #KEYS do
+    redis.call('SREM', KEYS[i], id)
+end
+redis.call('DEL', KEYS[3])
+
+if deleted > 0 then
+    redis.call('ZADD', KEYS[5], ARGV[3], id)
+    redis.call('ZREMRANGEBYSCORE', KEYS[5], '-inf', '(' .. ARGV[4])
+    if ARGV[6] ~= '' then
+        redis.call('XADD', KEYS[6], 'MAXLEN', '~', ARGV[5], '*', 'type', ARGV[6], 'id', id)
+        redis.call('PUBLISH', ARGV[2], ARGV[6] .. ':' .. id)
+    end
+end
+return deleted
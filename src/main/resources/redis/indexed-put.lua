@@ -0,0 +1,79 @@
+-- Atomically store a record, its list membership, term index entries and
+-- change-tracking entries, then record the change on the namespace's change
+-- stream and publish it. Used for namespaces with a term index and change feed
+-- (agents: terms are capabilities).
+--
+-- Every key the script touches is passed in KEYS. The caller reads the record's
+-- currently indexed terms first and passes them with their term keys; if they
+-- changed in the meantime the script writes nothing and returns -1, and the
+-- caller retries with a fresh read.
+--
+-- KEYS[1] <prefix><id>               value key
+-- KEYS[2] <type>s:list               registered IDs
+-- KEYS[3] <record-terms-prefix><id>  terms currently indexed for the record
+-- KEYS[4] <type>s:updated            sorted set of IDs by updatedAt
+-- KEYS[5] <type>s:deleted            sorted set of deleted IDs by deletion time
+-- KEYS[6] change stream              read by each node's consumer group
+-- KEYS[7..6+P]       term keys of the previously indexed terms, in ARGV order
+-- KEYS[7+P..]        term keys of the new terms, in ARGV order
+-- ARGV[1] record ID
+-- ARGV[2] serialized record
+-- ARGV[3] mode: "upsert", "update" (record must exist) or "create" (record must not exist)
+-- ARGV[4] change channel
+-- ARGV[5] updatedAt (epoch millis)
+-- ARGV[6] approximate maximum length of the change stream
+-- ARGV[7] event type, or empty for no event
+-- ARGV[8] P, the number of previously indexed terms
+-- ARGV[9..8+P]       previously indexed terms, as read by the caller
+-- ARGV[9+P..]        new terms
+--
+-- Returns 1 if written, 0 if the mode precondition failed, -1 if the indexed
+-- terms changed since the caller read them.
+
+local id = ARGV[1]
+local exists = redis.call('EXISTS', KEYS[1]) == 1
+if (ARGV[3] == 'update' and not exists) or (ARGV[3] == 'create' and exists) then
+    return 0
+end
+
+local previousCount = tonumber(ARGV[8])
+local previous = {}
+for i = 1, previousCount do
+    previous[ARGV[8 + i]] = true
+end
+local indexed = redis.call('SMEMBERS', KEYS[3])
+if #indexed ~= previousCount then
+    return -1
+end
+for _, term in ipairs(indexed) do
+    if not previous[term] then
+        return -1
+    end
+end
+
+redis.call('SET', KEYS[1], ARGV[2])
+redis.call('SADD', KEYS[2], id)
+redis.call('ZADD', KEYS[4], ARGV[5], id)
+redis.call('ZREM', KEYS[5], id)
+
+local current = {}
+for i = 9 + previousCount, #ARGV do
+    current[ARGV[i]] = true
+end
+for i = 1, previousCount do
+    if not current[ARGV[8 + i]] then
+        redis.call('SREM', KEYS[6 + i], id)
+    end
+end
+
+redis.call('DEL', KEYS[3])
+for i = 9 + previousCount, #ARGV do
+    redis.call('SADD', KEYS[i - 2], id)
+    redis.call('SADD', KEYS[3], ARGV[i])
+end
+
+if ARGV[7] ~= '' then
+    redis.call('XADD', KEYS[6], 'MAXLEN', '~', ARGV[6], '*', 'type', ARGV[7], 'id', id)
+    redis.call('PUBLISH', ARGV[4], ARGV[7] .. ':' .. id)
+end
+return 1
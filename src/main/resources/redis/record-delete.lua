@@ -0,0 +1,22 @@
+-- Atomically remove a registry record and its list membership, and record a
+-- tombstone for delta listings.
+--
+-- KEYS[1] <prefix><id>        value key
+-- KEYS[2] <type>s:list        registered IDs
+-- KEYS[3] <type>s:updated     sorted set of IDs by updatedAt
+-- KEYS[4] <type>s:deleted     sorted set of deleted IDs by deletion time
+-- ARGV[1] record ID
+-- ARGV[2] deletion time (epoch millis)
+-- ARGV[3] tombstone cutoff (epoch millis); older tombstones are trimmed
+--
+-- Returns the number of value keys deleted (0 or 1).
+
+local deleted = redis.call('DEL', KEYS[1])
+redis.call('SREM', KEYS[2], ARGV[1])
+redis.call('ZREM', KEYS[3], ARGV[1])
+
+if deleted > 0 then
+    redis.call('ZADD', KEYS[4], ARGV[2], ARGV[1])
+    redis.call('ZREMRANGEBYSCORE', KEYS[4], '-inf', '(' .. ARGV[3])
+end
+return deleted
@@ -0,0 +1,23 @@
+-- Atomically store a registry record, its list membership and change-tracking entries.
+--
+-- KEYS[1] <prefix><id>        value key
+-- KEYS[2] <type>s:list        registered IDs
+-- KEYS[3] <type>s:updated     sorted set of IDs by updatedAt
+-- KEYS[4] <type>s:deleted     sorted set of deleted IDs by deletion time
+-- ARGV[1] record ID
+-- ARGV[2] serialized record
+-- ARGV[3] mode: "upsert", "update" (record must exist) or "create" (record must not exist)
+-- ARGV[4] updatedAt (epoch millis)
+--
+-- Returns 1 if written, 0 if the mode precondition failed.
+
+local exists = redis.call('EXISTS', KEYS[1]) == 1
+if (ARGV[3] == 'update' and not exists) or (ARGV[3] == 'create' and exists) then
+    return 0
+end
+
+redis.call('SET', KEYS[1], ARGV[2])
+redis.call('SADD', KEYS[2], ARGV[1])
+redis.call('ZADD', KEYS[3], ARGV[4], ARGV[1])
+redis.call('ZREM', KEYS[4], ARGV[1])
+return 1
@@ -0,0 +1,15 @@
+-- Atomically swap a record's stored value if it is unchanged since it was read.
+-- Used to re-encode values in place; list, index and change entries are untouched
+-- because the record's content is the same.
+--
+-- KEYS[1] <prefix><id>   value key
+-- ARGV[1] expected current value
+-- ARGV[2] replacement value
+--
+-- Returns 1 if replaced, 0 if the value changed or the record is gone.
+
+if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+    return 0
+end
+redis.call('SET', KEYS[1], ARGV[2])
+return 1
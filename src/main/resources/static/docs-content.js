@@ -225,7 +225,7 @@ const DOCS_CONTENT = `
             <p style="font-size: 14px; line-height: 1.6; color: #65676b; margin-bottom: 8px;">
                 Manages MCP tool server registrations with Redis persistence. Performs health checks and dynamically enriches tool metadata by querying MCP servers for available capabilities.
             </p>
-            <code style="font-size: 13px; font-family: monospace; color: #1877f2;">ToolRegistry.java, MCPClient.java</code>
+            <code style="font-size: 13px; font-family: monospace; color: #1877f2;">ToolRegistry.java, StandardMCPClient.java</code>
         </div>
 
         <div style="background: #f5f6f7; padding: 16px; border-radius: 8px; margin-bottom: 16px; border-left: 4px solid #1877f2;">
@@ -272,7 +272,7 @@ const DOCS_CONTENT = `
         <h3 style="font-size: 18px; font-weight: 600; margin: 20px 0 12px; color: #050505;">MCP Tool Integration Flow</h3>
         <ol style="padding-left: 24px; color: #65676b; font-size: 15px; line-height: 1.8; margin-bottom: 20px;">
             <li>User registers MCP server endpoint via UI</li>
-            <li>ToolRegistry validates server connectivity using MCPClient</li>
+            <li>ToolRegistry validates server connectivity using StandardMCPClient</li>
             <li>Registry queries MCP server for available tools via SSE transport</li>
             <li>Tool capabilities are stored in Redis with enriched metadata</li>
             <li>Generated agents use McpToolset to connect to MCP servers</li>
@@ -0,0 +1,131 @@
+package com.example.agent.registry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class A2APendingRepliesTest {
+
+    private final A2APendingReplies replies = new A2APendingReplies();
+
+    @Test
+    void repliesFindTheirRequestByContextOrMessageId() {
+        A2APendingReplies.Request first = send("agent", "ctx-1", "msg-1");
+        A2APendingReplies.Request second = send("agent", "ctx-2", "msg-2");
+
+        assertSame(second, replies.find("agent", List.of("ctx-2"), 2));
+        assertSame(first, replies.find("agent", List.of("msg-1"), 2));
+        // The first echoed ID that is in flight wins; nulls are skipped
+        assertSame(first, replies.find("agent", Arrays.asList(null, "unknown", "ctx-1"), 2));
+    }
+
+    @Test
+    void contextIdsAreScopedToTheirAgent() {
+        A2APendingReplies.Request toA = send("agent-a", "shared", "msg-a");
+        A2APendingReplies.Request toB = send("agent-b", "shared", "msg-b");
+
+        assertSame(toA, replies.find("agent-a", List.of("shared"), 1));
+        assertSame(toB, replies.find("agent-b", List.of("shared"), 1));
+    }
+
+    @Test
+    void aSecondMessageInTheSameContextIsRejected() {
+        send("agent", "ctx", "msg-1");
+
+        assertFalse(replies.add(new A2APendingReplies.Request(), "agent", "ctx"));
+        assertTrue(replies.add(new A2APendingReplies.Request(), "other-agent", "ctx"));
+    }
+
+    @Test
+    void taskEventsFindTheRequestOnceTheTaskIsKnown() {
+        A2APendingReplies.Request request = send("agent", "ctx", "msg");
+        assertNull(replies.find("agent", List.of("task-1"), 2));
+
+        replies.addTask(request, "agent", "task-1");
+
+        assertSame(request, replies.find("agent", List.of("task-1"), 2));
+    }
+
+    @Test
+    void unmatchedRepliesOnlyFallBackWhileOneRequestIsInFlight() {
+        A2APendingReplies.Request only = send("agent", "ctx-1", "msg-1");
+        assertSame(only, replies.find("agent", List.of("unknown"), 1));
+
+        send("agent", "ctx-2", "msg-2");
+        assertNull(replies.find("agent", List.of("unknown"), 2));
+        assertNull(replies.find("other-agent", List.of("unknown"), 1));
+    }
+
+    @Test
+    void removeDropsEveryKeyIncludingTheTask() {
+        A2APendingReplies.Request request = send("agent", "ctx", "msg");
+        replies.addTask(request, "agent", "task");
+
+        replies.remove(request);
+
+        assertNull(replies.find("agent", List.of("ctx", "msg", "task"), 0));
+        // The context is free for the next message
+        assertTrue(replies.add(new A2APendingReplies.Request(), "agent", "ctx"));
+    }
+
+    @Test
+    void aTaskAddedAfterTheReplyDoesNotLinger() {
+        A2APendingReplies.Request request = send("agent", "ctx", "msg");
+        request.getFuture().complete("done");
+        replies.remove(request);
+
+        replies.addTask(request, "agent", "late-task");
+
+        assertNull(replies.find("agent", List.of("late-task"), 0));
+    }
+
+    @Test
+    void aTaskReportedAfterATimeoutDoesNotShadowTheLiveRequest() {
+        A2APendingReplies.Request timedOut = send("agent", "ctx-1", "msg-1");
+        replies.cancel(timedOut);
+        A2APendingReplies.Request live = send("agent", "ctx-2", "msg-2");
+
+        // The agent only now reports the task it started for the abandoned message
+        replies.addTask(timedOut, "agent", "late-task");
+
+        assertNull(replies.find("agent", List.of("late-task"), 2));
+        // With one request in flight, unmatched events go to the live one, not the abandoned one
+        assertSame(live, replies.find("agent", List.of("late-task"), 1));
+    }
+
+    @Test
+    void removingOneRequestLeavesAnotherWithTheSameKeyAlone() {
+        A2APendingReplies.Request stale = new A2APendingReplies.Request();
+        A2APendingReplies.Request current = send("agent", "ctx", "msg");
+        // A request that lost the race for the context must not unregister the winner
+        assertFalse(replies.add(stale, "agent", "ctx"));
+
+        replies.remove(stale);
+
+        assertSame(current, replies.find("agent", List.of("ctx"), 1));
+    }
+
+    @Test
+    void removeAllTakesOnlyTheAgentsRequests() {
+        A2APendingReplies.Request first = send("agent", "ctx-1", "msg-1");
+        replies.addTask(first, "agent", "task-1");
+        A2APendingReplies.Request second = send("agent", "ctx-2", "msg-2");
+        A2APendingReplies.Request other = send("agent-2", "ctx-1", "msg-3");
+
+        assertEquals(Set.of(first, second), replies.removeAll("agent"));
+
+        assertNull(replies.find("agent", List.of("ctx-1", "msg-2", "task-1"), 1));
+        assertSame(other, replies.find("agent-2", List.of("ctx-1"), 1));
+    }
+
+    private A2APendingReplies.Request send(String agentId, String contextId, String messageId) {
+        A2APendingReplies.Request request = new A2APendingReplies.Request();
+        assertTrue(replies.add(request, agentId, contextId));
+        assertTrue(replies.add(request, agentId, messageId));
+        return request;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.agent.registry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddedRegistryStoreTest {
+
+    private static final RegistryNamespace NAMESPACE = RegistryNamespace.AGENTS;
+    private static final int HEADER_SIZE = 8;
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedRegistryStore store;
+
+    @BeforeEach
+    void openStore() {
+        store = new EmbeddedRegistryStore(directory);
+    }
+
+    @AfterEach
+    void closeStore() {
+        store.close();
+    }
+
+    @Test
+    void reopenRestoresRecordsTermsAndTombstones() {
+        put("a", "one", 1_000, Set.of("search"));
+        put("b", "two", 2_000, Set.of("search", "chat"));
+        put("c", "three", 3_000, Set.of());
+        store.delete(NAMESPACE, "c", System.currentTimeMillis(), null);
+
+        reopen();
+
+        assertEquals("one", get("a"));
+        assertEquals("two", get("b"));
+        assertNull(get("c"));
+        assertEquals(Set.of("a", "b"), store.ids(NAMESPACE));
+        assertEquals(Set.of("b"), store.findByTerms(NAMESPACE, List.of("chat"), false));
+        assertEquals(Set.of("a", "b"), store.findByTerms(NAMESPACE, List.of("search"), false));
+        RegistryListings.ChangedIds changed = store.changedSince(NAMESPACE, RegistryListings.DeltaPosition.at(0), 10);
+        assertEquals(List.of("c"), changed.deleted);
+    }
+
+    @Test
+    void replayDropsATornTailEntry() throws IOException {
+        put("a", "one", 1_000, Set.of());
+        put("b", "two", 2_000, Set.of());
+        store.close();
+
+        // The header of b made it to disk but its body did not
+        long b = entryOffsets().get(1);
+        zero(b + HEADER_SIZE, bodyLength(b));
+        store = new EmbeddedRegistryStore(directory);
+
+        assertEquals("one", get("a"));
+        assertNull(get("b"));
+        assertAppendsSurviveReopen();
+    }
+
+    @Test
+    void replayStopsAtAnEntryWithABadChecksum() throws IOException {
+        put("a", "one", 1_000, Set.of());
+        put("b", "two", 2_000, Set.of());
+        put("c", "three", 3_000, Set.of());
+        store.close();
+
+        // Flip the last byte of b's value; c follows a corrupt entry and is not trusted
+        long b = entryOffsets().get(1);
+        long lastByte = b + HEADER_SIZE + bodyLength(b) - 1;
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        try (FileChannel channel = FileChannel.open(logPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.read(buffer, lastByte);
+            buffer.put(0, (byte) (buffer.get(0) ^ 0xFF)).rewind();
+            channel.write(buffer, lastByte);
+        }
+        store = new EmbeddedRegistryStore(directory);
+
+        assertEquals("one", get("a"));
+        assertNull(get("b"));
+        assertNull(get("c"));
+        assertAppendsSurviveReopen();
+    }
+
+    @Test
+    void compactionKeepsLiveRecordsAndTombstonesOnly() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            put("a", "v" + i, 1_000 + i, Set.of("search"));
+        }
+        put("b", "two", 2_000, Set.of());
+        put("c", "three", 3_000, Set.of());
+        store.delete(NAMESPACE, "c", System.currentTimeMillis(), null);
+        assertEquals(13, entryOffsets().size());
+
+        // Two of thirteen entries are live, so opening compacts
+        reopen();
+
+        assertEquals(3, entryOffsets().size());
+        assertEquals("v9", get("a"));
+        assertEquals("two", get("b"));
+        assertNull(get("c"));
+        assertEquals(Set.of("a"), store.findByTerms(NAMESPACE, List.of("search"), false));
+        RegistryListings.ChangedIds changed = store.changedSince(NAMESPACE, RegistryListings.DeltaPosition.at(0), 10);
+        assertEquals(List.of("a", "b"), changed.updated);
+        assertEquals(List.of("c"), changed.deleted);
+
+        reopen();
+        assertEquals(3, entryOffsets().size());
+        assertEquals("v9", get("a"));
+    }
+
+    @Test
+    void aSecondStoreCannotOpenALockedDirectory() {
+        assertThrows(IllegalStateException.class, () -> new EmbeddedRegistryStore(directory));
+
+        store.close();
+        store = new EmbeddedRegistryStore(directory);
+        assertNotNull(store);
+    }
+
+    // Writes after recovery must land where the discarded tail was and be replayed next time
+    private void assertAppendsSurviveReopen() {
+        put("d", "four", 4_000, Set.of());
+        reopen();
+        assertEquals("one", get("a"));
+        assertEquals("four", get("d"));
+        assertEquals(Set.of("a", "d"), store.ids(NAMESPACE));
+    }
+
+    private void reopen() {
+        store.close();
+        store = new EmbeddedRegistryStore(directory);
+    }
+
+    private void put(String id, String value, long updatedAt, Set<String> terms) {
+        store.put(NAMESPACE, new RegistryStore.Record(id, value.getBytes(StandardCharsets.UTF_8), updatedAt, terms),
+            RegistryStore.WriteMode.UPSERT, null);
+    }
+
+    private String get(String id) {
+        byte[] value = store.get(NAMESPACE, id);
+        return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+
+    private Path logPath() {
+        return directory.resolve("registry.log");
+    }
+
+    // Offsets of the entries in the first chunk, read the same way replay does
+    private List<Long> entryOffsets() throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        long position = 0;
+        int length;
+        while ((length = bodyLength(position)) > 0) {
+            offsets.add(position);
+            position += HEADER_SIZE + length;
+        }
+        return offsets;
+    }
+
+    private int bodyLength(long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        try (FileChannel channel = FileChannel.open(logPath(), StandardOpenOption.READ)) {
+            channel.read(buffer, offset);
+        }
+        return buffer.getInt(0);
+    }
+
+    private void zero(long offset, int length) throws IOException {
+        try (FileChannel channel = FileChannel.open(logPath(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(length), offset);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.agent.registry;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.server.McpServer;
+import io.modelcontextprotocol.server.McpSyncServer;
+import io.modelcontextprotocol.server.transport.StdioServerTransportProvider;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MCPDiscoveryServiceTest {
+
+    private final MCPDiscoveryService discovery = new MCPDiscoveryService(new MCPSessionPool(), Duration.ofSeconds(30));
+
+    @AfterEach
+    void close() {
+        discovery.close();
+    }
+
+    @Test
+    void discoversToolsInProcessAsTypedResults() throws Exception {
+        MCPDiscoveryService.DiscoveryResult result = discoverEchoServer();
+
+        assertEquals(2, result.getTools().size());
+        StandardMCPClient.MCPToolInfo tool = result.getTools().get(0);
+        assertEquals("echo", tool.getName());
+        assertEquals("Returns its input", tool.getDescription());
+
+        List<Map<String, Object>> maps = result.toToolMaps();
+        assertEquals(2, maps.size());
+        assertEquals("echo", maps.get(0).get("name"));
+        assertEquals("Returns its input", maps.get(0).get("description"));
+        assertNotNull(maps.get(0).get("inputSchema"));
+    }
+
+    @Test
+    void repeatedDiscoveryReusesThePooledServer() throws Exception {
+        discoverEchoServer();
+        Object started = stdioStats().get("started");
+
+        discoverEchoServer();
+        discoverEchoServer();
+
+        assertEquals(started, stdioStats().get("started"));
+    }
+
+    @Test
+    void sseUrlAcceptsBaseAndSseForms() {
+        assertEquals("http://host:8000/sse", MCPDiscoveryService.sseUrl("http://host:8000"));
+        assertEquals("http://host:8000/sse", MCPDiscoveryService.sseUrl("http://host:8000/"));
+        assertEquals("http://host:8000/sse", MCPDiscoveryService.sseUrl("http://host:8000/sse"));
+    }
+
+    private MCPDiscoveryService.DiscoveryResult discoverEchoServer() throws Exception {
+        return discovery.discoverStdio(java(), "-cp", classPath(), EchoServer.class.getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> stdioStats() {
+        return (Map<String, Object>) discovery.getSessionStats().get("stdio");
+    }
+
+    static String java() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    // The test's class path, including entries a launcher added through its own class loader
+    static String classPath() throws Exception {
+        StringBuilder path = new StringBuilder(System.getProperty("java.class.path"));
+        if (MCPDiscoveryServiceTest.class.getClassLoader() instanceof URLClassLoader loader) {
+            for (URL url : loader.getURLs()) {
+                path.append(File.pathSeparator).append(Path.of(url.toURI()));
+            }
+        }
+        return path.toString();
+    }
+
+    /**
+     * A stdio MCP server offering an echo tool and a sleep tool, run as a child process by the tests
+     */
+    public static class EchoServer {
+        public static void main(String[] args) throws Exception {
+            // stdout carries the protocol; anything else that writes to it goes to stderr
+            PrintStream protocol = System.out;
+            System.setOut(System.err);
+
+            McpSchema.Tool echo = McpSchema.Tool.builder()
+                .name("echo")
+                .description("Returns its input")
+                .inputSchema("{\"type\":\"object\",\"properties\":{\"text\":{\"type\":\"string\"}}}")
+                .build();
+            McpSchema.Tool sleep = McpSchema.Tool.builder()
+                .name("sleep")
+                .description("Answers after the given number of milliseconds")
+                .inputSchema("{\"type\":\"object\",\"properties\":{\"ms\":{\"type\":\"integer\"}}}")
+                .build();
+            McpSyncServer server = McpServer.sync(new StdioServerTransportProvider(new ObjectMapper(), System.in, protocol))
+                .serverInfo("echo", "1.0")
+                .capabilities(McpSchema.ServerCapabilities.builder().tools(false).build())
+                .tool(echo, (exchange, arguments) -> new McpSchema.CallToolResult(
+                    List.of(new McpSchema.TextContent(String.valueOf(arguments.get("text")))), false))
+                .tool(sleep, (exchange, arguments) -> {
+                    try {
+                        Thread.sleep(((Number) arguments.get("ms")).longValue());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new McpSchema.CallToolResult(List.of(new McpSchema.TextContent("slept")), false);
+                })
+                .build();
+            Thread.currentThread().join();
+        }
+    }
+}
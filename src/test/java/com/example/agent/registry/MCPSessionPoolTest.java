@@ -0,0 +1,78 @@
+package com.example.agent.registry;
+
+import io.modelcontextprotocol.spec.McpSchema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MCPSessionPoolTest {
+
+    private final MCPSessionPool pool = new MCPSessionPool();
+
+    @AfterEach
+    void close() {
+        pool.close();
+    }
+
+    @Test
+    void aTimedOutCallLeavesThePooledServerRunning() throws Exception {
+        StandardMCPClient.MCPConfig config = echoServer(3);
+        assertEquals("hello", echo(config, "hello"));
+        Object started = stdioStats().get("started");
+
+        // Longer than the request timeout
+        assertThrows(Exception.class, () -> pool.executeOnce(config, client -> sleep(client, 4000)));
+
+        assertEquals("again", echo(config, "again"));
+        assertEquals(started, stdioStats().get("started"));
+        assertEquals(0L, stdioStats().get("restarts"));
+    }
+
+    @Test
+    void anInterruptedCallLeavesThePooledServerRunning() throws Exception {
+        StandardMCPClient.MCPConfig config = echoServer(10);
+        assertEquals("hello", echo(config, "hello"));
+        Object started = stdioStats().get("started");
+
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        Future<?> call = caller.submit(() -> pool.executeOnce(config, client -> sleep(client, 2000)));
+        Thread.sleep(300);
+        // What a caller that gives up with an interrupt leaves behind
+        call.cancel(true);
+        caller.shutdown();
+        assertTrue(caller.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals("again", echo(config, "again"));
+        assertEquals(started, stdioStats().get("started"));
+        assertEquals(0L, stdioStats().get("restarts"));
+    }
+
+    private String echo(StandardMCPClient.MCPConfig config, String text) throws Exception {
+        StandardMCPClient.ToolCallResult result = pool.executeOnce(config,
+            client -> client.callTool("echo", Map.of("text", text)));
+        return ((McpSchema.TextContent) result.getContent().get(0)).text();
+    }
+
+    private static StandardMCPClient.ToolCallResult sleep(StandardMCPClient client, int ms) throws Exception {
+        return client.callTool("sleep", Map.of("ms", ms));
+    }
+
+    private static StandardMCPClient.MCPConfig echoServer(int timeoutSeconds) throws Exception {
+        return new StandardMCPClient.MCPConfig(StandardMCPClient.TransportType.STDIO)
+            .withCommand(MCPDiscoveryServiceTest.java(), "-cp", MCPDiscoveryServiceTest.classPath(),
+                MCPDiscoveryServiceTest.EchoServer.class.getName())
+            .withTimeout(timeoutSeconds);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> stdioStats() {
+        return (Map<String, Object>) pool.getStats().get("stdio");
+    }
+}
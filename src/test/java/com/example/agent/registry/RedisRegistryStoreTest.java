@@ -0,0 +1,190 @@
+package com.example.agent.registry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisRegistryStoreTest {
+
+    private static final RegistryNamespace NAMESPACE = RegistryNamespace.TOOLS;
+
+    private FakeRedis server;
+    private RedisConnections connections;
+    private RedisRegistryStore store;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new FakeRedis();
+        connections = new RedisConnections("localhost", server.getPort());
+        store = new RedisRegistryStore(connections, 1000, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        store.close();
+        connections.close();
+        server.close();
+    }
+
+    @Test
+    void getAllSplitsLargeBatchesIntoPipelinedMgetChunks() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 1203; i++) {
+            ids.add("tool-" + i);
+            // Every third record is missing
+            if (i % 3 != 0) {
+                server.values.put(NAMESPACE.key("tool-" + i), "value-" + i);
+            }
+        }
+
+        List<byte[]> values = store.getAll(NAMESPACE, ids);
+
+        assertEquals(ids.size(), values.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (i % 3 == 0) {
+                assertNull(values.get(i), "tool-" + i);
+            } else {
+                assertEquals("value-" + i, new String(values.get(i), StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(List.of(500, 500, 203), server.mgetSizes);
+        assertEquals(1, new HashSet<>(server.mgetConnections).size());
+    }
+
+    @Test
+    void getAllOfNothingSendsNothing() {
+        assertTrue(store.getAll(NAMESPACE, List.of()).isEmpty());
+        assertTrue(server.mgetSizes.isEmpty());
+    }
+
+    /**
+     * Just enough of the Redis protocol for bulk reads: MGET against an in-memory
+     * map, SCRIPT LOAD returning a dummy SHA, and OK for everything else
+     */
+    private static class FakeRedis implements Closeable {
+        final Map<String, String> values = new ConcurrentHashMap<>();
+        final List<Integer> mgetSizes = new CopyOnWriteArrayList<>();
+        final List<Integer> mgetConnections = new CopyOnWriteArrayList<>();
+
+        private final ServerSocket socket = new ServerSocket(0);
+        private final AtomicInteger connectionCount = new AtomicInteger();
+
+        FakeRedis() throws IOException {
+            Thread acceptor = new Thread(this::accept, "fake-redis");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int getPort() {
+            return socket.getLocalPort();
+        }
+
+        private void accept() {
+            while (!socket.isClosed()) {
+                try {
+                    Socket client = socket.accept();
+                    int connection = connectionCount.incrementAndGet();
+                    Thread handler = new Thread(() -> serve(client, connection), "fake-redis-" + connection);
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket client, int connection) {
+            try (client;
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+                 OutputStream out = new BufferedOutputStream(client.getOutputStream())) {
+                while (true) {
+                    List<String> command = readCommand(in);
+                    if (command == null) {
+                        return;
+                    }
+                    String name = command.get(0).toUpperCase();
+                    if (name.equals("MGET")) {
+                        mgetSizes.add(command.size() - 1);
+                        mgetConnections.add(connection);
+                        write(out, "*" + (command.size() - 1) + "\r\n");
+                        for (String key : command.subList(1, command.size())) {
+                            writeBulk(out, values.get(key));
+                        }
+                    } else if (name.equals("SCRIPT")) {
+                        writeBulk(out, "0000000000000000000000000000000000000000");
+                    } else {
+                        write(out, "+OK\r\n");
+                    }
+                    // Replies to a pipeline are flushed once its last command has been read
+                    if (in.available() == 0) {
+                        out.flush();
+                    }
+                }
+            } catch (IOException e) {
+                // Client went away
+            }
+        }
+
+        private static List<String> readCommand(DataInputStream in) throws IOException {
+            String header = readLine(in);
+            if (header == null) {
+                return null;
+            }
+            int count = Integer.parseInt(header.substring(1));
+            List<String> parts = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int length = Integer.parseInt(readLine(in).substring(1));
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                in.readFully(new byte[2]);
+                parts.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return parts;
+        }
+
+        private static String readLine(DataInputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != '\r') {
+                if (c == -1) {
+                    return null;
+                }
+                line.append((char) c);
+            }
+            in.read();
+            return line.toString();
+        }
+
+        private static void writeBulk(OutputStream out, String value) throws IOException {
+            if (value == null) {
+                write(out, "$-1\r\n");
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            write(out, "$" + bytes.length + "\r\n");
+            out.write(bytes);
+            write(out, "\r\n");
+        }
+
+        private static void write(OutputStream out, String text) throws IOException {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
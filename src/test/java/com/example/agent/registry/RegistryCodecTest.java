@@ -0,0 +1,75 @@
+package com.example.agent.registry;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistryCodecTest {
+
+    private final RegistryCodec smile = new RegistryCodec(RegistryCodec.Format.SMILE);
+    private final RegistryCodec json = new RegistryCodec(RegistryCodec.Format.JSON);
+
+    @Test
+    void smileValuesCarryTheVersionByteAndRoundTrip() throws IOException {
+        byte[] value = smile.encode(tool("t1", "search"));
+
+        assertEquals(0x01, value[0]);
+        assertEquals("search", smile.decode(value, ToolMetadata.class).getName());
+        assertTrue(smile.isCurrent(value));
+        assertFalse(json.isCurrent(value));
+    }
+
+    @Test
+    void eitherCodecReadsBothFormats() throws IOException {
+        byte[] smileValue = smile.encode(tool("t1", "search"));
+        byte[] jsonValue = json.encode(tool("t2", "chat"));
+
+        assertEquals('{', jsonValue[0]);
+        for (RegistryCodec codec : new RegistryCodec[] { smile, json }) {
+            assertEquals("search", codec.decode(smileValue, ToolMetadata.class).getName());
+            assertEquals("chat", codec.decode(jsonValue, ToolMetadata.class).getName());
+        }
+    }
+
+    @Test
+    void legacyJsonWithLeadingWhitespaceIsRead() throws IOException {
+        byte[] legacy = "\n  {\"tool_id\":\"t1\",\"name\":\"legacy\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals("legacy", smile.decode(legacy, ToolMetadata.class).getName());
+        assertFalse(smile.isCurrent(legacy));
+        assertTrue(json.isCurrent(legacy));
+    }
+
+    @Test
+    void upgradeRewritesLegacyJsonAsSmileWithoutLosingFields() throws IOException {
+        byte[] legacy = "{\"tool_id\":\"t1\",\"name\":\"legacy\",\"unknown_field\":[1,2]}"
+            .getBytes(StandardCharsets.UTF_8);
+
+        byte[] upgraded = smile.upgrade(legacy);
+
+        assertTrue(smile.isCurrent(upgraded));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> fields = smile.decode(upgraded, Map.class);
+        assertEquals("legacy", fields.get("name"));
+        assertEquals(List.of(1, 2), fields.get("unknown_field"));
+    }
+
+    @Test
+    void unknownCodecVersionsAreRejected() {
+        byte[] future = { 0x02, 0x00 };
+
+        assertThrows(IOException.class, () -> smile.decode(future, ToolMetadata.class));
+    }
+
+    private static ToolMetadata tool(String id, String name) {
+        ToolMetadata tool = new ToolMetadata();
+        tool.setToolId(id);
+        tool.setName(name);
+        return tool;
+    }
+}
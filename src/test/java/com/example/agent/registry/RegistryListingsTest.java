@@ -0,0 +1,89 @@
+package com.example.agent.registry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistryListingsTest {
+
+    private static final RegistryNamespace NAMESPACE = RegistryNamespace.TOOLS;
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedRegistryStore store;
+
+    @BeforeEach
+    void openStore() {
+        store = new EmbeddedRegistryStore(directory);
+    }
+
+    @AfterEach
+    void closeStore() {
+        store.close();
+    }
+
+    @Test
+    void deltaPagesThroughMoreThanLimitRecordsSharingOneMillisecond() {
+        for (int i = 0; i < 25; i++) {
+            put("tool-" + i, 1_000);
+        }
+        put("later", 2_000);
+
+        Set<String> seen = new HashSet<>();
+        RegistryListings.DeltaPosition position = RegistryListings.DeltaPosition.at(0);
+        for (int poll = 0; poll < 10 && seen.size() < 26; poll++) {
+            RegistryListings.ChangedIds changed = store.changedSince(NAMESPACE, position, 10);
+            for (String id : changed.updated) {
+                assertTrue(seen.add(id), "returned twice: " + id);
+            }
+            position = RegistryListings.DeltaPosition.parse(changed.next.toString());
+        }
+
+        assertEquals(26, seen.size());
+    }
+
+    @Test
+    void deltaKeepsItsPlaceWhenATiedRecordIsUpdated() {
+        for (int i = 0; i < 4; i++) {
+            put("tool-" + i, 1_000);
+        }
+        RegistryListings.ChangedIds first = store.changedSince(NAMESPACE, RegistryListings.DeltaPosition.at(0), 2);
+        assertEquals(List.of("tool-0", "tool-1"), first.updated);
+
+        // Moving an already returned record must not shift the ones not yet returned
+        put("tool-0", 5_000);
+        RegistryListings.ChangedIds second = store.changedSince(NAMESPACE, first.next, 2);
+        assertEquals(List.of("tool-2", "tool-3"), second.updated);
+    }
+
+    @Test
+    void deltaPositionRoundTrips() {
+        RegistryListings.DeltaPosition position = new RegistryListings.DeltaPosition(1_000, "a:b", null);
+        RegistryListings.DeltaPosition parsed = RegistryListings.DeltaPosition.parse(position.toString());
+
+        assertEquals(1_000, parsed.getSince());
+        assertEquals("a:b", parsed.getAfterUpdated());
+        assertNull(parsed.getAfterDeleted());
+        assertEquals("1000", RegistryListings.DeltaPosition.at(1_000).toString());
+    }
+
+    @Test
+    void deltaPositionRejectsMalformedValues() {
+        assertThrows(IllegalArgumentException.class, () -> RegistryListings.DeltaPosition.parse("abc"));
+        assertThrows(IllegalArgumentException.class, () -> RegistryListings.DeltaPosition.parse("1:2"));
+        assertThrows(IllegalArgumentException.class, () -> RegistryListings.DeltaPosition.parse("1:!!:"));
+    }
+
+    private void put(String id, long updatedAt) {
+        byte[] value = ("{\"id\":\"" + id + "\"}").getBytes(StandardCharsets.UTF_8);
+        store.put(NAMESPACE, new RegistryStore.Record(id, value, updatedAt, Set.of()), RegistryStore.WriteMode.UPSERT, null);
+    }
+}